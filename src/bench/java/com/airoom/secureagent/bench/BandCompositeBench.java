@@ -0,0 +1,105 @@
+package com.airoom.secureagent.bench;
+
+import com.airoom.secureagent.watermark.WatermarkStamp;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 워터마크 띠 병렬 합성 벤치: 직렬 vs 병렬도 2, 4, … 코어 수
+ *
+ * - 인코더와 같은 규칙으로 폰트/간격을 정한 8K 스크린샷(7680×4320) · 600dpi A4 스캔(4960×7016) 크기 이미지
+ * - 인코더와 같은 합성 대상: TYPE_INT_RGB(JPEG) / TYPE_INT_ARGB(PNG, 일부 반투명 배경)
+ * - 자체 검증: 모든 병렬도의 결과 픽셀 배열이 직렬 결과와 완전히 같음 → 아니면 exit 1
+ *   (속도 배율은 코어 수에 따라 다르므로 출력만 함)
+ *
+ * 실행 예)  mvn -Pbench test-compile exec:exec -Dbench=BandCompositeBench -Dbench.args="..."   (인자: runs=5)
+ */
+public class BandCompositeBench {
+
+    private static final String TEXT = "AIROOM-3F9A2C";
+
+    public static void main(String[] args) {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int cores = Runtime.getRuntime().availableProcessors();
+        float opacity = 0.3f;
+        System.out.println("[Bench] 코어 " + cores);
+
+        int[][] sizes = {{7680, 4320}, {4960, 7016}};
+        int[] types = {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB};
+        boolean identical = true;
+        for (int[] s : sizes) {
+            for (int type : types) {
+                int w = s[0], h = s[1];
+                // ImageStegoWithWatermarkEncoder 와 같은 크기 규칙
+                float scale = Math.max(w, h) / 1000f;
+                int fontPx = Math.max(14, Math.round(40 * scale));
+                int stepX = Math.max(120, Math.round(300 * scale));
+                int stepY = Math.max(80, Math.round(200 * scale));
+                WatermarkStamp.Stamp stamp = WatermarkStamp.of(TEXT, new Font("Arial", Font.BOLD, fontPx),
+                        new Color(255, 0, 0, Math.round(opacity * 255)), opacity);
+
+                BufferedImage base = background(w, h, type);
+                int[] expected = null;
+                long serial = 0;
+                for (int p = 1; p <= Math.max(4, cores); p *= 2) {
+                    ForkJoinPool pool = p == 1 ? null : new ForkJoinPool(p);
+                    int[][] out = new int[1][];
+                    long t = median(runs, () -> {
+                        BufferedImage dst = copy(base);
+                        long t0 = System.nanoTime();
+                        WatermarkStamp.apply(dst, stamp, stepX, stepY, pool);
+                        long dt = System.nanoTime() - t0;
+                        out[0] = pixels(dst);
+                        return dt;
+                    });
+                    if (pool != null) pool.shutdown();
+                    if (expected == null) { expected = out[0]; serial = t; }
+                    boolean same = Arrays.equals(expected, out[0]);
+                    identical &= same;
+                    System.out.printf("[Bench] %dx%d %s 병렬도 %d : p50 %.1f ms  %.2fx  동일=%s%n",
+                            w, h, type == BufferedImage.TYPE_INT_RGB ? "RGB " : "ARGB", p,
+                            t / 1e6, (double) serial / Math.max(1, t), same);
+                }
+            }
+        }
+        System.out.println(identical ? "[Bench] PASS" : "[Bench] FAIL (직렬 결과와 다름)");
+        if (!identical) System.exit(1);
+    }
+
+    /** 노이즈 배경, ARGB 는 가장자리 띠를 반투명으로 (알파 합성 경로까지 검증) */
+    private static BufferedImage background(int w, int h, int type) {
+        BufferedImage img = new BufferedImage(w, h, type);
+        int[] px = pixels(img);
+        Random rnd = new Random(7);
+        for (int i = 0; i < px.length; i++) {
+            int a = type == BufferedImage.TYPE_INT_ARGB && (i / w) % 512 < 64 ? rnd.nextInt(256) : 255;
+            px[i] = a << 24 | rnd.nextInt(1 << 24);
+        }
+        return img;
+    }
+
+    private static BufferedImage copy(BufferedImage src) {
+        BufferedImage c = new BufferedImage(src.getWidth(), src.getHeight(), src.getType());
+        System.arraycopy(pixels(src), 0, pixels(c), 0, pixels(src).length);
+        return c;
+    }
+
+    private static int[] pixels(BufferedImage img) {
+        return ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+    }
+
+    private interface Timed { long run(); }
+
+    private static long median(int runs, Timed r) {
+        r.run();                                               // 워밍업
+        long[] t = new long[runs];
+        for (int i = 0; i < runs; i++) t[i] = r.run();
+        Arrays.sort(t);
+        return t[runs / 2];
+    }
+}
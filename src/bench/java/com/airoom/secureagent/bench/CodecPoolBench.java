@@ -0,0 +1,133 @@
+package com.airoom.secureagent.bench;
+
+import com.airoom.secureagent.monitor.AlreadyTaggedChecker;
+import com.airoom.secureagent.steganography.ImageStegoDecoder;
+import com.airoom.secureagent.steganography.ImageStegoWithWatermarkEncoder;
+import com.airoom.secureagent.util.FileFormat;
+import com.airoom.secureagent.util.ImageCodecs;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * ImageIO 코덱 풀 벤치 (ImageCodecs)
+ *
+ * 1) 첫 파일 지연: 새 JVM 에서 첫 PNG·JPEG 태그 확인 + 인코딩 + 디코딩 시간
+ *    cold = 예열 없음, warm = 예열(warmUpNow)을 끝낸 뒤 (예열 시간 자체는 부팅 백그라운드라 제외)
+ *    각각 자식 JVM 으로 runs 번 실행해 p50
+ * 2) 정상 상태: JPEG 메타데이터 읽기 1회당 시간
+ *    legacy = 호출마다 getImageReadersByFormatName(...).next() (기존 코드처럼 dispose 없음)
+ *    pooled = ImageCodecs.reader / release
+ * 자체 검증: warm 첫 파일 < cold 첫 파일, pooled ≤ legacy → 아니면 exit 1
+ *
+ * 실행 예)  mvn -Pbench test-compile exec:exec -Dbench=CodecPoolBench -Dbench.args="..."   (인자: runs=3 ops=3000)
+ */
+public class CodecPoolBench {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--first")) {
+            first(Path.of(args[1]), Boolean.parseBoolean(args[2]));
+            return;
+        }
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int ops = args.length > 1 ? Integer.parseInt(args[1]) : 3000;
+
+        Path dir = Files.createTempDirectory("aidt-codec");
+        sample(dir.resolve("a.png"), "png");
+        sample(dir.resolve("a.jpg"), "jpeg");
+
+        long cold = medianChild(dir, false, runs);
+        long warm = medianChild(dir, true, runs);
+        System.out.printf("[Bench] 첫 파일(태그 확인+인코딩+디코딩, PNG+JPEG) cold %.1f ms / warm %.1f ms%n",
+                cold / 1e6, warm / 1e6);
+
+        Path jpg = dir.resolve("a.jpg");
+        long legacy = perOp(jpg, ops, false);
+        long pooled = perOp(jpg, ops, true);
+        System.out.printf("[Bench] JPEG 메타데이터 읽기 1회 legacy %.1f µs / pooled %.1f µs (%.2fx)%n",
+                legacy / 1e3, pooled / 1e3, (double) legacy / Math.max(1, pooled));
+        System.out.println("[Bench] 코덱 풀: " + ImageCodecs.stats());
+
+        boolean ok = warm < cold && pooled <= legacy;
+        System.out.println(ok ? "[Bench] PASS" : "[Bench] FAIL");
+        if (!ok) System.exit(1);
+    }
+
+    /** 자식 JVM: 첫 파일 처리 시간(ns)을 "FIRST <ns>" 로 출력 */
+    private static void first(Path dir, boolean warm) throws Exception {
+        System.setProperty("secureagent.embed.mode", "REENCODE");
+        if (warm) ImageCodecs.warmUpNow();
+        long t0 = System.nanoTime();
+        for (String name : new String[]{"a.png", "a.jpg"}) {
+            Path src = dir.resolve(name), f = Files.createTempFile(dir, "first", name);
+            Files.copy(src, f, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+            FileFormat fmt = name.endsWith("png") ? FileFormat.PNG : FileFormat.JPEG;
+            AlreadyTaggedChecker.isTagged(f, fmt);
+            ImageStegoWithWatermarkEncoder.encode(f.toString(), f.toString(), "bench", "AIROOM", 0.3f);
+            ImageStegoDecoder.decode(f.toString(), fmt);
+            Files.deleteIfExists(f);
+        }
+        System.out.println("FIRST " + (System.nanoTime() - t0));
+    }
+
+    private static long medianChild(Path dir, boolean warm, int runs) throws Exception {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        long[] t = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            List<String> cmd = new ArrayList<>(List.of(java, "-Djava.awt.headless=true",
+                    "-cp", System.getProperty("java.class.path"),
+                    CodecPoolBench.class.getName(), "--first", dir.toString(), String.valueOf(warm)));
+            Process p = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+            long ns = -1;
+            try (BufferedReader r = new BufferedReader(new InputStreamReader(p.getInputStream()))) {
+                for (String line; (line = r.readLine()) != null; ) {
+                    if (line.startsWith("FIRST ")) ns = Long.parseLong(line.substring(6).trim());
+                }
+            }
+            if (p.waitFor() != 0 || ns < 0) throw new IllegalStateException("자식 JVM 실패 (warm=" + warm + ")");
+            t[i] = ns;
+        }
+        Arrays.sort(t);
+        return t[runs / 2];
+    }
+
+    /** 메타데이터 읽기 ops 번 평균 (ns), 앞 10% 는 워밍업 */
+    private static long perOp(Path f, int ops, boolean pooled) throws Exception {
+        int warmup = ops / 10;
+        long t0 = 0;
+        for (int i = 0; i < warmup + ops; i++) {
+            if (i == warmup) t0 = System.nanoTime();
+            ImageReader r = pooled ? ImageCodecs.reader(FileFormat.JPEG)
+                    : ImageIO.getImageReadersByFormatName("jpeg").next();
+            try (ImageInputStream iis = ImageIO.createImageInputStream(f.toFile())) {
+                r.setInput(iis, true);
+                r.getImageMetadata(0);
+            } finally {
+                if (pooled) ImageCodecs.release(FileFormat.JPEG, r);
+            }
+        }
+        return (System.nanoTime() - t0) / ops;
+    }
+
+    private static void sample(Path f, String fmt) throws Exception {
+        BufferedImage img = new BufferedImage(640, 360, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, 640, 360);
+        g.setColor(Color.BLACK);
+        g.setFont(new Font("Dialog", Font.PLAIN, 22));
+        g.drawString("Codec pool sample", 20, 180);
+        g.dispose();
+        ImageIO.write(img, fmt, f.toFile());
+    }
+}
@@ -0,0 +1,156 @@
+package com.airoom.secureagent.bench;
+
+import com.airoom.secureagent.steganography.ImageStegoDecoder;
+import com.airoom.secureagent.steganography.ImageStegoWithWatermarkEncoder;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.IndexColorModel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * 원본 색 형식별 재인코딩 벤치: INT_(A)RGB 변환(기존) vs ColorModel 유지
+ *
+ * - 형식마다 같은 화면(패널 + 텍스트 + 그라데이션)을 그 형식으로 저장한 뒤 인코딩 (REENCODE, 불투명도 0.3)
+ * - 출력 크기와 인코딩 시간(p50, 파일 읽기~기록 전체) 비교
+ * - 자체 검증(회귀) → 아니면 exit 1
+ *   · 두 경로 모두 페이로드 디코딩 일치, 워터마크로 바뀐 픽셀 존재
+ *   · 유지 대상(팔레트·회색조)은 출력 ColorModel 의 종류/비트 깊이/성분 수가 원본과 같고 크기 ≤ 기존
+ *   · 그 외(RGB)는 두 경로 출력 크기가 같음
+ *
+ * 실행 예)  mvn -Pbench test-compile exec:exec -Dbench=ColorModelBench -Dbench.args="..."   (인자: width=1920 height=1080 runs=3)
+ */
+public class ColorModelBench {
+
+    private static final String PAYLOAD = "bench|user=bench|ts=0";
+
+    private record Case(String name, String ext, int type, int bits, boolean keeps) {}
+
+    public static void main(String[] args) throws Exception {
+        int w = args.length > 0 ? Integer.parseInt(args[0]) : 1920;
+        int h = args.length > 1 ? Integer.parseInt(args[1]) : 1080;
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        System.setProperty("secureagent.embed.mode", "REENCODE");
+
+        Case[] cases = {
+                new Case("gray8 PNG", "png", BufferedImage.TYPE_BYTE_GRAY, 0, true),
+                new Case("gray16 PNG", "png", BufferedImage.TYPE_USHORT_GRAY, 0, true),
+                new Case("palette8 PNG", "png", BufferedImage.TYPE_BYTE_INDEXED, 0, true),
+                new Case("palette4 PNG", "png", BufferedImage.TYPE_BYTE_BINARY, 4, true),
+                new Case("gray JPEG", "jpg", BufferedImage.TYPE_BYTE_GRAY, 0, true),
+                new Case("RGB PNG", "png", BufferedImage.TYPE_INT_RGB, 0, false),
+        };
+
+        Path dir = Files.createTempDirectory("aidt-cm");
+        BufferedImage screen = screen(w, h);
+        boolean pass = true;
+        System.out.printf("[Bench] %dx%d, runs=%d%n", w, h, runs);
+        System.out.println("[Bench]   형식            원본 KB   기존 KB   유지 KB   크기 배율   기존 ms   유지 ms");
+        for (Case c : cases) {
+            BufferedImage img = convert(screen, c);
+            Path src = dir.resolve("src." + c.ext());
+            ImageIO.write(img, c.ext().equals("jpg") ? "jpeg" : "png", src.toFile());
+            BufferedImage before = ImageIO.read(src.toFile());
+
+            Result legacy = run(src, dir.resolve("legacy." + c.ext()), false, runs);
+            Result kept = run(src, dir.resolve("kept." + c.ext()), true, runs);
+
+            ColorModel in = before.getColorModel(), out = kept.image().getColorModel();
+            boolean sameModel = in.getClass() == out.getClass() && in.getPixelSize() == out.getPixelSize()
+                    && in.getNumComponents() == out.getNumComponents();
+            boolean ok = legacy.decoded() && kept.decoded()
+                    && changed(before, legacy.image()) && changed(before, kept.image())
+                    && (c.keeps() ? sameModel && kept.size() <= legacy.size() : kept.size() == legacy.size());
+            pass &= ok;
+            System.out.printf("[Bench]   %-14s %8d  %8d  %8d   %7.2fx  %8.1f  %8.1f  %s%n", c.name(),
+                    Files.size(src) >> 10, legacy.size() >> 10, kept.size() >> 10,
+                    (double) legacy.size() / Math.max(1, kept.size()),
+                    legacy.nanos() / 1e6, kept.nanos() / 1e6,
+                    ok ? "" : "FAIL (모델 유지=" + sameModel + ", 출력 " + describe(out) + ")");
+        }
+        System.out.println(pass ? "[Bench] PASS" : "[Bench] FAIL");
+        if (!pass) System.exit(1);
+    }
+
+    private record Result(long size, long nanos, boolean decoded, BufferedImage image) {}
+
+    /** 원본을 복사해 인코딩 runs 번 (p50), 마지막 결과의 크기·디코딩·픽셀 */
+    private static Result run(Path src, Path f, boolean keep, int runs) throws Exception {
+        System.setProperty("secureagent.encode.keepColorModel", String.valueOf(keep));
+        long[] t = new long[runs];
+        boolean ok = true;
+        for (int i = -1; i < runs; i++) {                                  // i = -1 : 워밍업
+            Files.copy(src, f, StandardCopyOption.REPLACE_EXISTING);
+            long t0 = System.nanoTime();
+            ok &= ImageStegoWithWatermarkEncoder.encode(f.toString(), f.toString(), PAYLOAD, "AIROOM", 0.3f);
+            if (i >= 0) t[i] = System.nanoTime() - t0;
+        }
+        Arrays.sort(t);
+        boolean decoded = ok && PAYLOAD.equals(ImageStegoDecoder.decode(f.toString()));
+        return new Result(Files.size(f), t[runs / 2], decoded, ImageIO.read(f.toFile()));
+    }
+
+    /** 워터마크가 실제로 들어갔는지 (원본과 다른 픽셀이 있는지) */
+    private static boolean changed(BufferedImage a, BufferedImage b) {
+        int w = a.getWidth(), h = a.getHeight();
+        return !Arrays.equals(a.getRGB(0, 0, w, h, null, 0, w), b.getRGB(0, 0, w, h, null, 0, w));
+    }
+
+    private static String describe(ColorModel cm) {
+        return cm.getClass().getSimpleName() + "/" + cm.getPixelSize() + "bit/" + cm.getNumComponents() + "ch";
+    }
+
+    /** 스크린샷 비슷한 화면: 배경 그라데이션, 단색 패널, 텍스트 줄 */
+    private static BufferedImage screen(int w, int h) {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setPaint(new GradientPaint(0, 0, new Color(235, 240, 250), w, h, new Color(200, 210, 230)));
+        g.fillRect(0, 0, w, h);
+        g.setFont(new Font("Dialog", Font.PLAIN, 16));
+        Color[] panels = {Color.WHITE, new Color(250, 250, 245), new Color(40, 44, 52)};
+        for (int p = 0; p < 6; p++) {
+            int px = 40 + (p % 3) * (w / 3), py = 60 + (p / 3) * (h / 2), pw = w / 3 - 60, ph = h / 2 - 100;
+            Color bg = panels[p % panels.length];
+            g.setColor(bg);
+            g.fillRoundRect(px, py, pw, ph, 12, 12);
+            g.setColor(bg.getRed() < 128 ? new Color(200, 220, 180) : new Color(30, 30, 30));
+            for (int y = py + 30; y < py + ph - 10; y += 22) {
+                g.drawString("수업 자료 " + p + "-" + y + "  The quick brown fox 0123456789", px + 16, y);
+            }
+        }
+        g.dispose();
+        return img;
+    }
+
+    private static BufferedImage convert(BufferedImage rgb, Case c) {
+        BufferedImage out;
+        if (c.type() == BufferedImage.TYPE_BYTE_BINARY) {
+            out = new BufferedImage(rgb.getWidth(), rgb.getHeight(), c.type(), palette16());
+        } else {
+            out = new BufferedImage(rgb.getWidth(), rgb.getHeight(), c.type());
+        }
+        Graphics2D g = out.createGraphics();
+        g.drawImage(rgb, 0, 0, null);
+        g.dispose();
+        return out;
+    }
+
+    /** UI 스크린샷용 16색 팔레트 (배경·패널·글자 + 빨강 계열) */
+    private static IndexColorModel palette16() {
+        int[] rgb = {0x000000, 0x1E1E1E, 0x282C34, 0x505050, 0x808080, 0xB4B4B4, 0xC8D2E6, 0xDCE3F0,
+                0xEBF0FA, 0xFAFAF5, 0xFFFFFF, 0xC8DCB4, 0xFF0000, 0xFF8080, 0xC04040, 0xFFC0C0};
+        byte[] r = new byte[16], gr = new byte[16], b = new byte[16];
+        for (int i = 0; i < 16; i++) {
+            r[i] = (byte) (rgb[i] >> 16);
+            gr[i] = (byte) (rgb[i] >> 8);
+            b[i] = (byte) rgb[i];
+        }
+        return new IndexColorModel(4, 16, r, gr, b);
+    }
+}
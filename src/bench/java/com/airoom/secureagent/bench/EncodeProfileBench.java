@@ -0,0 +1,157 @@
+package com.airoom.secureagent.bench;
+
+import com.airoom.secureagent.steganography.EncodeProfile;
+import com.airoom.secureagent.steganography.ImageStegoDecoder;
+import com.airoom.secureagent.steganography.ImageStegoWithWatermarkEncoder;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * 재인코딩 출력 프로파일 벤치 매트릭스: 샘플(스크린샷 / 사진) × 형식 × 프로파일 → 인코딩 시간 · 출력 크기
+ *
+ * - 스크린샷: 그라데이션 배경 + 단색 패널 + 텍스트 줄 (1920×1080, 3840×2160)
+ * - 사진: 여러 주파수의 부드러운 색 변화 + 센서 노이즈 (4000×3000 JPEG, 2000×1500 PNG)
+ * - 인코딩 시간은 파일 읽기~기록 전체 (REENCODE, 불투명도 0.3), p50
+ * - 자체 검증 → 아니면 exit 1
+ *   · 모든 조합 페이로드 디코딩 일치
+ *   · 샘플마다 SMALL 크기 ≤ FAST 크기 × 1.02, PNG 는 FAST 가 SMALL 보다 빠름
+ *   · AUTO 선택: 1MP 이하 SMALL, 1080p BALANCED, 16MP 이상 FAST
+ *
+ * 실행 예)  mvn -Pbench test-compile exec:exec -Dbench=EncodeProfileBench -Dbench.args="..."   (인자: runs=3)
+ */
+public class EncodeProfileBench {
+
+    private static final String PAYLOAD = "bench|user=bench|ts=0";
+    private static final int WARMUP = 2;
+    /** 노이즈가 많은 사진 PNG 는 deflate 레벨을 올려도 크기가 거의 같음 → 이 정도 역전은 허용 */
+    private static final double SIZE_SLACK = 1.02;
+
+    private record Sample(String name, String ext, BufferedImage image) {}
+
+    public static void main(String[] args) throws Exception {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        System.setProperty("secureagent.embed.mode", "REENCODE");
+
+        Sample[] samples = {
+                new Sample("screenshot 1080p", "png", screen(1920, 1080)),
+                new Sample("screenshot 4K", "png", screen(3840, 2160)),
+                new Sample("screenshot 1080p", "jpg", screen(1920, 1080)),
+                new Sample("photo 3MP", "png", photo(2000, 1500)),
+                new Sample("photo 12MP", "jpg", photo(4000, 3000)),
+        };
+
+        Path dir = Files.createTempDirectory("aidt-profile");
+        warmUp(dir, samples[0]);
+        boolean pass = true;
+        System.out.printf("[Bench] runs=%d, JPEG 품질 %.2f (전 프로파일 공통)%n", runs, EncodeProfile.JPEG_QUALITY);
+        System.out.println("[Bench]   샘플               형식   프로파일     시간 ms     크기 KB   FAST 대비");
+        for (Sample s : samples) {
+            Path src = dir.resolve("src." + s.ext());
+            ImageIO.write(s.image(), s.ext().equals("jpg") ? "jpeg" : "png", src.toFile());
+            long[] nanos = new long[EncodeProfile.values().length];
+            long[] sizes = new long[nanos.length];
+            for (EncodeProfile p : EncodeProfile.values()) {
+                EncodeProfile.configure(p.name(), null, null);
+                Path f = dir.resolve("out." + s.ext());
+                long[] t = new long[runs];
+                for (int i = -WARMUP; i < runs; i++) {                         // i < 0 : 워밍업 (JIT · 코덱)
+                    Files.copy(src, f, StandardCopyOption.REPLACE_EXISTING);
+                    long t0 = System.nanoTime();
+                    boolean ok = ImageStegoWithWatermarkEncoder.encode(f.toString(), f.toString(), PAYLOAD, "AIROOM", 0.3f);
+                    if (i >= 0) t[i] = System.nanoTime() - t0;
+                    pass &= ok;
+                }
+                Arrays.sort(t);
+                pass &= PAYLOAD.equals(ImageStegoDecoder.decode(f.toString()));
+                nanos[p.ordinal()] = t[runs / 2];
+                sizes[p.ordinal()] = Files.size(f);
+                System.out.printf("[Bench]   %-18s %-5s  %-10s %9.1f  %10d    %5.1f%%%n", s.name(), s.ext(), p.name(),
+                        nanos[p.ordinal()] / 1e6, sizes[p.ordinal()] >> 10,
+                        100.0 * sizes[p.ordinal()] / sizes[0]);
+            }
+            int fast = EncodeProfile.FAST.ordinal(), small = EncodeProfile.SMALL.ordinal();
+            boolean ordered = sizes[small] <= sizes[fast] * SIZE_SLACK
+                    && (!s.ext().equals("png") || nanos[fast] < nanos[small]);
+            if (!ordered) System.out.println("[Bench]   ↑ 크기/시간 순서 어긋남");
+            pass &= ordered;
+        }
+
+        EncodeProfile.configure("AUTO", null, null);
+        boolean auto = EncodeProfile.select(800L * 600) == EncodeProfile.SMALL
+                && EncodeProfile.select(1920L * 1080) == EncodeProfile.BALANCED
+                && EncodeProfile.select(16_000_000L) == EncodeProfile.FAST;
+        System.out.println("[Bench] AUTO 정책 " + EncodeProfile.policy() + " 선택 확인=" + auto);
+        pass &= auto;
+        System.out.println(pass ? "[Bench] PASS" : "[Bench] FAIL");
+        if (!pass) System.exit(1);
+    }
+
+    /** 첫 샘플이 JIT 워밍업 비용을 떠안지 않도록 모든 프로파일로 몇 번씩 미리 인코딩 */
+    private static void warmUp(Path dir, Sample s) throws Exception {
+        Path src = dir.resolve("warm." + s.ext()), f = dir.resolve("warm-out." + s.ext());
+        ImageIO.write(s.image(), s.ext().equals("jpg") ? "jpeg" : "png", src.toFile());
+        for (int i = 0; i < 3; i++) {
+            for (EncodeProfile p : EncodeProfile.values()) {
+                EncodeProfile.configure(p.name(), null, null);
+                Files.copy(src, f, StandardCopyOption.REPLACE_EXISTING);
+                ImageStegoWithWatermarkEncoder.encode(f.toString(), f.toString(), PAYLOAD, "AIROOM", 0.3f);
+            }
+        }
+    }
+
+    /** 스크린샷 비슷한 화면: 배경 그라데이션, 단색 패널, 텍스트 줄 */
+    private static BufferedImage screen(int w, int h) {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setPaint(new GradientPaint(0, 0, new Color(235, 240, 250), w, h, new Color(200, 210, 230)));
+        g.fillRect(0, 0, w, h);
+        g.setFont(new Font("Dialog", Font.PLAIN, Math.max(12, h / 60)));
+        Color[] panels = {Color.WHITE, new Color(250, 250, 245), new Color(40, 44, 52)};
+        int line = Math.max(16, h / 48);
+        for (int p = 0; p < 6; p++) {
+            int px = 40 + (p % 3) * (w / 3), py = 60 + (p / 3) * (h / 2), pw = w / 3 - 60, ph = h / 2 - 100;
+            Color bg = panels[p % panels.length];
+            g.setColor(bg);
+            g.fillRoundRect(px, py, pw, ph, 12, 12);
+            g.setColor(bg.getRed() < 128 ? new Color(200, 220, 180) : new Color(30, 30, 30));
+            for (int y = py + 2 * line; y < py + ph - 10; y += line) {
+                g.drawString("수업 자료 " + p + "-" + y + "  The quick brown fox 0123456789", px + 16, y);
+            }
+        }
+        g.dispose();
+        return img;
+    }
+
+    /** 사진 비슷한 이미지: 부드러운 색 변화(저주파 합) + 채널별 노이즈 */
+    private static BufferedImage photo(int w, int h) {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        int[] px = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+        SplittableRandom rnd = new SplittableRandom(42);
+        for (int y = 0; y < h; y++) {
+            double fy = (double) y / h;
+            for (int x = 0; x < w; x++) {
+                double fx = (double) x / w;
+                double base = Math.sin(fx * 7.1 + fy * 2.3) * 0.5 + Math.sin(fx * 19.7 - fy * 13.1) * 0.2
+                        + Math.cos(fy * 5.3) * 0.3;
+                int r = clamp(128 + 90 * base + 40 * fy + rnd.nextInt(-6, 7));
+                int gr = clamp(110 + 70 * Math.sin(fx * 3.7 + base) + rnd.nextInt(-6, 7));
+                int b = clamp(100 + 60 * Math.cos(fy * 4.1 - base) + 30 * fx + rnd.nextInt(-6, 7));
+                px[y * w + x] = r << 16 | gr << 8 | b;
+            }
+        }
+        return img;
+    }
+
+    private static int clamp(double v) {
+        return (int) Math.max(0, Math.min(255, v));
+    }
+}
@@ -0,0 +1,113 @@
+package com.airoom.secureagent.bench;
+
+import com.airoom.secureagent.monitor.FileEvent;
+import com.airoom.secureagent.monitor.GlobalWatcher;
+import com.airoom.secureagent.monitor.InMemoryEventSource;
+import com.airoom.secureagent.monitor.TaggingPipeline;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 이벤트 → 디스패치(분류 단계 진입) 지연 벤치
+ *
+ * - InMemoryEventSource 로 이벤트를 주입하므로 데스크톱/WatchService 없이 Linux CI 에서도 실행 가능
+ * - 분류 본체를 교체해 실제 삽입은 하지 않고 진입 시각만 기록
+ * - 시나리오: 브라우저 rename 완료(안정화 생략) / 일반 CREATE(안정화 창 경유) / 버스트 처리량
+ *
+ * 실행 예)  mvn -Pbench test-compile exec:exec -Dbench=EventLatencyBench -Dbench.args="..."   (인자: files=2000 stableMs=200)
+ *         (-Dbench.jvm=-Dsecureagent.shard.rate=200 을 주면 샤드 게이트 포함 지연)
+ */
+public class EventLatencyBench {
+
+    private static final Map<Path, Long> emittedAt = new ConcurrentHashMap<>();
+    private static volatile long[] samples;
+    private static final AtomicInteger n = new AtomicInteger();
+    private static volatile CountDownLatch done;
+
+    public static void main(String[] args) throws Exception {
+        int files = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        long stableMs = args.length > 1 ? Long.parseLong(args[1]) : 200;
+        // 샤드 게이트(토큰 버킷)는 따로 지정하지 않으면 풀어서 파이프라인 지연만 측정
+        if (System.getProperty("secureagent.shard.rate") == null) {
+            System.setProperty("secureagent.shard.rate", "1000000");
+            System.setProperty("secureagent.shard.burst", "1000000");
+        }
+
+        Path root = Files.createTempDirectory("aidt-bench");
+        InMemoryEventSource src = new InMemoryEventSource("bench");
+        TaggingPipeline pipeline = new TaggingPipeline(EventLatencyBench::onDispatch);
+        pipeline.setStabilityWindow(root, stableMs);
+        GlobalWatcher watcher = new GlobalWatcher(List.of(root), pipeline, src);
+        watcher.start();
+
+        try {
+            Path[] paths = new Path[files];
+            for (int i = 0; i < files; i++) {
+                paths[i] = Files.write(root.resolve("f" + i + ".png"), new byte[]{1, 2, 3, 4});
+            }
+
+            // 1) rename 완료: DELETE(x.png.crdownload) → CREATE(x.png)
+            run("rename-complete", paths, p -> {
+                src.emit(FileEvent.Kind.DELETE, p.resolveSibling(p.getFileName() + ".crdownload"));
+                src.emit(FileEvent.Kind.CREATE, p);
+            });
+
+            // 2) 일반 CREATE: 안정화 창(stableMs) 이후 디스패치
+            run("create-stable(" + stableMs + "ms)", paths, p -> src.emit(FileEvent.Kind.CREATE, p));
+
+            System.out.println("[Bench] watcher stats = " + watcher.stats());
+        } finally {
+            watcher.close();
+            try (var s = Files.list(root)) { s.forEach(p -> p.toFile().delete()); }
+            Files.deleteIfExists(root);
+        }
+    }
+
+    private interface Emitter { void emit(Path p); }
+
+    private static void run(String name, Path[] paths, Emitter e) throws InterruptedException {
+        samples = new long[paths.length];
+        n.set(0);
+        done = new CountDownLatch(paths.length);
+        emittedAt.clear();
+
+        long t0 = System.nanoTime();
+        for (Path p : paths) {
+            emittedAt.put(p, System.nanoTime());
+            e.emit(p);
+        }
+        long emitNs = System.nanoTime() - t0;
+        boolean all = done.await(60, TimeUnit.SECONDS);
+        long totalNs = System.nanoTime() - t0;
+
+        int got = Math.min(n.get(), samples.length);
+        long[] s = Arrays.copyOf(samples, got);
+        Arrays.sort(s);
+        System.out.printf("[Bench] %-22s n=%d%s emit=%.1f us/event  p50=%.2f ms  p99=%.2f ms  max=%.2f ms  throughput=%.0f files/s%n",
+                name, got, all ? "" : " (timeout)",
+                emitNs / 1e3 / paths.length,
+                pct(s, 0.50), pct(s, 0.99), got == 0 ? 0 : s[got - 1] / 1e6,
+                got / (totalNs / 1e9));
+    }
+
+    private static void onDispatch(Path f) {
+        Long at = emittedAt.remove(f);
+        if (at == null) return;
+        int i = n.getAndIncrement();
+        if (i < samples.length) samples[i] = System.nanoTime() - at;
+        done.countDown();
+    }
+
+    private static double pct(long[] sorted, double q) {
+        if (sorted.length == 0) return 0;
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * q))] / 1e6;
+    }
+}
@@ -0,0 +1,137 @@
+package com.airoom.secureagent.bench;
+
+import com.airoom.secureagent.steganography.ImageStegoDecoder;
+import com.airoom.secureagent.steganography.ImageStegoWithWatermarkEncoder;
+import com.airoom.secureagent.steganography.LsbCodec;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * 픽셀 LSB 삽입 · 추출 처리량 (MP/s): 스칼라 vs Vector API
+ *
+ * - 4000×3000 INT_RGB, 암호문 크기 암호화된 페이로드 수준(기본 300B), 각 p50
+ * - 추출은 위상별 누적 + 오프셋 탐색 + 다수결 + CRC 전체
+ * - 자체 검증 → 아니면 exit 1
+ *   · 두 구현의 삽입 결과 픽셀 동일, 각자 추출 = 원문
+ *   · 홀수 오프셋으로 잘라낸 700×500 조각에서 추출 = 원문, 태그 없는 이미지는 null
+ *   · 재인코딩 PNG → 잘라내 메타데이터 없이 다시 저장 → ImageStegoDecoder 로 평문 복구
+ *
+ * 실행 예)  mvn -Pbench test-compile exec:exec -Dbench=LsbBench -Dbench.args="..."   (인자: runs=5 payloadBytes=300)
+ *          (bench 프로파일은 --add-modules jdk.incubator.vector 포함, 모듈 없는 JVM 에서는 두 구현 모두 스칼라)
+ */
+public class LsbBench {
+
+    private static final int W = 4000, H = 3000;
+    private static final String PAYLOAD = "bench|user=bench|ts=0";
+
+    public static void main(String[] args) throws Exception {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+
+        byte[] payload = new byte[size];
+        new SplittableRandom(7).nextBytes(payload);
+        int[] tile = LsbCodec.tile(payload);
+        int[] src = photo(W, H);
+        double mp = W * (double) H / 1e6;
+
+        System.out.printf("[Bench] %dx%d, 암호문 %dB, runs=%d, 구현=%s%n", W, H, size, runs, LsbCodec.kernel());
+        if (!LsbCodec.vectorAvailable()) {
+            System.out.println("[Bench] jdk.incubator.vector 없음 → vector 행도 스칼라로 측정");
+        }
+        boolean pass = true;
+        int[][] embedded = new int[2][];
+        System.out.println("[Bench]   구현      삽입 MP/s   추출 MP/s");
+        for (int v = 0; v <= 1; v++) {
+            boolean vector = v == 1;
+            int[] px = src.clone();
+            long[] te = new long[runs], tx = new long[runs];
+            byte[] got = null;
+            for (int i = -2; i < runs; i++) {                                  // i < 0 : 워밍업 (JIT)
+                System.arraycopy(src, 0, px, 0, px.length);
+                long t0 = System.nanoTime();
+                LsbCodec.embed(px, W, H, tile, vector);
+                long t1 = System.nanoTime();
+                got = LsbCodec.extract(px, W, H, vector);
+                long t2 = System.nanoTime();
+                if (i >= 0) { te[i] = t1 - t0; tx[i] = t2 - t1; }
+            }
+            Arrays.sort(te);
+            Arrays.sort(tx);
+            boolean ok = Arrays.equals(payload, got);
+            pass &= ok;
+            embedded[v] = px;
+            System.out.printf("[Bench]   %-8s %10.0f  %10.0f   복구=%s%n", vector ? "vector" : "scalar",
+                    mp / (te[runs / 2] / 1e9), mp / (tx[runs / 2] / 1e9), ok);
+        }
+        boolean same = Arrays.equals(embedded[0], embedded[1]);
+        System.out.println("[Bench] 스칼라/벡터 삽입 결과 동일=" + same);
+        pass &= same;
+
+        // 잘라내기: 타일 경계와 어긋난 홀수 오프셋
+        BufferedImage full = image(embedded[1], W, H);
+        boolean crop = Arrays.equals(payload, LsbCodec.extract(copy(full.getSubimage(1333, 917, 700, 500))));
+        boolean clean = LsbCodec.extract(copy(image(src, W, H).getSubimage(0, 0, 700, 500))) == null;
+        System.out.println("[Bench] 700x500 조각(1333,917) 복구=" + crop + ", 태그 없는 이미지 null=" + clean);
+        pass &= crop && clean;
+
+        pass &= endToEnd();
+        System.out.println(pass ? "[Bench] PASS" : "[Bench] FAIL");
+        if (!pass) System.exit(1);
+    }
+
+    /** 재인코딩 PNG → 잘라서 ImageIO 로 다시 저장(tEXt 없음) → 디코더가 픽셀에서 복구 */
+    private static boolean endToEnd() throws Exception {
+        System.setProperty("secureagent.embed.mode", "REENCODE");
+        System.setProperty("secureagent.lsb.enabled", "true");
+        Path dir = Files.createTempDirectory("aidt-lsb");
+        Path f = dir.resolve("shot.png"), resaved = dir.resolve("resaved.png");
+        ImageIO.write(image(photo(1600, 1000), 1600, 1000), "png", f.toFile());
+        boolean enc = ImageStegoWithWatermarkEncoder.encode(f.toString(), f.toString(), PAYLOAD, "AIROOM", 0.3f);
+        BufferedImage read = ImageIO.read(f.toFile());
+        ImageIO.write(copy(read.getSubimage(211, 97, 900, 600)), "png", resaved.toFile());
+        String got = ImageStegoDecoder.decode(resaved.toString());
+        boolean ok = enc && PAYLOAD.equals(got);
+        System.out.println("[Bench] 재인코딩 → 잘라 재저장(메타데이터 없음) → 디코딩=" + got + " 일치=" + ok);
+        return ok;
+    }
+
+    private static BufferedImage copy(BufferedImage sub) {
+        BufferedImage out = new BufferedImage(sub.getWidth(), sub.getHeight(), BufferedImage.TYPE_INT_RGB);
+        out.getGraphics().drawImage(sub, 0, 0, null);
+        return out;
+    }
+
+    private static BufferedImage image(int[] px, int w, int h) {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        System.arraycopy(px, 0, ((DataBufferInt) img.getRaster().getDataBuffer()).getData(), 0, px.length);
+        return img;
+    }
+
+    /** 사진 비슷한 픽셀: 부드러운 색 변화 + 채널별 노이즈 */
+    private static int[] photo(int w, int h) {
+        int[] px = new int[w * h];
+        SplittableRandom rnd = new SplittableRandom(42);
+        for (int y = 0; y < h; y++) {
+            double fy = (double) y / h;
+            for (int x = 0; x < w; x++) {
+                double fx = (double) x / w;
+                double base = Math.sin(fx * 7.1 + fy * 2.3) * 0.5 + Math.cos(fy * 5.3) * 0.3;
+                int r = clamp(128 + 90 * base + rnd.nextInt(-6, 7));
+                int g = clamp(110 + 70 * Math.sin(fx * 3.7 + base) + rnd.nextInt(-6, 7));
+                int b = clamp(100 + 60 * Math.cos(fy * 4.1 - base) + rnd.nextInt(-6, 7));
+                px[y * w + x] = r << 16 | g << 8 | b;
+            }
+        }
+        return px;
+    }
+
+    private static int clamp(double v) {
+        return (int) Math.max(0, Math.min(255, v));
+    }
+}
@@ -0,0 +1,97 @@
+package com.airoom.secureagent.bench;
+
+import com.airoom.secureagent.steganography.ImageStegoDecoder;
+import com.airoom.secureagent.steganography.ImageStegoWithWatermarkEncoder;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 이미지 삽입 모드 비교 벤치: 재인코딩(REENCODE) vs 메타데이터 splice(SPLICE)
+ *
+ * - 노이즈가 섞인 큰 PNG / JPEG 를 만들어 같은 원본 사본에 각 모드로 삽입, 중간값 시간 비교
+ * - 자체 검증: 두 모드 모두 디코딩 결과가 페이로드와 같음 / splice 결과의 픽셀이 원본과 동일 /
+ *   splice 가 재인코딩보다 MIN_SPEEDUP 배 이상 빠름 → 아니면 exit 1
+ * - JPEG 는 재인코딩 시 파일 크기 변화도 함께 출력 (splice 는 COM 세그먼트만큼만 증가)
+ *
+ * 실행 예)  mvn -Pbench test-compile exec:exec -Dbench=MetadataSpliceBench -Dbench.args="..."   (인자: png|jpeg width=4000 height=3000 runs=3)
+ */
+public class MetadataSpliceBench {
+
+    private static final double MIN_SPEEDUP = 50;
+    private static final String PAYLOAD = "bench|user=bench|ts=0";
+
+    public static void main(String[] args) throws Exception {
+        String ext = args.length > 0 && args[0].toLowerCase().startsWith("j") ? "jpg" : "png";
+        int w = args.length > 1 ? Integer.parseInt(args[1]) : 4000;
+        int h = args.length > 2 ? Integer.parseInt(args[2]) : 3000;
+        int runs = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+
+        Path dir = Files.createTempDirectory("aidt-splice");
+        Path original = dir.resolve("original." + ext);
+        ImageIO.write(noisy(w, h), ext.equals("jpg") ? "jpeg" : "png", original.toFile());
+        System.out.printf("[Bench] %dx%d %s, %.2f MB%n", w, h, ext.toUpperCase(), Files.size(original) / 1e6);
+
+        long reencode = median(runs, () -> once("REENCODE", dir, original, ext));
+        long splice   = median(runs, () -> once("SPLICE", dir, original, ext));
+        double speedup = (double) reencode / Math.max(1, splice);
+        System.out.printf("[Bench] reencode p50=%.1f ms  splice p50=%.2f ms  → %.0fx%n",
+                reencode / 1e6, splice / 1e6, speedup);
+
+        // splice 결과 픽셀이 원본과 동일한지
+        Path spliced = dir.resolve("check." + ext);
+        Files.copy(original, spliced, StandardCopyOption.REPLACE_EXISTING);
+        System.setProperty("secureagent.embed.mode", "SPLICE");
+        ImageStegoWithWatermarkEncoder.encode(spliced.toString(), spliced.toString(), PAYLOAD, "AIROOM", 0.004f);
+        BufferedImage a = ImageIO.read(original.toFile()), b = ImageIO.read(spliced.toFile());
+        boolean samePixels = Arrays.equals(a.getRGB(0, 0, w, h, null, 0, w), b.getRGB(0, 0, w, h, null, 0, w));
+        System.out.println("[Bench] splice 픽셀 동일: " + samePixels);
+        System.out.printf("[Bench] 크기 : 원본 %d B, reencode %d B, splice %d B%n", Files.size(original),
+                Files.size(dir.resolve("reencode." + ext)), Files.size(spliced));
+
+        boolean ok = samePixels && speedup >= MIN_SPEEDUP;
+        System.out.println(ok ? "[Bench] PASS" : "[Bench] FAIL (기준 " + MIN_SPEEDUP + "x)");
+        if (!ok) System.exit(1);
+    }
+
+    private static long once(String mode, Path dir, Path original, String ext) throws Exception {
+        Path f = dir.resolve(mode.toLowerCase() + "." + ext);
+        Files.copy(original, f, StandardCopyOption.REPLACE_EXISTING);
+        System.setProperty("secureagent.embed.mode", mode);
+        long t0 = System.nanoTime();
+        boolean ok = ImageStegoWithWatermarkEncoder.encode(f.toString(), f.toString(), PAYLOAD, "AIROOM", 0.004f);
+        long t = System.nanoTime() - t0;
+        String decoded = ImageStegoDecoder.decode(f.toString());
+        if (!ok || !PAYLOAD.equals(decoded)) throw new IllegalStateException(mode + " 디코딩 불일치: " + decoded);
+        return t;
+    }
+
+    private interface Run { long time() throws Exception; }
+
+    private static long median(int runs, Run r) throws Exception {
+        long[] t = new long[runs];
+        for (int i = 0; i < runs; i++) t[i] = r.time();
+        Arrays.sort(t);
+        return t[runs / 2];
+    }
+
+    /** 그라데이션 + 노이즈 (압축이 너무 잘 되지 않도록) */
+    private static BufferedImage noisy(int w, int h) {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        Random rnd = new Random(42);
+        int[] row = new int[w];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int n = rnd.nextInt(32);
+                row[x] = ((x * 255 / w + n) & 0xFF) << 16 | ((y * 255 / h + n) & 0xFF) << 8 | (n * 4);
+            }
+            img.setRGB(0, y, w, 1, row, 0, w);
+        }
+        return img;
+    }
+}
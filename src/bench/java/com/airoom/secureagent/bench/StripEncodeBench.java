@@ -0,0 +1,125 @@
+package com.airoom.secureagent.bench;
+
+import com.airoom.secureagent.steganography.ImageStegoDecoder;
+import com.airoom.secureagent.steganography.ImageStegoWithWatermarkEncoder;
+import com.airoom.secureagent.watermark.WatermarkStamp;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 초대형 이미지 strip 인코딩 벤치 (StripImageSource 경로)
+ *
+ * - 원본은 절차적으로 생성한 픽셀을 지연 DataBuffer 로 ImageIO 에 넘겨 기록 → 생성 자체도 메모리를 쓰지 않음
+ * - 인코딩 시간, 힙 최대 사용량(GC 후 풀 peak), 페이로드 디코딩 확인
+ * - 힙이 충분하면(전체 경로 2배 이상) 기존 전체 경로로 만든 기대값과 PNG 픽셀 완전 일치까지 검증
+ * - 자체 검증: 인코딩 성공 / 디코딩 일치 / (가능하면) 픽셀 일치 → 아니면 exit 1
+ *   메모리 이득은 최대 힙을 전체 경로 예상치(픽셀×8B)보다 작게 잡고 실행해 확인 (예: 20000² 에 -Xmx512m)
+ *
+ * 실행 예)  mvn -Pbench test-compile exec:exec -Dbench=StripEncodeBench -Dbench.jvm=-Xmx512m -Dbench.args="..."   (인자: png|jpeg width=20000 height=20000)
+ */
+public class StripEncodeBench {
+
+    private static final String PAYLOAD = "bench|user=bench|ts=0";
+
+    public static void main(String[] args) throws Exception {
+        String ext = args.length > 0 && args[0].toLowerCase().startsWith("j") ? "jpg" : "png";
+        int w = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        int h = args.length > 2 ? Integer.parseInt(args[2]) : 20000;
+        System.setProperty("secureagent.embed.mode", "REENCODE");          // splice 가 아니라 워터마크 경로
+
+        Path dir = Files.createTempDirectory("aidt-strip");
+        Path f = dir.resolve("huge." + ext);
+        long t0 = System.nanoTime();
+        ImageIO.write(procedural(w, h), ext.equals("jpg") ? "jpeg" : "png", f.toFile());
+        System.out.printf("[Bench] 원본 %dx%d %s %.1f MB 생성 %.1f s (최대 힙 %d MB)%n", w, h, ext.toUpperCase(),
+                Files.size(f) / 1e6, (System.nanoTime() - t0) / 1e9, Runtime.getRuntime().maxMemory() >> 20);
+
+        // 전체 경로 기대값은 힙이 충분할 때만 (원본 + INT 사본 + 비교용 디코딩)
+        long fullBytes = (long) w * h * 8;
+        boolean verifyPixels = ext.equals("png") && fullBytes * 2 < Runtime.getRuntime().maxMemory();
+        int[] expected = verifyPixels ? expected(f, w, h) : null;
+
+        resetPeaks();
+        t0 = System.nanoTime();
+        boolean ok = ImageStegoWithWatermarkEncoder.encode(f.toString(), f.toString(), PAYLOAD, "AIROOM", 0.3f);
+        double secs = (System.nanoTime() - t0) / 1e9;
+        long peak = heapPeak();
+        String decoded = ImageStegoDecoder.decode(f.toString());
+        System.out.printf("[Bench] strip 인코딩 %.1f s, 힙 peak %d MB (전체 경로 예상 %d MB), 디코딩=%s%n",
+                secs, peak >> 20, fullBytes >> 20, decoded);
+
+        boolean same = true;
+        if (expected != null) {
+            BufferedImage out = ImageIO.read(f.toFile());
+            int[] got = out.getRGB(0, 0, w, h, null, 0, w);
+            same = java.util.Arrays.equals(expected, got);
+            System.out.println("[Bench] 전체 경로와 픽셀 동일: " + same);
+        } else {
+            System.out.println("[Bench] 픽셀 비교 생략 (JPEG 또는 힙 부족)");
+        }
+
+        if (Runtime.getRuntime().maxMemory() < fullBytes) {
+            System.out.println("[Bench] 최대 힙이 전체 경로 예상치보다 작음 → 기존 경로로는 인코딩 불가한 크기");
+        }
+        boolean pass = ok && PAYLOAD.equals(decoded) && same;
+        System.out.println(pass ? "[Bench] PASS" : "[Bench] FAIL");
+        Files.deleteIfExists(f);
+        if (!pass) System.exit(1);
+    }
+
+    /** 기존 전체 경로와 같은 계산 (INT_ARGB 사본 + 같은 크기 규칙의 스탬프) */
+    private static int[] expected(Path f, int w, int h) throws Exception {
+        BufferedImage src = ImageIO.read(f.toFile());
+        BufferedImage dst = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = dst.createGraphics();
+        g.drawImage(src, 0, 0, null);
+        g.dispose();
+        float scale = Math.max(w, h) / 1000f;
+        int fontPx = Math.max(14, Math.round(40 * scale));
+        int stepX = Math.max(120, Math.round(300 * scale));
+        int stepY = Math.max(80, Math.round(200 * scale));
+        String wm = "AIROOM";
+        WatermarkStamp.apply(dst, WatermarkStamp.of(wm, new Font("Arial", Font.BOLD, fontPx),
+                new Color(255, 0, 0, Math.round(0.3f * 255)), 0.3f), stepX, stepY);
+        return dst.getRGB(0, 0, w, h, null, 0, w);
+    }
+
+    /** 픽셀을 요청받을 때 계산하는 RGB 이미지 (그라데이션 + 해시 노이즈) */
+    private static BufferedImage procedural(int w, int h) {
+        DirectColorModel cm = (DirectColorModel) ColorModel.getRGBdefault();
+        DirectColorModel rgb = new DirectColorModel(24, 0xFF0000, 0xFF00, 0xFF);
+        SampleModel sm = rgb.createCompatibleSampleModel(w, h);
+        DataBuffer db = new DataBuffer(DataBuffer.TYPE_INT, w * h) {
+            @Override public int getElem(int bank, int i) {
+                int x = i % w, y = i / w;
+                int n = (i * 0x9E3779B1) >>> 27;
+                return ((x * 255 / w + n) & 0xFF) << 16 | ((y * 255 / h + n) & 0xFF) << 8 | (n * 8);
+            }
+            @Override public void setElem(int bank, int i, int val) { throw new UnsupportedOperationException(); }
+        };
+        return new BufferedImage(rgb, Raster.createWritableRaster(sm, db, null), false, null);
+    }
+
+    private static void resetPeaks() {
+        System.gc();
+        for (MemoryPoolMXBean p : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (p.getType() == MemoryType.HEAP) p.resetPeakUsage();
+        }
+    }
+
+    /** 힙 풀별 peak 합 (풀 peak 이 동시에 일어나지 않을 수 있어 보수적인 상한) */
+    private static long heapPeak() {
+        long sum = 0;
+        for (MemoryPoolMXBean p : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (p.getType() == MemoryType.HEAP) sum += p.getPeakUsage().getUsed();
+        }
+        return sum;
+    }
+}
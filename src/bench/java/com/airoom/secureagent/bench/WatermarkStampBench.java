@@ -0,0 +1,119 @@
+package com.airoom.secureagent.bench;
+
+import com.airoom.secureagent.watermark.WatermarkStamp;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * 워터마크 렌더링 벤치: 칸마다 drawString(기존) vs 스탬프 합성(WatermarkStamp.apply)
+ *
+ * - 폰트 40 / 간격 300×200 고정, 이미지 크기로 격자 칸 수를 늘려 가며 이미지 1장당 시간 비교
+ * - stamp  : 캐시 스탬프 합성 (오버레이처럼 문구가 고정인 경우)
+ * - render : 이미지마다 래스터화 + 합성 (인코더 – 문구에 파일별 토큰이 들어가 캐시하지 않음)
+ * - 인코더와 같은 합성 조건: TYPE_INT_RGB 대상 + 색 알파 + AlphaComposite SRC_OVER
+ * - 자체 검증 → 아니면 exit 1
+ *   · 두 결과의 채널 차이 평균 ≤ MAX_MEAN_DIFF (같은 워터마크인지)
+ *   · 스탬프 래스터화는 전체 실행에서 1회 (나머지는 캐시 적중)
+ *   · 가장 큰 격자에서 스탬프·render 모두 drawString 보다 빠름
+ *
+ * 실행 예)  mvn -Pbench test-compile exec:exec -Dbench=WatermarkStampBench -Dbench.args="..."   (인자: runs=5 opacity=0.3)
+ */
+public class WatermarkStampBench {
+
+    private static final String TEXT = "AIROOM-3F9A2C";
+    private static final int FONT_PX = 40, STEP_X = 300, STEP_Y = 200;
+    private static final double MAX_MEAN_DIFF = 0.5;
+
+    public static void main(String[] args) {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        float opacity = args.length > 1 ? Float.parseFloat(args[1]) : 0.3f;
+        Font font = new Font("Arial", Font.BOLD, FONT_PX);
+        Color color = new Color(255, 0, 0, Math.round(opacity * 255));
+
+        int[][] sizes = {{600, 400}, {1500, 1000}, {3000, 2000}, {6000, 4000}, {9000, 6000}};
+        System.out.println("[Bench]   이미지      칸 수   drawString p50   stamp p50   배율   render p50   배율   평균 차이");
+        boolean similar = true;
+        double lastSpeedup = 0, lastRenderSpeedup = 0;
+        for (int[] s : sizes) {
+            int w = s[0], h = s[1];
+            int cells = ceilDiv(w, STEP_X) * ceilDiv(h, STEP_Y);
+            BufferedImage dst = gray(w, h);
+            BufferedImage ref = gray(w, h);
+            BufferedImage perImage = gray(w, h);
+
+            long legacy = median(runs, () -> {
+                Graphics2D g = prepare(ref, opacity, font, color);
+                for (int x = 0; x < w; x += STEP_X) {
+                    for (int y = 0; y < h; y += STEP_Y) {
+                        g.rotate(Math.toRadians(WatermarkStamp.ANGLE_DEG), x, y);
+                        g.drawString(TEXT, x, y);
+                        g.rotate(Math.toRadians(-WatermarkStamp.ANGLE_DEG), x, y);
+                    }
+                }
+                g.dispose();
+            });
+            long stamp = median(runs, () -> WatermarkStamp.apply(dst, WatermarkStamp.of(TEXT, font, color, opacity),
+                    STEP_X, STEP_Y));
+            long render = median(runs, () -> WatermarkStamp.apply(perImage,
+                    WatermarkStamp.render(TEXT, font, color, opacity), STEP_X, STEP_Y));
+
+            // 같은 횟수(워밍업 + runs)만큼 덧칠한 결과 비교
+            double diff = Math.max(meanDiff(ref, dst), meanDiff(ref, perImage));
+            similar &= diff <= MAX_MEAN_DIFF;
+            lastSpeedup = (double) legacy / Math.max(1, stamp);
+            lastRenderSpeedup = (double) legacy / Math.max(1, render);
+            System.out.printf("[Bench] %5dx%-5d %6d   %10.2f ms   %7.2f ms   %4.1fx   %8.2f ms   %4.1fx   %.3f%n",
+                    w, h, cells, legacy / 1e6, stamp / 1e6, lastSpeedup, render / 1e6, lastRenderSpeedup, diff);
+        }
+
+        long renders = ((Number) WatermarkStamp.stats().get("renders")).longValue();
+        System.out.println("[Bench] 스탬프 캐시 : " + WatermarkStamp.stats()
+                + ", 칸당 합성 픽셀 " + WatermarkStamp.of(TEXT, font, color, opacity).coverage());
+        boolean ok = similar && renders == 1 && lastSpeedup > 1 && lastRenderSpeedup > 1;
+        System.out.println(ok ? "[Bench] PASS" : "[Bench] FAIL (유사=" + similar + ", 스탬프 렌더 " + renders
+                + "회, 배율 " + String.format("%.2f / %.2f", lastSpeedup, lastRenderSpeedup) + ")");
+        if (!ok) System.exit(1);
+    }
+
+    private static Graphics2D prepare(BufferedImage dst, float opacity, Font font, Color color) {
+        Graphics2D g = dst.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, opacity));
+        g.setFont(font);
+        g.setColor(color);
+        return g;
+    }
+
+    private static BufferedImage gray(int w, int h) {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        Arrays.fill(((java.awt.image.DataBufferInt) img.getRaster().getDataBuffer()).getData(), 0x808080);
+        return img;
+    }
+
+    private static double meanDiff(BufferedImage a, BufferedImage b) {
+        int[] pa = ((java.awt.image.DataBufferInt) a.getRaster().getDataBuffer()).getData();
+        int[] pb = ((java.awt.image.DataBufferInt) b.getRaster().getDataBuffer()).getData();
+        long sum = 0;
+        for (int i = 0; i < pa.length; i++) {
+            for (int sh = 0; sh < 24; sh += 8) sum += Math.abs((pa[i] >> sh & 0xFF) - (pb[i] >> sh & 0xFF));
+        }
+        return sum / (pa.length * 3.0);
+    }
+
+    private static int ceilDiv(int a, int b) { return (a + b - 1) / b; }
+
+    private static long median(int runs, Runnable r) {
+        r.run();                                               // 워밍업 (글리프 / 타일 캐시)
+        long[] t = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long t0 = System.nanoTime();
+            r.run();
+            t[i] = System.nanoTime() - t0;
+        }
+        Arrays.sort(t);
+        return t[runs / 2];
+    }
+}
@@ -13,6 +13,9 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 
 import com.airoom.secureagent.ui.TrayBootstrap;
+import com.airoom.secureagent.util.FileFormat;
+import com.airoom.secureagent.util.FormatSniffer;
+import com.airoom.secureagent.util.ImageCodecs;
 import com.airoom.secureagent.util.SelfIntegrity;
 import com.airoom.secureagent.util.SingleInstance;
 import org.apache.pdfbox.pdmodel.PDDocument;
@@ -89,6 +92,9 @@ public class SecureAgentMain {
         try {
             System.out.println("[SecureAgent] 보안 에이전트가 시작되었습니다. TEST_MODE=" + TEST_MODE);
 
+            // PNG/JPEG 코덱 예열 (플러그인 스캔·클래스 로딩을 첫 파일 전에 백그라운드로)
+            ImageCodecs.warmUp();
+
             /* 0) 단말 식별자 수집 & 콘솔 출력 (단말 식별자 검증) */
             DeviceFingerprint fp = DeviceFingerprintCollector.collect();
             DeviceFingerprintCollector.print(fp);
@@ -189,7 +195,17 @@ public class SecureAgentMain {
                 return t;
             });
             fsWatcherES.submit(() -> {
-                try { new GlobalWatcher(watchRoots).run(); }
+                try {
+                    GlobalWatcher watcher = new GlobalWatcher(watchRoots);
+                    if (!TEST_MODE) {
+                        // 운영: 실행 중 새로 연결된 드라이브(USB, 네트워크 드라이브)도 자동 감시
+                        watcher.enableRootHotplug(root -> !root.toString().equalsIgnoreCase("C:\\"));
+                    }
+                    // 에이전트가 꺼져 있던 동안 받은 파일도 저우선순위로 태깅
+                    watcher.enableCatchUp();
+                    StatusServer.registerWatcherStats(watcher::stats); // GET /watcher
+                    watcher.run();
+                }
                 catch (Exception e) { e.printStackTrace(); }
             });
 
@@ -232,12 +248,16 @@ public class SecureAgentMain {
 
     /* === 파일 하나 즉시 복호화(기존 유지) === */
     public static String decodeOnce(Path p) {
-        String n = p.toString().toLowerCase();
+        return decodeOnce(p, FormatSniffer.sniff(p));
+    }
+
+    /** 형식을 이미 판별한 호출자용 (StegoDispatcher 보고 단계 등) */
+    public static String decodeOnce(Path p, FileFormat fmt) {
         try {
-            if (n.endsWith(".pdf"))
-                return PdfStegoDecoder.extract(p.toString());
-            else if (n.endsWith(".png") || n.matches(".*\\.(jpe?g)$"))
-                return ImageStegoDecoder.decode(p.toString());
+            if (fmt.isPdf())
+                return PdfStegoDecoder.extract(p.toString(), fmt);
+            else if (fmt.isImage())
+                return ImageStegoDecoder.decode(p.toString(), fmt);
             else
                 return "지원되지 않는 형식";
         } catch (Exception e) {
@@ -1,5 +1,9 @@
 package com.airoom.secureagent.monitor;
 
+import com.airoom.secureagent.util.FileFormat;
+import com.airoom.secureagent.util.FormatSniffer;
+import com.airoom.secureagent.util.ImageCodecs;
+
 import javax.imageio.*;
 import javax.imageio.metadata.IIOMetadata;
 import javax.imageio.stream.ImageInputStream;
@@ -10,17 +14,23 @@ public class AlreadyTaggedChecker {
     private static final String KEYWORD = "StegoPayload";
 
     public static boolean isTagged(Path p) {
-        String lower = p.toString().toLowerCase();
+        return isTagged(p, FormatSniffer.sniff(p));
+    }
+
+    /** 판별된 형식의 풀 리더만 사용 (ImageIO 전체 리더 probe · 인스턴스 생성 생략) */
+    public static boolean isTagged(Path p, FileFormat fmt) {
         try {
-            if (lower.endsWith(".png") || lower.matches(".*\\.(jpe?g)$")) {
+            if (fmt.isImage()) {
+                ImageReader r = ImageCodecs.reader(fmt);
                 try (ImageInputStream iis = ImageIO.createImageInputStream(p.toFile())) {
-                    ImageReader r = ImageIO.getImageReaders(iis).next();
                     r.setInput(iis, true);
                     IIOMetadata meta = r.getImageMetadata(0);
                     return meta.getAsTree(meta.getNativeMetadataFormatName())
                             .toString().contains(KEYWORD);
+                } finally {
+                    ImageCodecs.release(fmt, r);
                 }
-            } else if (lower.endsWith(".pdf")) {
+            } else if (fmt.isPdf()) {
                 try (var doc = org.apache.pdfbox.pdmodel.PDDocument.load(p.toFile())) {
                     return doc.getDocumentInformation()
                             .getCustomMetadataValue("X-Doc-Tracking-Key") != null;
@@ -0,0 +1,256 @@
+package com.airoom.secureagent.monitor;
+
+import com.airoom.secureagent.log.LogManager;
+import com.airoom.secureagent.util.FileFormat;
+import com.airoom.secureagent.util.FormatSniffer;
+import com.airoom.secureagent.util.PathClassifier;
+import com.airoom.secureagent.util.SelfWriteLedger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 시작 시 밀린 파일 태깅 (에이전트가 꺼져 있던 동안 / 디렉터리 등록 전에 생긴 파일)
+ *
+ * - 감시 루트를 별도 fork-join 풀(기본 코어/4)로 병렬 순회 → 실시간 등록 순회와 코어를 나눠 씀
+ * - 후보 : PNG/JPEG/PDF 확장자 + (mtime 또는 생성 시각) ≥ 마지막으로 감시가 돌던 시각
+ *          + TaggedFileIndex 에 같은 크기·mtime 기록 없음 (파일을 열지 않고 판단)
+ * - 마지막 감시 시각은 인덱스 디렉터리의 catchup.state 에 주기적으로 기록
+ *   · 순회가 끝나기 전에 종료되면 이번 시작 기준 시각을 그대로 남김 → 다음 시작 때 같은 구간을 다시 훑음
+ *   · 처음 실행이면 최근 firstRunDays 일만
+ * - 투입 : 단일 저우선순위 스레드가 초당 rate 개 이하로 StegoDispatcher 에 직접 전달,
+ *          실시간 파이프라인의 분류·삽입 단계가 비어 있을 때만 (실시간 이벤트와 경쟁하지 않음)
+ * - 진행 상황은 PROGRESS_MS 마다 한 줄 + 완료 시 처리량 한 줄, stats() 로 /watcher 에 노출
+ *
+ * 튜닝: -Dsecureagent.catchup.enabled=false, -Dsecureagent.catchup.rate=20 (files/s),
+ *       -Dsecureagent.catchup.threads=N, -Dsecureagent.catchup.firstRunDays=7
+ */
+public class CatchUpScanner {
+
+    private static final int CORES = Math.max(1, Runtime.getRuntime().availableProcessors());
+    private static final int RATE = Math.max(1, Integer.getInteger("secureagent.catchup.rate", 20));
+    private static final int THREADS = Integer.getInteger("secureagent.catchup.threads", Math.max(1, CORES / 4));
+    private static final int FIRST_RUN_DAYS = Integer.getInteger("secureagent.catchup.firstRunDays", 7);
+    private static final int QUEUE_CAP = 10_000;
+    private static final long HEARTBEAT_MS = 60_000;
+    private static final long PROGRESS_MS = 10_000;
+    private static final long IDLE_POLL_MS = 250;
+    private static final String STATE_FILE = "catchup.state";
+
+    /** 양보 대상 (실시간 파이프라인) */
+    private final TaggingPipeline live;
+    private final ParallelTreeRegistrar walker = new ParallelTreeRegistrar(THREADS, "catchup-walk", "[CatchUp] 순회");
+    /** 순회(생산) → 투입 스레드(소비). 가득 차면 순회 워커가 기다림 = 순회 속도도 투입 속도에 맞춰짐 */
+    private final BlockingQueue<Path> queue = new LinkedBlockingQueue<>(QUEUE_CAP);
+    private final Path stateFile = TaggedFileIndex.defaultDir().resolve(STATE_FILE);
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "catchup-timer"); t.setDaemon(true); return t;
+    });
+    private final Thread feeder = new Thread(this::feedLoop, "catchup-feed");
+
+    private final AtomicLong files      = new AtomicLong();
+    private final AtomicLong candidates = new AtomicLong();
+    private final AtomicLong fed        = new AtomicLong();
+    private final AtomicLong tagged     = new AtomicLong();
+    private final AtomicLong yieldedMs  = new AtomicLong();
+    /** 아직 순회 중인 루트 수 / 투입 스레드가 처리 중인 파일 수 */
+    private final AtomicInteger walking = new AtomicInteger();
+    private final AtomicInteger feeding = new AtomicInteger();
+
+    /** 이번 실행의 기준 시각(이 시각 이후 변경된 파일만 후보) */
+    private long since;
+    private long startedAt;
+    private volatile boolean running;
+    /** 후보를 모두 처리함 → 이후 상태 기록은 현재 시각 */
+    private volatile boolean caughtUp;
+
+    public CatchUpScanner(TaggingPipeline live) {
+        this.live = live;
+        feeder.setDaemon(true);
+        feeder.setPriority(Thread.MIN_PRIORITY);
+    }
+
+    public static boolean enabled() {
+        return !"false".equalsIgnoreCase(System.getProperty("secureagent.catchup.enabled"));
+    }
+
+    /** 루트 하나 훑기 (시작 시 루트마다 + hot-plug 로 새로 붙은 루트) */
+    public synchronized void scan(Path root) {
+        if (!running) start();
+        caughtUp = false;
+        walking.incrementAndGet();
+        walker.walk(root, true, new ParallelTreeRegistrar.Visitor() {
+            @Override public boolean onDirectory(Path dir) {
+                return !PathClassifier.isIgnored(dir) || dir.equals(root);
+            }
+            @Override public void onFile(Path f, BasicFileAttributes a) { consider(f, a); }
+        }).whenComplete((ok, err) -> {
+            if (err != null) LogManager.writeLog("[CatchUp] 순회 실패 → " + root + " : " + err);
+            if (walking.decrementAndGet() == 0) onWalkDone();
+        });
+    }
+
+    public synchronized void shutdown() {
+        if (!running) return;
+        running = false;
+        timer.shutdownNow();
+        walker.shutdown();
+        feeder.interrupt();
+        saveState();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("since", since);
+        m.put("walking", walking.get());
+        m.put("dirs", walker.directories());
+        m.put("files", files.get());
+        m.put("candidates", candidates.get());
+        m.put("queued", queue.size());
+        m.put("fed", fed.get());
+        m.put("tagged", tagged.get());
+        m.put("yieldedMs", yieldedMs.get());
+        m.put("filesPerSec", Math.round(perSec(fed.get()) * 10) / 10.0);
+        return m;
+    }
+
+    /* ---------- walk ---------- */
+
+    private void start() {
+        running = true;
+        startedAt = System.currentTimeMillis();
+        long last = loadState();
+        since = last > 0 ? last - HEARTBEAT_MS : startedAt - TimeUnit.DAYS.toMillis(FIRST_RUN_DAYS);
+        saveState();
+        feeder.start();
+        timer.scheduleWithFixedDelay(this::saveState, HEARTBEAT_MS, HEARTBEAT_MS, TimeUnit.MILLISECONDS);
+        timer.scheduleWithFixedDelay(this::logProgress, PROGRESS_MS, PROGRESS_MS, TimeUnit.MILLISECONDS);
+        System.out.println("[CatchUp] 시작: since=" + java.time.Instant.ofEpochMilli(since)
+                + " threads=" + THREADS + " rate=" + RATE + "/s");
+    }
+
+    /** fork-join 워커에서 호출: 인덱스 조회까지만 하고 투입 큐로 */
+    private void consider(Path f, BasicFileAttributes a) {
+        files.incrementAndGet();
+        if (a.size() <= 0 || !PathClassifier.isTarget(f)) return;
+        long mtime = a.lastModifiedTime().toMillis();
+        // 압축 해제/복사는 mtime 을 보존하므로 생성 시각도 함께 본다
+        if (mtime < since && a.creationTime().toMillis() < since) return;
+        if (SelfWriteLedger.matches(f, a)) return;
+        TaggedFileIndex index = TaggedFileIndex.shared();
+        if (index != null && index.lookup(f, a.size(), mtime) != TaggedFileIndex.State.UNKNOWN) return;
+        candidates.incrementAndGet();
+        try {
+            queue.put(f);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void onWalkDone() {
+        System.out.println("[CatchUp] 순회 완료: dirs=" + walker.directories() + " files=" + files.get()
+                + " candidates=" + candidates.get() + " (" + (System.currentTimeMillis() - startedAt) + " ms)");
+        if (queue.isEmpty() && feeding.get() == 0) finish();
+    }
+
+    /* ---------- feed ---------- */
+
+    private void feedLoop() {
+        long interval = TimeUnit.SECONDS.toNanos(1) / RATE;
+        long next = System.nanoTime();
+        try {
+            while (running) {
+                Path f = queue.take();
+                feeding.incrementAndGet();
+                while (!live.isIdle()) {                 // 실시간 이벤트 우선
+                    Thread.sleep(IDLE_POLL_MS);
+                    yieldedMs.addAndGet(IDLE_POLL_MS);
+                }
+                long wait = next - System.nanoTime();
+                if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+                next = Math.max(next, System.nanoTime() - interval) + interval;
+                feed(f);
+                feeding.decrementAndGet();
+                if (walking.get() == 0 && queue.isEmpty()) finish();
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** 한 파일: 형식 판별 → StegoDispatcher (인덱스·이미 태깅 확인은 embed 안에서) */
+    private void feed(Path f) {
+        fed.incrementAndGet();
+        try {
+            FileFormat fmt = FormatSniffer.sniff(f);
+            if (fmt == FileFormat.NONE) {
+                TaggedFileIndex index = TaggedFileIndex.shared();
+                if (index != null) index.record(f, TaggedFileIndex.State.NOT_TAGGABLE);
+                return;
+            }
+            StegoDispatcher.EmbedResult r = StegoDispatcher.embed(f, fmt);
+            if (r == null) return;
+            StegoDispatcher.report(r);
+            if (r.ok()) tagged.incrementAndGet();
+        } catch (Exception e) {
+            LogManager.writeLog("[CatchUp] 처리 실패 → " + f + " : " + e);
+        }
+    }
+
+    private synchronized void finish() {
+        if (caughtUp) return;
+        caughtUp = true;
+        System.out.println("[CatchUp] 완료: candidates=" + candidates.get() + " tagged=" + tagged.get()
+                + " (" + Math.round(perSec(fed.get()) * 10) / 10.0 + " files/s, 양보 " + yieldedMs.get() + " ms)");
+        saveState();
+    }
+
+    private void logProgress() {
+        if (caughtUp) return;
+        System.out.println("[CatchUp] 진행: dirs=" + walker.directories() + " files=" + files.get()
+                + " candidates=" + candidates.get() + " fed=" + fed.get() + " tagged=" + tagged.get()
+                + " queued=" + queue.size() + " (" + Math.round(perSec(fed.get()) * 10) / 10.0 + " files/s)");
+    }
+
+    private double perSec(long n) {
+        long ms = Math.max(1, System.currentTimeMillis() - startedAt);
+        return n * 1000.0 / ms;
+    }
+
+    /* ---------- state ---------- */
+
+    /**
+     * 마지막 감시 시각 기록 (임시 파일 + rename)
+     * - 밀린 파일이 남아 있으면 이번 기준 시각을 유지 → 다음 시작 때 처리 못 한 구간부터 다시
+     */
+    private void saveState() {
+        long lastSeen = caughtUp ? System.currentTimeMillis() : since + HEARTBEAT_MS;
+        try {
+            Files.createDirectories(stateFile.getParent());
+            Path tmp = stateFile.resolveSibling(STATE_FILE + ".tmp");
+            Files.writeString(tmp, "lastSeen=" + lastSeen + "\n", StandardCharsets.UTF_8);
+            Files.move(tmp, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LogManager.writeLog("[CatchUp] 상태 기록 실패 : " + e);
+        }
+    }
+
+    private long loadState() {
+        try {
+            for (String line : Files.readAllLines(stateFile, StandardCharsets.UTF_8)) {
+                if (line.startsWith("lastSeen=")) return Long.parseLong(line.substring(9).trim());
+            }
+        } catch (IOException | NumberFormatException ignore) { }
+        return 0;
+    }
+}
@@ -0,0 +1,220 @@
+package com.airoom.secureagent.monitor;
+
+import com.airoom.secureagent.log.LogManager;
+import com.airoom.secureagent.util.FileFormat;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * StegoDispatcher 삽입 레인 (크기·폴더 기준 스케줄링)
+ *
+ * 300쪽 PDF 재작성이 삽입 워커를 모두 잡고 있어도 50KB 스크린샷은 1초 안에 태깅되도록
+ * 작은 이미지와 큰 파일의 워커·큐를 나눈다.
+ *
+ * - FAST  : 작은 이미지 / 작은 PDF (기본 이미지 예상 힙 ≤ 128MB ≈ 16MP, PDF ≤ 1MB), 워커 max(2, 코어/2)
+ *           이미지는 파일 크기가 아니라 헤더 해상도 기반 작업량(EncodeAdmission.Cost.work)으로 판단
+ * - HEAVY : 그 외 큰 PDF·큰 이미지, 워커 max(1, 코어/4) → 큰 파일끼리만 경쟁
+ * - hot 폴더(기본 ~/Downloads, ~/Desktop) 파일은 각 레인 큐의 앞쪽(hot 큐)에서 먼저 꺼냄
+ * - 레인 큐가 가득 차면 레인별 넘침 대기열(spill)에 순서대로 보관, 워커가 큐에서 하나 꺼낼 때마다 한 건씩 옮김
+ *   → 인코딩은 항상 레인 워커에서만 실행 (호출자인 stego-lock-wait · tag-classify · fs-stability 스레드는
+ *     큰 PDF 재작성에 묶이지 않음). spill 도 SPILL_MAX 를 넘으면 submit 이 false (호출자가 FAILED 처리)
+ *
+ * 튜닝: -Dsecureagent.lane.fast.workers / .queue, -Dsecureagent.lane.heavy.workers / .queue,
+ *       -Dsecureagent.lane.spillMax=100000,
+ *       -Dsecureagent.lane.fastImageMb=128, -Dsecureagent.lane.fastPdfBytes=1048576,
+ *       -Dsecureagent.lane.hot="C:\\Users\\me\\Downloads;D:\\inbox"
+ */
+final class DispatchLanes {
+
+    enum Lane { FAST, HEAVY }
+
+    private static final int CORES = Math.max(1, Runtime.getRuntime().availableProcessors());
+    private static final long FAST_IMAGE_COST  = Long.getLong("secureagent.lane.fastImageMb", 128) << 20;
+    private static final long FAST_PDF_BYTES   = Long.getLong("secureagent.lane.fastPdfBytes", 1L << 20);
+    private static final int  SPILL_MAX        = Integer.getInteger("secureagent.lane.spillMax", 100_000);
+
+    private final Worker fast = new Worker("stego-fast",
+            Integer.getInteger("secureagent.lane.fast.workers", Math.max(2, CORES / 2)),
+            Integer.getInteger("secureagent.lane.fast.queue", 1024));
+    private final Worker heavy = new Worker("stego-heavy",
+            Integer.getInteger("secureagent.lane.heavy.workers", Math.max(1, CORES / 4)),
+            Integer.getInteger("secureagent.lane.heavy.queue", 64));
+    private final List<Path> hot = parseHot(System.getProperty("secureagent.lane.hot"));
+
+    /** @param cost 예상 작업량 (EncodeAdmission.Cost.work, 이미지 판단에 사용) */
+    Lane laneFor(FileFormat format, long size, long cost) {
+        if (format.isPdf()) return size <= FAST_PDF_BYTES ? Lane.FAST : Lane.HEAVY;
+        return cost <= FAST_IMAGE_COST ? Lane.FAST : Lane.HEAVY;
+    }
+
+    boolean isHot(Path f) {
+        Path abs = f.toAbsolutePath();
+        for (Path h : hot) if (abs.startsWith(h)) return true;
+        return false;
+    }
+
+    /**
+     * laneFor 로 고른 레인에 투입 (현재 스레드에서는 절대 실행하지 않음)
+     * @return spill 까지 가득 차 받지 못했으면 false
+     */
+    boolean submit(Path f, Lane lane, Runnable task) {
+        Worker w = lane == Lane.FAST ? fast : heavy;
+        return w.offer(task, isHot(f));
+    }
+
+    /** 두 레인 모두 대기·실행 중인 작업이 없는지 (CatchUpScanner 양보 판단) */
+    boolean isIdle() {
+        return fast.isIdle() && heavy.isIdle();
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("fast", fast.stats());
+        m.put("heavy", heavy.stats());
+        m.put("hot", hot.toString());
+        return m;
+    }
+
+    /** "경로;경로" 형식, 비어 있으면 사용자 Downloads / Desktop */
+    private static List<Path> parseHot(String spec) {
+        List<Path> out = new ArrayList<>();
+        if (spec == null || spec.isBlank()) {
+            String home = System.getProperty("user.home");
+            out.add(Paths.get(home, "Downloads").toAbsolutePath());
+            out.add(Paths.get(home, "Desktop").toAbsolutePath());
+            return out;
+        }
+        for (String s : spec.split(";")) {
+            if (s.isBlank()) continue;
+            try { out.add(Paths.get(s.trim()).toAbsolutePath()); }
+            catch (Exception e) { LogManager.writeLog("[Lanes] hot 폴더 무시 → " + s + " : " + e); }
+        }
+        return out;
+    }
+
+    /** 레인 하나: 고정 워커 + hot / normal 두 단계 bounded 큐 + 넘침 대기열 */
+    private static final class Worker {
+        final String name;
+        final int capacity;
+        final ReentrantLock lock = new ReentrantLock();
+        final Condition notEmpty = lock.newCondition();
+        final ArrayDeque<Task> hotQ = new ArrayDeque<>();
+        final ArrayDeque<Task> normalQ = new ArrayDeque<>();
+        /** 큐가 가득 찼을 때 들어온 작업 (도착 순서, 큐에 자리가 나면 한 건씩 옮김) */
+        final ArrayDeque<Task> spill = new ArrayDeque<>();
+        int active;
+
+        final AtomicLong submitted  = new AtomicLong();
+        final AtomicLong hotCount   = new AtomicLong();
+        final AtomicLong completed  = new AtomicLong();
+        final AtomicLong spilled    = new AtomicLong();
+        final AtomicLong rejected   = new AtomicLong();
+        final AtomicLong waitNanos  = new AtomicLong();
+        final AtomicLong maxWaitNanos = new AtomicLong();
+
+        record Task(Runnable body, boolean hot, long enqueuedAt) {}
+
+        Worker(String name, int workers, int capacity) {
+            this.name = name;
+            this.capacity = Math.max(1, capacity);
+            for (int i = 1; i <= Math.max(1, workers); i++) {
+                Thread t = new Thread(this::loop, name + "-" + i);
+                t.setDaemon(true);
+                t.start();
+            }
+        }
+
+        boolean offer(Runnable body, boolean hot) {
+            lock.lock();
+            try {
+                Task t = new Task(body, hot, System.nanoTime());
+                if (hotQ.size() + normalQ.size() < capacity) {
+                    (hot ? hotQ : normalQ).addLast(t);
+                } else if (spill.size() < SPILL_MAX) {
+                    spill.addLast(t);
+                    spilled.incrementAndGet();
+                } else {
+                    rejected.incrementAndGet();
+                    return false;
+                }
+                submitted.incrementAndGet();
+                if (hot) hotCount.incrementAndGet();
+                notEmpty.signal();
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean isIdle() {
+            lock.lock();
+            try { return active == 0 && hotQ.isEmpty() && normalQ.isEmpty() && spill.isEmpty(); }
+            finally { lock.unlock(); }
+        }
+
+        private void loop() {
+            while (true) {
+                Task t;
+                lock.lock();
+                try {
+                    while (hotQ.isEmpty() && normalQ.isEmpty()) notEmpty.await();
+                    t = hotQ.isEmpty() ? normalQ.pollFirst() : hotQ.pollFirst();
+                    Task next = spill.pollFirst();                  // 빈 자리 하나 → 넘친 작업 하나
+                    if (next != null) (next.hot() ? hotQ : normalQ).addLast(next);
+                    active++;
+                } catch (InterruptedException ie) {
+                    return;
+                } finally {
+                    lock.unlock();
+                }
+                long waited = System.nanoTime() - t.enqueuedAt();
+                waitNanos.addAndGet(waited);
+                maxWaitNanos.accumulateAndGet(waited, Math::max);
+                try {
+                    run(t.body());
+                } finally {
+                    lock.lock();
+                    try { active--; } finally { lock.unlock(); }
+                }
+            }
+        }
+
+        void run(Runnable body) {
+            try { body.run(); }
+            catch (Throwable e) { LogManager.writeLog("[Lanes] " + name + " 예외 : " + e); }
+            finally { completed.incrementAndGet(); }
+        }
+
+        Map<String, Object> stats() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            lock.lock();
+            try {
+                m.put("queuedHot", hotQ.size());
+                m.put("queued", normalQ.size());
+                m.put("queuedSpill", spill.size());
+                m.put("active", active);
+            } finally {
+                lock.unlock();
+            }
+            long n = Math.max(1, submitted.get());
+            m.put("submitted", submitted.get());
+            m.put("hot", hotCount.get());
+            m.put("completed", completed.get());
+            m.put("spilled", spilled.get());
+            m.put("rejected", rejected.get());
+            m.put("avgWaitMs", TimeUnit.NANOSECONDS.toMillis(waitNanos.get() / n));
+            m.put("maxWaitMs", TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+            return m;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.airoom.secureagent.monitor;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * 브라우저 다운로드 완료(임시 파일 → 최종 이름 rename) 감지기
+ *
+ * - Chrome/Edge : "a.pdf.crdownload" 또는 "Unconfirmed 123456.crdownload" → "a.pdf"
+ * - Firefox     : "a.pdf.part" → "a.pdf"
+ * - 기타        : "a.pdf.tmp" → "a.pdf"
+ *
+ * rename 은 이벤트 소스에서 DELETE(임시) → CREATE(최종) 순서로 들어온다.
+ * 임시 파일이 사라진 직후 같은 폴더에 최종 파일이 CREATE 되면 이미 다 쓰인 파일이므로
+ * 안정화 대기 없이 바로 분류 단계로 보낼 수 있다. 그 외 writer 는 기존 StabilityTracker 경로.
+ *
+ * Chrome 의 "Unconfirmed NNN.crdownload" 는 최종 이름과 짝을 지을 수 없으므로
+ * 마지막으로 본 임시 파일 크기와 최종 파일 크기가 같을 때만 rename 으로 본다
+ * (같은 폴더에서 동시에 만들어지는 다른 파일이 아직 쓰이는 중에 안정화를 건너뛰지 않도록).
+ *
+ * 우리 인코더가 쓰는 "aidt_*.tmp" 는 임시 파일로 보지 않는다(자기 쓰기).
+ */
+public class DownloadRenameDetector {
+
+    /** 임시 파일 삭제 → 최종 CREATE 사이 허용 간격 */
+    private static final long RENAME_WINDOW_MS = Long.getLong("secureagent.rename.windowMs", 1500L);
+    private static final String[] TEMP_SUFFIXES = {".crdownload", ".part", ".tmp"};
+    private static final String SELF_TEMP_PREFIX = "aidt_";
+    /** 최종 이름을 정하기 전 Chrome 임시 이름의 본체 ("Unconfirmed 123456") */
+    private static final Pattern CHROME_UNCONFIRMED = Pattern.compile("Unconfirmed \\d+", Pattern.CASE_INSENSITIVE);
+    /** 크기 기록 상한 (DELETE 를 놓친 항목이 쌓이지 않도록) */
+    private static final int MAX_TRACKED_SIZES = 256;
+
+    /** 폴더 → 가장 최근에 사라진 임시 파일 */
+    private final Map<Path, Vanished> vanished = new ConcurrentHashMap<>();
+    /** "Unconfirmed NNN.crdownload" → 마지막으로 본 크기 */
+    private final Map<Path, Long> unconfirmedSizes = new ConcurrentHashMap<>();
+
+    /** size: Chrome "Unconfirmed" 임시 파일의 마지막 크기 (그 외 / 모름 = -1) */
+    private record Vanished(String stem, long size, long at) {}
+
+    /**
+     * 임시 파일 이벤트면 기록하고 true (→ 파이프라인에 넣지 않음)
+     */
+    public boolean observeTemp(FileEvent.Kind kind, Path f) {
+        Path name = f.getFileName();
+        if (name == null) return false;
+        String n = name.toString();
+        String lower = n.toLowerCase();
+        if (lower.startsWith(SELF_TEMP_PREFIX)) return lower.endsWith(".tmp");
+
+        for (String sfx : TEMP_SUFFIXES) {
+            if (lower.endsWith(sfx)) {
+                String stem = n.substring(0, n.length() - sfx.length());
+                boolean unconfirmed = sfx.equals(".crdownload") && CHROME_UNCONFIRMED.matcher(stem).matches();
+                if (kind == FileEvent.Kind.DELETE) {
+                    Long size = unconfirmed ? unconfirmedSizes.remove(f) : null;
+                    if (f.getParent() != null) {
+                        vanished.put(f.getParent(),
+                                new Vanished(stem, size != null ? size : -1L, System.currentTimeMillis()));
+                    }
+                } else if (unconfirmed) {
+                    // 쓰기마다 MODIFY 가 오므로 마지막 값 = rename 직전 크기
+                    long size = sizeOf(f);
+                    if (size > 0) {
+                        if (unconfirmedSizes.size() >= MAX_TRACKED_SIZES) unconfirmedSizes.clear();
+                        unconfirmedSizes.put(f, size);
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 최종 이름 CREATE 가 방금 사라진 임시 파일의 rename 결과로 보이면 true (기록 소비)
+     * - 이름이 일치("a.pdf.crdownload" → "a.pdf")하거나
+     * - Chrome 의 "Unconfirmed NNN.crdownload" 가 직전에 사라졌고 최종 파일 크기가 그 임시 파일과 같은 경우
+     */
+    public boolean consumeRename(Path f) {
+        Path dir = f.getParent();
+        if (dir == null) return false;
+        Vanished v = vanished.get(dir);
+        if (v == null) return false;
+        if (System.currentTimeMillis() - v.at() > RENAME_WINDOW_MS) {
+            vanished.remove(dir, v);
+            return false;
+        }
+        String name = f.getFileName().toString();
+        boolean match = v.stem().equalsIgnoreCase(name)
+                || (v.size() > 0 && sizeOf(f) == v.size());
+        if (match) vanished.remove(dir, v);
+        return match;
+    }
+
+    private static long sizeOf(Path f) {
+        try { return Files.size(f); }
+        catch (Exception e) { return -1L; }
+    }
+}
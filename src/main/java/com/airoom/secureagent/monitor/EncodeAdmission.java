@@ -0,0 +1,191 @@
+package com.airoom.secureagent.monitor;
+
+import com.airoom.secureagent.log.LogManager;
+import com.airoom.secureagent.steganography.MetadataSplicer;
+import com.airoom.secureagent.steganography.StripImageSource;
+import com.airoom.secureagent.util.FileFormat;
+import com.airoom.secureagent.util.ImageHeader;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 삽입 작업 메모리 예산 (동시 인코딩으로 인한 OOM 방지)
+ *
+ * 이미지 인코더는 원본 BufferedImage + 워터마크용 INT_(A)RGB 사본을 동시에 들고 있어 픽셀당 약 8B
+ * (100MP 스캔 한 장 ≈ 800MB). 여러 장이 레인 워커에서 동시에 돌면 에이전트가 죽는다.
+ *
+ * - estimate : 이미지 = 헤더의 가로×세로(픽셀 디코딩 없음) × BYTES_PER_PIXEL + 고정 오버헤드
+ *              PDF   = 파일 크기 × PDF_FACTOR + 고정 오버헤드 (PDFBox 는 문서 전체를 읽어 들임)
+ *              헤더를 못 읽으면 파일 크기 기반으로 보수적으로
+ *              메타데이터 splice 로 처리될 파일은 픽셀을 읽지 않으므로 고정 오버헤드만
+ *              초대형 이미지(StripImageSource 경로)는 힙은 strip 크기, 작업량은 전체 픽셀 기준
+ *              → heap 은 예산 판단, work 는 레인 판단(DispatchLanes)에 사용
+ *              파일당 한 번만 계산해 레인 선택 · acquire 까지 그대로 넘김 (재시도 때만 다시)
+ * - acquire  : 사용 중 합계 + 비용 ≤ 예산일 때만 통과, 아니면 반납될 때까지 대기 (레인 워커에서 블로킹)
+ *   · 예산 중 fastReserve 는 FAST 레인 전용 – HEAVY 작업은 나머지(heavy 몫)만 사용
+ *     → 300쪽 PDF 가 예산을 잡고 있어도 스크린샷은 기다리지 않음
+ *   · heavy 몫보다 큰 작업은 heavy 몫 전체를 잡고 단독 실행 (다른 HEAVY 작업이 모두 빠질 때까지 기다림)
+ *   · 큰 작업이 오래 기다리면(STARVE_MS) 새로 오는 HEAVY 작업을 멈춰 세워 자리를 만들어 줌
+ *     (FAST 작업은 자기 몫 안에서는 이 예약과 상관없이 통과)
+ * - 예산 기본값 : 최대 힙의 40%, FAST 전용 몫 : 예산의 1/4
+ *
+ * 튜닝: -Dsecureagent.encode.heapBudgetMb=N, -Dsecureagent.encode.fastReserveMb=N
+ */
+final class EncodeAdmission {
+
+    static final long BYTES_PER_PIXEL = 8;
+    private static final long OVERHEAD = 4L << 20;
+    private static final long PDF_FACTOR = 4;
+    private static final long STARVE_MS = 2_000;
+
+    private final long budget;
+    /** FAST 레인 전용 몫 (HEAVY 는 budget - fastReserve 까지만) */
+    private final long fastReserve;
+    private long used, heavyUsed;
+    private long peak;
+    /** 오래 기다린 큰 HEAVY 작업과 그 비용 – 다른 HEAVY 작업은 이 몫을 남겨 두고 들어와야 함 */
+    private Object reservedBy;
+    private long reserved;
+
+    private long admitted, waited, oversized, waitNanos;
+
+    EncodeAdmission() {
+        this(Long.getLong("secureagent.encode.heapBudgetMb", Runtime.getRuntime().maxMemory() * 2 / 5 >> 20) << 20);
+    }
+
+    EncodeAdmission(long budgetBytes) {
+        this(budgetBytes, Long.getLong("secureagent.encode.fastReserveMb", -1L));
+    }
+
+    /** @param fastReserveMb FAST 전용 몫, 음수면 예산의 1/4 (최대 예산의 절반) */
+    EncodeAdmission(long budgetBytes, long fastReserveMb) {
+        this.budget = Math.max(64L << 20, budgetBytes);
+        long r = fastReserveMb < 0 ? budget / 4 : fastReserveMb << 20;
+        this.fastReserve = Math.min(budget / 2, r);
+    }
+
+    /**
+     * 작업 하나의 예상 비용 (byte)
+     * @param heap  동시에 들고 있을 힙
+     * @param work  기존 전체 디코딩 경로 기준 크기 (처리 시간 비례 → 레인 선택)
+     * @param bytes 추정 시점의 파일 크기 (PDF 레인 선택)
+     */
+    record Cost(long heap, long work, long bytes) {}
+
+    Cost estimate(Path f, FileFormat format) {
+        long size;
+        try { size = Files.size(f); } catch (Exception e) { size = 0; }
+        if (MetadataSplicer.applies(format, StegoDispatcher.getEmbedOpacity())) return new Cost(OVERHEAD, OVERHEAD, size);
+        if (format.isImage()) {
+            int[] wh = ImageHeader.dimensions(f, format);
+            // 헤더를 못 읽으면 압축률 1/10 가정
+            long pixels = wh != null ? (long) wh[0] * wh[1] : size * 10 / 4;
+            long work = pixels * BYTES_PER_PIXEL + OVERHEAD;
+            if (StripImageSource.applies(wh)) return new Cost(StripImageSource.peakBytes() + OVERHEAD, work, size);
+            return new Cost(work, work, size);
+        }
+        long c = size * PDF_FACTOR + OVERHEAD;
+        return new Cost(c, c, size);
+    }
+
+    /**
+     * 예산 안에 들어올 때까지 대기 후 허가 (try-with-resources 로 반납)
+     * @param fast FAST 레인 작업인지 (전용 몫 사용 가능, 큰 작업 예약에 막히지 않음)
+     */
+    Permit acquire(long cost, boolean fast, Path f) throws InterruptedException {
+        long limit = fast ? budget : budget - fastReserve;
+        long need = Math.min(cost, limit);
+        long t0 = System.nanoTime();
+        boolean blocked = false;
+        Object me = new Object();
+        synchronized (this) {
+            if (cost > limit) {
+                oversized++;
+                LogManager.writeLog("[Admission] 예산(" + (limit >> 20) + "MB) 초과 작업 → 단독 실행 : "
+                        + f + " (" + (cost >> 20) + "MB)");
+            }
+            try {
+                while (!(fast ? fitsFast(need) : fitsHeavy(me, need, t0))) {
+                    blocked = true;
+                    wait(250);
+                }
+            } finally {
+                if (reservedBy == me) { reservedBy = null; reserved = 0; notifyAll(); }
+            }
+            used += need;
+            if (!fast) heavyUsed += need;
+            peak = Math.max(peak, used);
+            admitted++;
+            if (blocked) {
+                waited++;
+                waitNanos += System.nanoTime() - t0;
+            }
+        }
+        return new Permit(need, !fast);
+    }
+
+    /**
+     * FAST: 전용 몫 안이면 항상, 넘치면 heavy 몫의 빈자리(예약분 제외)를 빌려 씀
+     * (HEAVY 는 heavy 몫만 쓰므로 전용 몫 안의 FAST 작업은 전체 예산을 넘지 않음)
+     */
+    private boolean fitsFast(long need) {
+        long fastUsed = used - heavyUsed;
+        if (fastUsed + need <= fastReserve) return true;
+        return used + need + (reservedBy != null ? reserved : 0) <= budget;
+    }
+
+    /** HEAVY: heavy 몫 + 전체 예산 안에 들어갈 수 있는지 + 오래 기다린 큰 작업 몫 예약 */
+    private boolean fitsHeavy(Object me, long need, long since) {
+        long heavyBudget = budget - fastReserve;
+        boolean room = heavyUsed + need <= heavyBudget && used + need <= budget;
+        if (reservedBy != null && reservedBy != me) {
+            return room && heavyUsed + need + reserved <= heavyBudget;   // 예약된 몫은 비워 둠
+        }
+        if (room) return true;
+        if (reservedBy == null && System.nanoTime() - since > TimeUnit.MILLISECONDS.toNanos(STARVE_MS)) {
+            reservedBy = me;                                   // 작은 작업에 계속 밀리지 않도록
+            reserved = need;
+        }
+        return false;
+    }
+
+    private synchronized void release(long n, boolean heavy) {
+        used -= n;
+        if (heavy) heavyUsed -= n;
+        notifyAll();
+    }
+
+    long budget() { return budget; }
+
+    synchronized Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("budgetMb", budget >> 20);
+        m.put("fastReserveMb", fastReserve >> 20);
+        m.put("usedMb", used >> 20);
+        m.put("heavyUsedMb", heavyUsed >> 20);
+        m.put("peakMb", peak >> 20);
+        m.put("admitted", admitted);
+        m.put("waited", waited);
+        m.put("oversized", oversized);
+        m.put("avgWaitMs", waited == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(waitNanos / waited));
+        return m;
+    }
+
+    final class Permit implements AutoCloseable {
+        private final long bytes;
+        private final boolean heavy;
+        private boolean closed;
+
+        private Permit(long bytes, boolean heavy) { this.bytes = bytes; this.heavy = heavy; }
+
+        @Override public void close() {
+            if (closed) return;
+            closed = true;
+            release(bytes, heavy);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.airoom.secureagent.monitor;
+
+import java.nio.file.Path;
+
+/**
+ * 백엔드 중립 파일 이벤트 (FileEventSource → GlobalWatcher)
+ * - at : 이벤트를 관측한 시점(System.nanoTime) → 이벤트→디스패치 지연 측정용
+ */
+public record FileEvent(Kind kind, Path path, long at) {
+
+    public enum Kind { CREATE, MODIFY, DELETE }
+
+    public static FileEvent of(Kind kind, Path path) {
+        return new FileEvent(kind, path, System.nanoTime());
+    }
+}
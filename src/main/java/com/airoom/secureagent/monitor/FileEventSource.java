@@ -0,0 +1,37 @@
+package com.airoom.secureagent.monitor;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 파일 이벤트 백엔드 SPI
+ *
+ * 구현체:
+ * - NioWatchEventSource  : OS WatchService (로컬 고정 디스크)
+ * - PollingEventSource   : mtime/size 증분 폴링 (SMB 공유·USB 등 WatchService 가 불안정한 루트)
+ * - InMemoryEventSource  : 테스트/벤치용 가짜 소스 (데스크톱 없는 Linux 에서도 지연 측정 가능)
+ *
+ * 규약:
+ * - 새로 생긴 하위 폴더는 소스가 스스로 추적하고, 그 안에 이미 있던 파일은 CREATE 로 흘려보낸다.
+ * - 디렉터리 자체는 이벤트로 내보내지 않는다(파일만).
+ * - sink 는 소스 자체 스레드에서 호출되며, 빠르게 반환해야 한다(enqueue 만).
+ */
+public interface FileEventSource extends AutoCloseable {
+
+    /** 로그/메트릭용 이름 */
+    String name();
+
+    /** 감시 루트 추가 (start 전/후 모두 가능) */
+    void addRoot(Path root);
+
+    /** 감시 루트 제거 (드라이브 분리 등) */
+    void removeRoot(Path root);
+
+    /** 이벤트 전달 시작 */
+    void start(Consumer<FileEvent> sink);
+
+    Map<String, Object> stats();
+
+    @Override void close();
+}
@@ -1,12 +1,17 @@
 package com.airoom.secureagent.monitor;
 
+import com.airoom.secureagent.log.LogManager;
+import com.airoom.secureagent.util.PathClassifier;
+import com.airoom.secureagent.util.SelfWriteLedger;
+
 import java.io.IOException;
-import java.nio.file.*;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
-
-import static java.nio.file.StandardWatchEventKinds.*;
+import java.util.function.Predicate;
 
 // C:\Users\ASUS ROG\AppData\Local\Application Data 는 Windows XP 호환용 junction(심볼릭 링크)
 // 일반 권한으로 열려고 하면 Access Denied 가 나므로 Files.walk() 도중 예외가 발생
@@ -34,82 +39,241 @@ import static java.nio.file.StandardWatchEventKinds.*;
 // 일단, 현재는 SKIP 로그는 주석처리를 해놓았고,
 // 운영 모드도 전체 범위가 아니라 일부로 제한해서 테스트 모드로 진행하려고 함.
 
+// 초기 등록은 ParallelTreeRegistrar(fork-join)로 백그라운드 병렬 순회 → 순회가 끝나기 전에도 이벤트 처리 시작
+// 이후 새로 생긴 폴더(압축 해제한 강의 자료 등)는 ENTRY_CREATE 시 즉시 재귀 등록 + 안에 이미 있는 파일도 태깅
+
+// 이벤트 수신은 FileEventSource 로 분리: 로컬 디스크는 NioWatchEventSource, SMB/USB 는 PollingEventSource,
+// 테스트/벤치는 InMemoryEventSource. 이 클래스는 루트별 백엔드 선택 + 이벤트 → 파이프라인 분기만 담당
+
+// 샤딩: NIO 루트는 루트(또는 -Dsecureagent.watch.groups 로 묶은 그룹)마다 WatchService + 루프 스레드를 따로 둔다.
+// 샤드마다 WatchShard 토큰 버킷으로 파이프라인 투입량을 제한 → D: 빌드 폴더가 시끄러워도 Downloads 이벤트는 바로 처리
+//   예) -Dsecureagent.watch.groups="drives=D:\\|E:\\;docs=C:\\Users\\me\\Documents"
+
 public class GlobalWatcher implements Runnable {
 
-    private final WatchService ws = FileSystems.getDefault().newWatchService();
+    private static final long DRAIN_MS = 100;
+
     private final List<Path> roots;
+    /** 안정화·분류·삽입·보고는 파이프라인 워커가 담당, 소스 스레드는 enqueue 만 */
+    private final TaggingPipeline pipeline;
+    /** 브라우저 임시 파일 → 최종 이름 rename 감지 (안정화 대기 생략용) */
+    private final DownloadRenameDetector renames = new DownloadRenameDetector();
+    /** 지정 소스 (null 이면 루트별 자동 선택) */
+    private final FileEventSource fixedSource;
+    /** NIO 샤드끼리 공유하는 병렬 순회기 */
+    private final ParallelTreeRegistrar registrar = new ParallelTreeRegistrar();
+    /** 샤드 이름 → 샤드 (NIO 는 루트/그룹별, 폴링은 "polling" 하나) */
+    private final Map<String, WatchShard> shards = new ConcurrentHashMap<>();
+    /** 루트 → 붙어 있는 샤드 */
+    private final Map<Path, WatchShard> attached = new ConcurrentHashMap<>();
+    /** -Dsecureagent.watch.groups 로 묶인 루트 접두사 → 그룹 이름 */
+    private final Map<Path, String> groups = parseGroups(System.getProperty("secureagent.watch.groups"));
+
+    private final ScheduledExecutorService drainer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "fs-shard-drain"); t.setDaemon(true); return t;
+    });
+
+    private volatile boolean started;
+    private volatile RootHotplugMonitor hotplug;
+    private volatile CatchUpScanner catchUp;
 
     /** 테스트 / 운영 모두 이 생성자를 사용 */
     public GlobalWatcher(List<Path> roots) throws IOException {
+        this(roots, new TaggingPipeline(), null);
+    }
+
+    /**
+     * 파이프라인·소스 지정 (벤치/테스트: InMemoryEventSource + 분류 본체 교체)
+     * @param source null 이면 루트마다 RootHotplugMonitor.backendFor() 로 NIO / 폴링 선택
+     */
+    public GlobalWatcher(List<Path> roots, TaggingPipeline pipeline, FileEventSource source) throws IOException {
         this.roots = roots;
-        for (Path r : roots) registerRecursiveSafe(r);
+        this.pipeline = pipeline;
+        this.fixedSource = source;
+        System.out.println("[Watcher] ready (디렉터리 등록은 백그라운드 진행)");
+    }
 
-        System.out.println("[Watcher] ready");
+    /**
+     * 드라이브 hot-plug 감시 사용 (start 전에 호출)
+     * @param accept 새로 보인 루트 중 감시할 것 (예: C:\ 제외)
+     */
+    public void enableRootHotplug(Predicate<Path> accept) {
+        hotplug = new RootHotplugMonitor(accept, this::attach, this::detach);
     }
 
-    /* 메인 루프 */
+    /**
+     * 꺼져 있던 동안 생긴 파일 태깅 사용 (start 전에 호출)
+     * - 연결되는 루트마다(시작 시 + hot-plug) CatchUpScanner 가 저우선순위로 훑음
+     * - -Dsecureagent.catchup.enabled=false 면 무시
+     */
+    public void enableCatchUp() {
+        if (CatchUpScanner.enabled()) catchUp = new CatchUpScanner(pipeline);
+    }
+
+    /* 메인 루프: 샤드 시작 후 인터럽트까지 대기 (이벤트 처리는 샤드별 스레드) */
     @Override public void run() {
         try {
-            while (true) {
-                WatchKey key = ws.poll(10, TimeUnit.SECONDS);
-                if (key == null) continue;
-
-                Path base = (Path) key.watchable();
-                for (WatchEvent<?> ev : key.pollEvents()) {
-                    Path f = base.resolve((Path) ev.context());
-                    if (isTarget(f) && waitUntilStable(f) && !AlreadyTaggedChecker.isTagged(f)) {
-                        StegoDispatcher.process(f);
-                    }
-                }
-                key.reset();
-            }
+            start();
+            new CountDownLatch(1).await();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) { e.printStackTrace(); }
+        finally {
+            close();
+        }
     }
 
-    /* ---------- util ---------- */
+    /** 블로킹 없이 시작 (벤치/테스트용) */
+    public synchronized void start() {
+        if (started) return;
+        started = true;
+        for (Path r : roots) attach(r);
+        for (WatchShard s : shards.values()) startShard(s);
+        drainer.scheduleWithFixedDelay(this::drainShards, DRAIN_MS, DRAIN_MS, TimeUnit.MILLISECONDS);
+        if (hotplug != null) hotplug.start();
+    }
 
-    /** 접근 가능한 디렉터리만 재귀 등록, 실패 폴더는 건너뜀 */
-    private void registerRecursiveSafe(Path start) throws IOException {
-        if (!Files.isDirectory(start)) return;
+    public synchronized void close() {
+        if (hotplug != null) hotplug.shutdown();
+        if (catchUp != null) catchUp.shutdown();
+        drainer.shutdownNow();
+        for (WatchShard s : shards.values()) s.close();
+        registrar.shutdown();
+        pipeline.shutdown();
+    }
 
-        Files.walkFileTree(start, new SimpleFileVisitor<>() {
+    /** 루트 연결: 샤드를 골라(없으면 생성) 붙임, 이미 붙어 있으면 무시 */
+    public synchronized void attach(Path root) {
+        if (attached.containsKey(root)) return;
+        try {
+            WatchShard shard = shardFor(root);
+            shard.source.addRoot(root);
+            attached.put(root, shard);
+            if (started) startShard(shard); // 새로 만든 샤드면 시작, 이미 돌고 있으면 무시
+            if (catchUp != null) catchUp.scan(root);
+            System.out.println("[Watcher] 루트 연결 → " + root + " (shard=" + shard.name + ")");
+        } catch (IOException e) {
+            LogManager.writeLog("[Watcher] 루트 연결 실패 → " + root + " : " + e);
+        }
+    }
 
-            @Override public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
-                try {
-                    dir.register(ws, ENTRY_CREATE, ENTRY_MODIFY); // <- 동일한 이름으로 덮어쓰기 형식으로 새로운 파일을 다운로드할 수도 있으니 MODIFY도 감지해야함!
-                } catch (IOException | SecurityException ex) {
-//                    System.err.println("[Watcher] SKIP (권한 없음): " + dir);
-                    return FileVisitResult.SKIP_SUBTREE;
-                }
-                return FileVisitResult.CONTINUE;
-            }
+    /** 루트 분리: 루트가 하나도 안 남은 NIO 샤드는 닫아서 watch·스레드 반납 */
+    public synchronized void detach(Path root) {
+        WatchShard shard = attached.remove(root);
+        if (shard == null) return;
+        shard.source.removeRoot(root);
+        boolean empty = !attached.containsValue(shard);
+        if (empty && shard.source instanceof NioWatchEventSource) {
+            shards.remove(shard.name);
+            shard.close();
+        }
+    }
 
-            /** 권한·루프·I/O 문제 등으로 디렉터리 접근 실패 시 건너뛴다 */
-            @Override public FileVisitResult visitFileFailed(Path dir, IOException exc) {
-//                System.err.println("[Watcher] SKIP (visit failed): " + dir);
-                return FileVisitResult.SKIP_SUBTREE;
-            }
-        });
+    public TaggingPipeline pipeline() { return pipeline; }
+
+    /** /watcher 노출용: 파이프라인·샤드별 이벤트율·소스 카운터 */
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("pipeline", pipeline.stats());
+        Map<String, Object> sh = new LinkedHashMap<>();
+        for (WatchShard s : shards.values()) sh.put(s.name, s.stats());
+        m.put("shards", sh);
+        Map<String, String> rs = new LinkedHashMap<>();
+        attached.forEach((r, s) -> rs.put(r.toString(), s.name));
+        m.put("roots", rs);
+        m.put("registeredDirs", registrar.directories());
+        TaggedFileIndex index = TaggedFileIndex.shared();
+        if (index != null) m.put("index", index.stats());
+        if (catchUp != null) m.put("catchUp", catchUp.stats());
+        m.put("selfWrite", SelfWriteLedger.stats());
+        m.put("dispatch", StegoDispatcher.stats());
+        return m;
     }
 
-    private boolean isTarget(Path f) {
-        String n = f.toString().toLowerCase();
-        if (n.endsWith(".crdownload")) return false;
-        return n.endsWith(".pdf") || n.endsWith(".png") || n.matches(".*\\.(jpe?g)$");
+    /* ---------- events ---------- */
+
+    /** 샤드 소스 스레드에서 호출: 분기 후 샤드 게이트를 거쳐 파이프라인에 넣기만 한다 */
+    void onEvent(WatchShard shard, FileEvent ev) {
+        shard.countEvent();
+        Path f = ev.path();
+        if (renames.observeTemp(ev.kind(), f)) return;  // .crdownload/.part/.tmp
+        if (ev.kind() == FileEvent.Kind.DELETE || !isTarget(f)) return;
+        if (SelfWriteLedger.isOwnWrite(f)) return;      // 인코더 교체의 첫 이벤트 (I/O 없음, 나머지는 안정화 단계 matches)
+
+        // 영속 인덱스에 같은 크기·mtime 으로 기록된 파일(방금 우리가 태깅한 결과 포함)은 큐에 넣지 않음
+        TaggedFileIndex index = TaggedFileIndex.shared();
+        if (index != null && index.peek(f) != TaggedFileIndex.State.UNKNOWN) return;
+
+        boolean completed = ev.kind() == FileEvent.Kind.CREATE && renames.consumeRename(f);
+        shard.offer(f, completed, this::dispatch);
     }
 
-    /** 2 초간 크기 변하지 않으면 저장 완료 */
-    private boolean waitUntilStable(Path f) {
-        try {
-            long prev = -1;
-            for (int i = 0; i < 30; i++) {
-                long cur = Files.size(f);
-                if (cur > 0 && cur == prev) return true;
-                prev = cur; Thread.sleep(2000);
-            }
-        } catch (Exception ignore) {}
-        return false;
+    private void dispatch(Path f, boolean completed) {
+        if (completed) pipeline.submitCompleted(f);  // 다운로드 완료 rename → 대기 없이 분류
+        else pipeline.submit(f);                     // 그 외 writer → 안정화 추적
     }
-}
 
+    /** 샤드를 번갈아 돌며 토큰 한도 안에서 대기열 방출 (한 샤드가 다른 샤드를 밀어내지 않음) */
+    private void drainShards() {
+        for (WatchShard s : shards.values()) {
+            try { s.drain(this::dispatch); }
+            catch (Exception e) { LogManager.writeLog("[Watcher] shard drain 실패(" + s.name + ") : " + e); }
+        }
+    }
+
+    /* ---------- util ---------- */
+
+    private void startShard(WatchShard s) {
+        // 대기열 초과로 놓쳤다가 재스캔에서 찾은 파일은 새 CREATE 처럼 같은 분기·게이트를 다시 거침
+        s.setRescanTarget(f -> onEvent(s, FileEvent.of(FileEvent.Kind.CREATE, f)));
+        s.source.start(ev -> onEvent(s, ev));
+    }
+
+    private WatchShard shardFor(Path root) throws IOException {
+        if (fixedSource != null) {
+            return shards.computeIfAbsent(fixedSource.name(), n -> new WatchShard(n, fixedSource));
+        }
+        if (RootHotplugMonitor.backendFor(root) == RootHotplugMonitor.Backend.POLLING) {
+            return shards.computeIfAbsent("polling",
+                    n -> new WatchShard(n, new PollingEventSource(n, this::isTarget)));
+        }
+        String name = groupOf(root);
+        WatchShard s = shards.get(name);
+        if (s == null) {
+            NioWatchEventSource nio = new NioWatchEventSource(name, registrar);
+            // 루트가 겹치면(홈 + 홈\Downloads 등) 안쪽 루트는 그 루트의 샤드만 등록
+            nio.setExcluded(d -> { WatchShard o = attached.get(d); return o != null && !o.name.equals(name); });
+            s = new WatchShard(name, nio);
+            shards.put(name, s);
+        }
+        return s;
+    }
 
+    /** 그룹 설정에 걸리면 그룹 이름, 아니면 루트 자체가 샤드 */
+    private String groupOf(Path root) {
+        for (Map.Entry<Path, String> e : groups.entrySet()) {
+            if (root.startsWith(e.getKey())) return e.getValue();
+        }
+        return root.toString();
+    }
+
+    /** "name=path|path;name2=path" → 접두사 → 이름 */
+    private static Map<Path, String> parseGroups(String spec) {
+        Map<Path, String> m = new LinkedHashMap<>();
+        if (spec == null) return m;
+        for (String g : spec.split(";")) {
+            int eq = g.indexOf('=');
+            if (eq <= 0) continue;
+            String name = g.substring(0, eq).trim();
+            for (String p : g.substring(eq + 1).split("\\|")) {
+                if (!p.isBlank()) m.put(Paths.get(p.trim()), name);
+            }
+        }
+        return m;
+    }
+
+    /** 대상 확장자 + 무시 폴더(node_modules, 브라우저 캐시 등) 밖 → 큐에 들어가기 전에 거른다 */
+    private boolean isTarget(Path f) {
+        return PathClassifier.isTarget(f);
+    }
+}
@@ -0,0 +1,55 @@
+package com.airoom.secureagent.monitor;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 테스트/벤치용 가짜 이벤트 소스
+ * - emit() 을 호출한 스레드에서 곧바로 sink 호출 (OS 이벤트 지연 없이 파이프라인 지연만 측정)
+ * - 루트를 하나라도 추가했다면 그 아래 경로만 통과
+ */
+public class InMemoryEventSource implements FileEventSource {
+
+    private final String name;
+    private final List<Path> roots = new CopyOnWriteArrayList<>();
+    private final AtomicLong events = new AtomicLong();
+    private volatile Consumer<FileEvent> sink;
+
+    public InMemoryEventSource(String name) { this.name = name; }
+
+    @Override public String name() { return name; }
+    @Override public void addRoot(Path root) { if (!roots.contains(root)) roots.add(root); }
+    @Override public void removeRoot(Path root) { roots.remove(root); }
+    @Override public void start(Consumer<FileEvent> sink) { this.sink = sink; }
+    @Override public void close() { sink = null; }
+
+    /** 이벤트 주입, 전달됐으면 true (시작 전 / 루트 밖이면 false) */
+    public boolean emit(FileEvent.Kind kind, Path f) {
+        Consumer<FileEvent> s = sink;
+        if (s == null || !covered(f)) return false;
+        events.incrementAndGet();
+        s.accept(FileEvent.of(kind, f));
+        return true;
+    }
+
+    public List<Path> roots() { return List.copyOf(roots); }
+
+    @Override public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("backend", "memory");
+        m.put("roots", roots.size());
+        m.put("events", events.get());
+        return m;
+    }
+
+    private boolean covered(Path f) {
+        if (roots.isEmpty()) return true;
+        for (Path r : roots) if (f.startsWith(r)) return true;
+        return false;
+    }
+}
@@ -0,0 +1,159 @@
+package com.airoom.secureagent.monitor;
+
+import com.airoom.secureagent.util.PathClassifier;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * OS WatchService 백엔드 (로컬 고정 디스크용)
+ *
+ * - 초기 등록 / 새 폴더 등록 : ParallelTreeRegistrar (fork-join 병렬 순회)
+ * - watch 개수 상한 + cold 폴더 폴링 : WatchBudgetManager
+ * - OVERFLOW 폴더 증분 재스캔 : OverflowRescanner
+ * - 이벤트 루프는 "fs-watch-{name}" 스레드 하나, 파일 이벤트만 sink 로 전달
+ * - 샤드 하나 = 인스턴스 하나 (자기 WatchService + 루프 스레드), 병렬 순회기는 샤드끼리 공유 가능
+ */
+public class NioWatchEventSource implements FileEventSource {
+
+    private final String name;
+    private final WatchService ws = FileSystems.getDefault().newWatchService();
+    private final List<Path> roots = new CopyOnWriteArrayList<>();
+    private final ParallelTreeRegistrar registrar;
+    private final boolean ownsRegistrar;
+    private final WatchBudgetManager budget;
+    private final OverflowRescanner rescanner = new OverflowRescanner(this::emitCreate, this::registerNewTree);
+    /** 다른 샤드 소유 폴더 (루트가 겹칠 때 중복 등록 방지) */
+    private volatile Predicate<Path> excluded = d -> false;
+
+    private final AtomicLong events = new AtomicLong();
+    private volatile Consumer<FileEvent> sink;
+    private volatile Thread loop;
+
+    public NioWatchEventSource(String name) throws IOException {
+        this(name, null);
+    }
+
+    /** @param registrar 샤드 간 공유 순회기 (null 이면 자체 생성·종료) */
+    public NioWatchEventSource(String name, ParallelTreeRegistrar registrar) throws IOException {
+        this.name = name;
+        this.ownsRegistrar = registrar == null;
+        this.registrar = registrar != null ? registrar : new ParallelTreeRegistrar();
+        this.budget = new WatchBudgetManager(ws, name);
+        budget.setColdListeners(this::emitCreate, this::registerNewTree);
+    }
+
+    /** 이 샤드가 등록하지 않을 폴더 (다른 샤드의 루트 등), start 전에 설정 */
+    public void setExcluded(Predicate<Path> excluded) { this.excluded = excluded; }
+
+    @Override public String name() { return name; }
+
+    @Override public void addRoot(Path root) {
+        if (roots.contains(root)) return;
+        roots.add(root);
+        if (sink != null) registrar.walk(root, false, this::registerDir);
+    }
+
+    @Override public void removeRoot(Path root) {
+        if (roots.remove(root)) budget.forgetTree(root);
+    }
+
+    @Override public synchronized void start(Consumer<FileEvent> sink) {
+        if (this.sink != null) return;
+        this.sink = sink;
+        registrar.walkAll(List.copyOf(roots), false, this::registerDir);
+        Thread t = new Thread(this::loop, "fs-watch-" + name);
+        t.setDaemon(true);
+        t.start();
+        loop = t;
+    }
+
+    private void loop() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = ws.poll(10, TimeUnit.SECONDS);
+                if (key == null) continue;
+
+                Path base = (Path) key.watchable();
+                budget.touch(base);
+                for (WatchEvent<?> ev : key.pollEvents()) {
+                    if (ev.kind() == OVERFLOW) {   // 이벤트 유실 → 이 폴더만 재스캔 예약
+                        rescanner.onOverflow(base);
+                        continue;
+                    }
+                    Path f = base.resolve((Path) ev.context());
+                    if (ev.kind() == ENTRY_CREATE && Files.isDirectory(f, LinkOption.NOFOLLOW_LINKS)) {
+                        registerNewTree(f);
+                        continue;
+                    }
+                    FileEvent.Kind k = ev.kind() == ENTRY_CREATE ? FileEvent.Kind.CREATE
+                            : ev.kind() == ENTRY_DELETE ? FileEvent.Kind.DELETE : FileEvent.Kind.MODIFY;
+                    emit(k, f);
+                }
+                if (!key.reset()) budget.forget(base); // 폴더 삭제 등
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ie) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) { e.printStackTrace(); }
+    }
+
+    @Override public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("backend", "nio");
+        m.put("roots", roots.size());
+        m.put("events", events.get());
+        m.put("watches", budget.stats());
+        m.put("overflow", rescanner.stats());
+        return m;
+    }
+
+    @Override public void close() {
+        Thread t = loop;
+        if (t != null) t.interrupt();
+        try { ws.close(); } catch (IOException ignore) {}
+        rescanner.shutdown();
+        budget.shutdown();
+        if (ownsRegistrar) registrar.shutdown();
+    }
+
+    /* ---------- util ---------- */
+
+    private void emit(FileEvent.Kind kind, Path f) {
+        Consumer<FileEvent> s = sink;
+        if (s == null) return;
+        events.incrementAndGet();
+        s.accept(FileEvent.of(kind, f));
+    }
+
+    private void emitCreate(Path f) { emit(FileEvent.Kind.CREATE, f); }
+
+    /**
+     * 예산 안에서 네이티브 watch 또는 cold 폴링으로 등록
+     * 다른 샤드 소유·무시 규칙(node_modules, 캐시 등)·접근 불가 폴더는 false → 하위 전체 건너뜀 (watch 자체를 안 건다)
+     */
+    private boolean registerDir(Path dir) {
+        if (!roots.contains(dir) && (excluded.test(dir) || PathClassifier.isIgnored(dir))) return false;
+        return budget.register(dir);
+    }
+
+    /**
+     * 감시 시작 이후 새로 생긴 폴더: 하위까지 등록하고,
+     * 등록 전에 이미 들어와 있던 파일(압축 해제·폴더 복사)도 CREATE 로 흘려보낸다.
+     */
+    private void registerNewTree(Path dir) {
+        registrar.walk(dir, true, new ParallelTreeRegistrar.Visitor() {
+            @Override public boolean onDirectory(Path d) { return registerDir(d); }
+            @Override public void onFile(Path f) { emitCreate(f); }
+        });
+    }
+}
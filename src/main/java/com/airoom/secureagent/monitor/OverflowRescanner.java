@@ -0,0 +1,157 @@
+package com.airoom.secureagent.monitor;
+
+import com.airoom.secureagent.log.LogManager;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * OVERFLOW 이벤트 대응: 해당 디렉터리만 증분 재스캔
+ *
+ * 대량 복사(이미지 2만 장 등) 중에는 WatchService 큐가 넘쳐 OVERFLOW 하나만 남고
+ * 개별 이벤트가 사라진다. 그 디렉터리를 "마지막으로 본 스냅샷(이름 → size, mtime)" 과 비교해
+ * 새로 생기거나 바뀐 항목만 다시 흘려보낸다.
+ *
+ * - 같은 폴더의 연속 OVERFLOW 는 DEBOUNCE_MS 동안 하나로 합쳐서 폭풍이 가라앉은 뒤 1회 스캔
+ * - 스냅샷이 아직 없는 폴더는 워처 시작 시각 이후 생성/수정된 항목만 대상으로 한 뒤 스냅샷을 남김
+ * - 스냅샷은 Caffeine 으로 항목 수 기준 상한(SNAPSHOT_WEIGHT) 유지
+ * - 이벤트는 받았지만 뒤 단계에서 버린 파일(WatchShard 대기열 초과)은 markMissed 로 이름을 남겨
+ *   스냅샷과 상관없이 다음 재스캔에서 다시 흘려보냄 (상한 MISSED_MAX 를 넘으면 그 폴더 스냅샷을 버림)
+ * - 카운터: overflows / rescans / dispatched → /watcher 로 노출
+ */
+public class OverflowRescanner {
+
+    private static final long DEBOUNCE_MS = Long.getLong("secureagent.rescan.debounceMs", 500L);
+    private static final long SNAPSHOT_WEIGHT = Long.getLong("secureagent.rescan.maxEntries", 500_000L);
+    private static final int MISSED_MAX = Integer.getInteger("secureagent.rescan.maxMissed", 100_000);
+
+    /** 이름 → {size, mtime} */
+    private final Cache<Path, Map<String, long[]>> snapshots = Caffeine.newBuilder()
+            .maximumWeight(SNAPSHOT_WEIGHT)
+            .weigher((Path k, Map<String, long[]> v) -> Math.max(1, v.size()))
+            .build();
+
+    private final Set<Path> scheduled = ConcurrentHashMap.newKeySet();
+    /** 폴더 → 다음 재스캔 때 무조건 다시 흘려보낼 파일 이름 */
+    private final Map<Path, Set<String>> missed = new ConcurrentHashMap<>();
+    private final AtomicLong missedNames = new AtomicLong();
+    private final ScheduledExecutorService exec = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "fs-rescan"); t.setDaemon(true); return t;
+    });
+
+    private final long startedAt = System.currentTimeMillis();
+    private final Consumer<Path> onFile;
+    private final Consumer<Path> onDirectory;
+
+    private final AtomicLong overflows  = new AtomicLong();
+    private final AtomicLong rescans    = new AtomicLong();
+    private final AtomicLong dispatched = new AtomicLong();
+
+    public OverflowRescanner(Consumer<Path> onFile, Consumer<Path> onDirectory) {
+        this.onFile = onFile;
+        this.onDirectory = onDirectory;
+    }
+
+    /** 워처 스레드: OVERFLOW 수신 시 호출, 스캔은 fs-rescan 스레드에서 */
+    public void onOverflow(Path dir) {
+        overflows.incrementAndGet();
+        rescanLater(dir);
+    }
+
+    /**
+     * 이벤트를 받았지만 처리하지 못한 파일: 다음 재스캔에서 스냅샷과 상관없이 다시 흘려보냄
+     * (재스캔 예약은 호출자가 rescanLater 로 – 대기열이 빠진 뒤에 돌려야 다시 버려지지 않음)
+     */
+    public void markMissed(Path f) {
+        Path dir = f.getParent(), name = f.getFileName();
+        if (dir == null || name == null) return;
+        if (missedNames.get() >= MISSED_MAX) {
+            snapshots.invalidate(dir);       // 이름 대신 "시작 이후 생성/수정" 기준으로 전부 다시 봄
+            return;
+        }
+        if (missed.computeIfAbsent(dir, d -> ConcurrentHashMap.newKeySet()).add(name.toString())) {
+            missedNames.incrementAndGet();
+        }
+    }
+
+    /** 디렉터리 하나 재스캔 예약 (DEBOUNCE_MS 안의 중복 요청은 합침) */
+    public void rescanLater(Path dir) {
+        if (!scheduled.add(dir)) return; // 이미 예약됨 → 합침
+        exec.schedule(() -> {
+            scheduled.remove(dir);
+            try {
+                rescan(dir);
+            } catch (Exception e) {
+                LogManager.writeLog("[Rescan] 실패 → " + dir + " : " + e);
+            }
+        }, DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void rescan(Path dir) throws IOException {
+        rescans.incrementAndGet();
+        Map<String, long[]> prev = snapshots.getIfPresent(dir);
+        Set<String> again = missed.remove(dir);
+        if (again != null) missedNames.addAndGet(-again.size());
+        Map<String, long[]> next = new HashMap<>();
+        long since = startedAt - 2_000; // 스냅샷이 없을 때 기준(시간 해상도 여유 포함)
+        int n = 0;
+
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+            for (Path child : ds) {
+                BasicFileAttributes a;
+                try { a = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS); }
+                catch (IOException ex) { continue; }
+                if (!a.isDirectory() && !a.isRegularFile()) continue;
+
+                long size  = a.isDirectory() ? -1 : a.size();
+                long mtime = a.lastModifiedTime().toMillis();
+                String name = child.getFileName().toString();
+                next.put(name, new long[]{size, mtime});
+
+                boolean changed;
+                if (again != null && again.contains(name)) {
+                    changed = true;
+                } else if (prev != null) {
+                    long[] old = prev.get(name);
+                    // 하위 폴더는 자기 WatchKey 가 있으므로 "새로 생긴 것" 만 본다
+                    changed = old == null || (!a.isDirectory() && (old[0] != size || old[1] != mtime));
+                } else {
+                    changed = Math.max(a.creationTime().toMillis(), mtime) >= since;
+                }
+                if (!changed) continue;
+
+                if (a.isDirectory()) onDirectory.accept(child);
+                else onFile.accept(child);
+                n++;
+            }
+        }
+        snapshots.put(dir, next);
+        dispatched.addAndGet(n);
+        LogManager.writeLog("[Rescan] OVERFLOW 재스캔 → " + dir + " (entries=" + next.size() + ", dispatched=" + n + ")");
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("overflows", overflows.get());
+        m.put("rescans", rescans.get());
+        m.put("dispatched", dispatched.get());
+        m.put("pending", scheduled.size());
+        m.put("missed", missedNames.get());
+        return m;
+    }
+
+    public void shutdown() { exec.shutdownNow(); }
+}
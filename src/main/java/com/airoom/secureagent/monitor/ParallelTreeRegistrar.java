@@ -0,0 +1,121 @@
+package com.airoom.secureagent.monitor;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * fork-join 병렬 디렉터리 트리 순회기 (GlobalWatcher 초기 등록 / 새 폴더 등록용)
+ *
+ * - 디렉터리 하나 = RecursiveAction 하나, 하위 폴더는 invokeAll 로 분기 → 대용량 디스크도 코어 수만큼 병렬
+ * - 백그라운드로 돌아가므로 워처는 순회가 끝나기 전에 이벤트 처리를 시작할 수 있다.
+ * - 심볼릭 링크는 따라가지 않고(루프 방지), 권한 없음/I-O 오류 폴더는 하위 전체를 건너뜀
+ *   (기존 registerRecursiveSafe 의 SKIP_SUBTREE 정책과 동일)
+ * - 진행 상황: 디렉터리 PROGRESS_EVERY 개마다 한 줄, 완료 시 한 줄
+ */
+public class ParallelTreeRegistrar {
+
+    private static final int PROGRESS_EVERY = 5_000;
+
+    /** 순회 콜백 (fork-join 워커 스레드에서 동시에 호출됨) */
+    public interface Visitor {
+        /** 디렉터리 방문. false 를 반환하면 하위 전체 skip */
+        boolean onDirectory(Path dir);
+        /** includeFiles=true 인 순회에서만 호출: 이미 들어 있는 일반 파일 */
+        default void onFile(Path file) {}
+        /** 순회 중 읽은 속성까지 필요한 경우 (추가 stat 없음) */
+        default void onFile(Path file, BasicFileAttributes attrs) { onFile(file); }
+    }
+
+    private final ForkJoinPool pool;
+    private final String label;
+    private final AtomicLong dirs    = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+
+    public ParallelTreeRegistrar() {
+        this(Math.max(2, Runtime.getRuntime().availableProcessors()), "fs-walk", "[Watcher] 초기 등록");
+    }
+
+    /**
+     * 병렬도·스레드 이름 지정 (CatchUpScanner 처럼 실시간 처리와 코어를 나눠 써야 하는 순회용)
+     * @param label 진행 로그 머리말
+     */
+    public ParallelTreeRegistrar(int parallelism, String threadPrefix, String label) {
+        this.label = label;
+        this.pool = new ForkJoinPool(Math.max(1, parallelism), p -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setName(threadPrefix + "-" + t.getPoolIndex());
+            t.setDaemon(true);
+            return t;
+        }, null, false);
+    }
+
+    /** 여러 루트를 병렬로 순회, 모두 끝나면 완료되는 future 반환 */
+    public CompletableFuture<Void> walkAll(List<Path> roots, boolean includeFiles, Visitor v) {
+        long t0 = System.currentTimeMillis();
+        List<CompletableFuture<Void>> all = new ArrayList<>();
+        for (Path r : roots) all.add(walk(r, includeFiles, v));
+        return CompletableFuture.allOf(all.toArray(new CompletableFuture<?>[0]))
+                .whenComplete((ok, err) -> System.out.println(label + " 완료: dirs=" + dirs.get()
+                        + " skipped=" + skipped.get() + " (" + (System.currentTimeMillis() - t0) + " ms)"));
+    }
+
+    /** 루트 하나 순회 (새로 생긴 폴더 등록 시에도 사용) */
+    public CompletableFuture<Void> walk(Path root, boolean includeFiles, Visitor v) {
+        return CompletableFuture.runAsync(() -> new WalkTask(root, includeFiles, v).invoke(), pool);
+    }
+
+    public long directories() { return dirs.get(); }
+    public long skipped() { return skipped.get(); }
+    public boolean isQuiescent() { return pool.isQuiescent(); }
+
+    public void shutdown() { pool.shutdownNow(); }
+
+    @SuppressWarnings("serial")     // 풀 안에서만 쓰는 작업 – 직렬화하지 않음
+    private final class WalkTask extends RecursiveAction {
+        private final Path dir;
+        private final boolean includeFiles;
+        private final Visitor v;
+
+        WalkTask(Path dir, boolean includeFiles, Visitor v) {
+            this.dir = dir; this.includeFiles = includeFiles; this.v = v;
+        }
+
+        @Override protected void compute() {
+            if (!v.onDirectory(dir)) { skipped.incrementAndGet(); return; }
+            long n = dirs.incrementAndGet();
+            if (n % PROGRESS_EVERY == 0) {
+                System.out.println(label + " 진행: dirs=" + n + " skipped=" + skipped.get());
+            }
+
+            List<WalkTask> children = new ArrayList<>();
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+                for (Path child : ds) {
+                    BasicFileAttributes a;
+                    try {
+                        a = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    } catch (IOException | SecurityException ex) {
+                        continue;
+                    }
+                    if (a.isDirectory()) children.add(new WalkTask(child, includeFiles, v));
+                    else if (includeFiles && a.isRegularFile()) v.onFile(child, a);
+                }
+            } catch (IOException | SecurityException ex) {
+                // 권한·루프·I/O 문제 등으로 디렉터리 접근 실패 시 하위 전체를 건너뛴다
+                skipped.incrementAndGet();
+                return;
+            }
+            invokeAll(children);
+        }
+    }
+}
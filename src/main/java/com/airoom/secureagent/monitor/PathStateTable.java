@@ -0,0 +1,282 @@
+package com.airoom.secureagent.monitor;
+
+import com.airoom.secureagent.util.FastHash;
+
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 파일별 삽입 상태 머신 (StegoDispatcher 전용, lock-free)
+ *
+ *   NEW → QUEUED → ENCODING → DONE / FAILED
+ *           ↑  ↓
+ *       WAITING_LOCK (다른 프로세스가 쓰는 중 → 지수 백오프 후 QUEUED 로 복귀)
+ *
+ * 예전 recent 캐시(중복 차단) + retryCounts(재시도 횟수) + stego-retry 스케줄러에 흩어져 있던 상태를 한곳에 모음.
+ *
+ * - 키 : FastHash.pathHash (64비트), 값 : state(4b) | attempts(8b) | stamp(52b, ms) 를 long 하나에 pack
+ *   → 전이는 전부 word CAS 한 번, 박싱/노드 할당 없음 (AtomicLongArray 두 개 = 슬롯당 16B)
+ * - open addressing, 홈 위치부터 WINDOW 칸 안에서만 탐사
+ *   · 슬롯은 비우지 않고, 끝난 지 dedupMs 가 지난(또는 staleMs 동안 멈춘) 슬롯을 다른 키가 재사용
+ *   · 재사용 중(RECLAIM)인 슬롯을 만나면 잠깐 기다림 – 같은 키가 두 슬롯에 들어가는 경합은
+ *     "더 앞 슬롯이 이김" 규칙으로 정리
+ *   · 창이 가득 차면 추적 없이 진행(UNTRACKED) → 처리는 막지 않음, 카운터로만 남김
+ * - admit() 이 돌려준 슬롯 번호로 이후 전이를 하므로 재탐사 없음
+ *
+ * 튜닝: -Dsecureagent.dispatch.slots=32768, -Dsecureagent.dispatch.dedupMs=30000
+ */
+final class PathStateTable {
+
+    enum State {
+        NEW, WAITING_LOCK, QUEUED, ENCODING, DONE, FAILED;
+
+        final int code = ordinal() + 1;
+        boolean terminal() { return this == DONE || this == FAILED; }
+    }
+
+    /** admit() 결과: 이미 진행 중이거나 방금 끝난 파일 */
+    static final int REJECTED  = -1;
+    /** admit() 결과: 표가 가득 차 추적 없이 진행 (전이는 모두 성공으로 취급) */
+    static final int UNTRACKED = -2;
+
+    private static final int FREE = 0, RECLAIM = 15;
+    private static final int WINDOW = 32;
+    private static final long STALE_MS = 10 * 60_000;
+    private static final State[] STATES = State.values();
+    private static final long BASE = System.currentTimeMillis();
+
+    private final int capacity;
+    private final long dedupMs;
+    private final AtomicLongArray keys;
+    private final AtomicLongArray words;
+
+    private final AtomicLong admitted  = new AtomicLong();
+    private final AtomicLong rejected  = new AtomicLong();
+    private final AtomicLong untracked = new AtomicLong();
+    private final AtomicLong lockWaits = new AtomicLong();
+    private final AtomicLong done      = new AtomicLong();
+    private final AtomicLong failed    = new AtomicLong();
+
+    PathStateTable() {
+        this(Integer.getInteger("secureagent.dispatch.slots", 1 << 15),
+                Long.getLong("secureagent.dispatch.dedupMs", 30_000));
+    }
+
+    PathStateTable(int capacity, long dedupMs) {
+        this.capacity = Math.max(WINDOW, capacity);
+        this.dedupMs = dedupMs;
+        this.keys = new AtomicLongArray(this.capacity);
+        this.words = new AtomicLongArray(this.capacity);
+    }
+
+    static long key(Path f) {
+        return FastHash.pathHash(f);
+    }
+
+    /* ---------- transitions ---------- */
+
+    /**
+     * 새 작업 등록 (→ NEW)
+     * @return 슬롯 번호, 진행 중/방금 끝난 파일이면 REJECTED, 표가 가득 차면 UNTRACKED
+     */
+    int admit(long h) {
+        int home = (int) Math.unsignedMultiplyHigh(h, capacity);
+        retry:
+        for (;;) {
+            long now = now();
+            int free = -1;
+            for (int n = 0; n < WINDOW; n++) {
+                int i = slot(home, n);
+                long k = keys.get(i);
+                long w = words.get(i);
+                if (k == h) {
+                    if (code(w) == RECLAIM) { Thread.onSpinWait(); continue retry; }
+                    if (code(w) == FREE || reclaimable(w, now)) {
+                        if (!words.compareAndSet(i, w, pack(State.NEW, 0, now))) continue retry;
+                        admitted.incrementAndGet();
+                        return i;
+                    }
+                    rejected.incrementAndGet();
+                    return REJECTED;
+                }
+                if (k == 0) { if (free < 0) free = i; break; }
+                if (free < 0 && code(w) != RECLAIM && (code(w) == FREE || reclaimable(w, now))) free = i;
+            }
+            if (free < 0) {
+                untracked.incrementAndGet();
+                return UNTRACKED;
+            }
+            int claimed = claim(free, h, home);
+            if (claimed == CLAIM_LOST) continue;
+            if (claimed == CLAIM_RECLAIMED) {
+                words.set(free, pack(State.NEW, 0, now));         // RECLAIM 으로 잡은 슬롯은 우리 소유
+            } else if (!words.compareAndSet(free, FREE, pack(State.NEW, 0, now))) {
+                continue;                                         // 같은 키의 다른 등록이 먼저 → 다시 보면 REJECTED
+            }
+            admitted.incrementAndGet();
+            return free;
+        }
+    }
+
+    /** from 상태일 때만 to 로 (attempts 유지) */
+    boolean advance(int slot, State from, State to) {
+        if (slot == UNTRACKED) return true;
+        for (;;) {
+            long w = words.get(slot);
+            if (code(w) != from.code) return false;
+            if (words.compareAndSet(slot, w, pack(to, attempts(w), now()))) return true;
+        }
+    }
+
+    /**
+     * QUEUED → WAITING_LOCK, 대기 횟수 +1
+     * @param carried UNTRACKED 일 때 호출자가 들고 다니는 지난 대기 횟수 (표에 기록이 없으므로)
+     * @return 이번이 몇 번째 대기인지, 상태가 맞지 않으면 0
+     */
+    int waitLock(int slot, int carried) {
+        if (slot == UNTRACKED) {
+            lockWaits.incrementAndGet();
+            return carried + 1;
+        }
+        for (;;) {
+            long w = words.get(slot);
+            if (code(w) != State.QUEUED.code) return 0;
+            int n = Math.min(255, attempts(w) + 1);
+            if (words.compareAndSet(slot, w, pack(State.WAITING_LOCK, n, now()))) {
+                lockWaits.incrementAndGet();
+                return n;
+            }
+        }
+    }
+
+    /** 진행 중 어느 상태에서든 DONE / FAILED 로 (이미 끝났으면 무시) */
+    void finish(int slot, boolean ok) {
+        if (ok) done.incrementAndGet(); else failed.incrementAndGet();
+        if (slot == UNTRACKED) return;
+        State to = ok ? State.DONE : State.FAILED;
+        for (;;) {
+            long w = words.get(slot);
+            int c = code(w);
+            if (c == FREE || c == RECLAIM || STATES[c - 1].terminal()) return;
+            if (words.compareAndSet(slot, w, pack(to, attempts(w), now()))) return;
+        }
+    }
+
+    /* ---------- queries ---------- */
+
+    /** 현재 상태 (기록 없으면 null) */
+    State stateOf(long h) {
+        int home = (int) Math.unsignedMultiplyHigh(h, capacity);
+        for (int n = 0; n < WINDOW; n++) {
+            int i = slot(home, n);
+            long k = keys.get(i);
+            if (k == 0) return null;
+            if (k == h) {
+                int c = code(words.get(i));
+                return c == FREE || c == RECLAIM ? null : STATES[c - 1];
+            }
+        }
+        return null;
+    }
+
+    /** 진행 중(NEW~ENCODING) 작업 수 – 표 전체를 훑으므로 메트릭 용도 */
+    int inFlight() {
+        int n = 0;
+        long now = now();
+        for (int i = 0; i < capacity; i++) {
+            long w = words.get(i);
+            int c = code(w);
+            if (c != FREE && c != RECLAIM && !STATES[c - 1].terminal() && now - stamp(w) <= STALE_MS) n++;
+        }
+        return n;
+    }
+
+    Map<String, Object> stats() {
+        Map<State, Integer> byState = new EnumMap<>(State.class);
+        long now = now();
+        for (int i = 0; i < capacity; i++) {
+            long w = words.get(i);
+            int c = code(w);
+            if (c == FREE || c == RECLAIM) continue;
+            State s = STATES[c - 1];
+            if (s.terminal() ? now - stamp(w) > dedupMs : now - stamp(w) > STALE_MS) continue;
+            byState.merge(s, 1, Integer::sum);
+        }
+        int inFlight = 0;
+        Map<String, Object> states = new LinkedHashMap<>();
+        for (State s : STATES) {
+            int n = byState.getOrDefault(s, 0);
+            states.put(s.name(), n);
+            if (!s.terminal()) inFlight += n;
+        }
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("inFlight", inFlight);
+        m.put("states", states);
+        m.put("admitted", admitted.get());
+        m.put("rejected", rejected.get());
+        m.put("lockWaits", lockWaits.get());
+        m.put("done", done.get());
+        m.put("failed", failed.get());
+        m.put("untracked", untracked.get());
+        return m;
+    }
+
+    /* ---------- internals ---------- */
+
+    private static final int CLAIM_LOST = 0, CLAIM_EMPTY = 1, CLAIM_RECLAIMED = 2;
+
+    /**
+     * 빈 슬롯(키 CAS) / 재사용 가능한 슬롯(word → RECLAIM CAS 후 키 기록)을 h 로 차지
+     * - 차지한 뒤 더 앞쪽에 같은 키가 생겼으면(동시 등록) 양보하고 CLAIM_LOST
+     */
+    private int claim(int i, long h, int home) {
+        int result;
+        long k = keys.get(i);
+        if (k == 0) {
+            if (!keys.compareAndSet(i, 0, h)) return CLAIM_LOST;
+            result = CLAIM_EMPTY;
+        } else {
+            long w = words.get(i);
+            int c = code(w);
+            if (c == RECLAIM || !(c == FREE || reclaimable(w, now()))) return CLAIM_LOST;
+            if (!words.compareAndSet(i, w, pack(RECLAIM))) return CLAIM_LOST;
+            keys.set(i, h);
+            result = CLAIM_RECLAIMED;
+        }
+        for (int n = 0; ; n++) {
+            int j = slot(home, n);
+            if (j == i) return result;
+            if (code(words.get(j)) == RECLAIM) { Thread.onSpinWait(); n--; continue; }
+            if (keys.get(j) == h) {                       // 앞 슬롯이 이김 → 내 슬롯은 FREE 로 돌려놓음
+                if (result == CLAIM_RECLAIMED) words.set(i, FREE);
+                return CLAIM_LOST;
+            }
+        }
+    }
+
+    private boolean reclaimable(long w, long now) {
+        int c = code(w);
+        if (c == FREE || c == RECLAIM) return false;
+        long age = now - stamp(w);
+        return STATES[c - 1].terminal() ? age > dedupMs : age > STALE_MS;
+    }
+
+    private int slot(int home, int n) {
+        int i = home + n;
+        return i >= capacity ? i - capacity : i;
+    }
+
+    private static long now() { return System.currentTimeMillis() - BASE; }
+
+    private static long pack(State s, int attempts, long stamp) {
+        return s.code | ((long) attempts << 4) | (stamp << 12);
+    }
+    private static long pack(int code) { return code; }
+    private static int code(long w) { return (int) (w & 0xF); }
+    private static int attempts(long w) { return (int) ((w >>> 4) & 0xFF); }
+    private static long stamp(long w) { return w >>> 12; }
+}
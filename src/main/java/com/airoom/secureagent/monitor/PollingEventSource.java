@@ -0,0 +1,224 @@
+package com.airoom.secureagent.monitor;
+
+import com.airoom.secureagent.log.LogManager;
+import com.airoom.secureagent.util.PathClassifier;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * mtime/size 증분 폴링 백엔드 (SMB 공유·USB 등 WatchService 가 믿을 수 없는 루트용)
+ *
+ * - 루트별 스냅샷: 디렉터리 → (디렉터리 mtime, 파일명 → {size, mtime}, 하위 폴더명)
+ * - 매 주기 디렉터리 mtime 만 stat → 바뀐 폴더만 다시 나열해서 diff
+ *   (새 파일 CREATE / size·mtime 변경 MODIFY / 사라진 파일 DELETE, 새 하위 폴더는 통째로 CREATE)
+ * - 적응형 주기: 루트에 변화가 없으면 2배씩 늘려 MAX_MS 까지, 변화가 보이면 MIN_MS 로 복귀
+ * - 스냅샷에는 fileFilter 를 통과한 파일만 보관 (드라이브 전체를 돌아도 메모리는 대상 파일 수에 비례)
+ * - 첫 스캔은 기준점만 만들고 이벤트를 내지 않는다(이미 있던 파일은 catch-up 대상).
+ *
+ * 한계: WatchBudgetManager 의 cold 폴링과 같이, 디렉터리 mtime 이 안 바뀌는 "제자리 덮어쓰기" 는 놓칠 수 있음
+ *
+ * 튜닝: -Dsecureagent.poll.minMs=2000, -Dsecureagent.poll.maxMs=30000
+ */
+public class PollingEventSource implements FileEventSource {
+
+    private static final long MIN_MS  = Long.getLong("secureagent.poll.minMs", 2_000L);
+    private static final long MAX_MS  = Long.getLong("secureagent.poll.maxMs", 30_000L);
+    private static final long TICK_MS = 500;
+
+    private final String name;
+    private final Predicate<Path> fileFilter;
+    private final Map<Path, RootState> roots = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService poller;
+
+    private final AtomicLong scans  = new AtomicLong();
+    private final AtomicLong events = new AtomicLong();
+    private volatile Consumer<FileEvent> sink;
+
+    /** 디렉터리 하나의 마지막 모습 (폴러 스레드만 접근) */
+    private static final class Dir {
+        long mtime;
+        final Map<String, long[]> files = new HashMap<>();
+        final Set<String> subdirs = new HashSet<>();
+    }
+
+    private static final class RootState {
+        final Map<Path, Dir> dirs = new HashMap<>();
+        boolean baselined;
+        long intervalMs = MIN_MS;
+        long dueAt;
+    }
+
+    /**
+     * @param fileFilter 스냅샷·이벤트 대상 파일 (예: GlobalWatcher 의 대상 확장자)
+     */
+    public PollingEventSource(String name, Predicate<Path> fileFilter) {
+        this.name = name;
+        this.fileFilter = fileFilter;
+        this.poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "fs-poll-" + name); t.setDaemon(true); return t;
+        });
+    }
+
+    @Override public String name() { return name; }
+
+    @Override public void addRoot(Path root) { roots.putIfAbsent(root, new RootState()); }
+
+    @Override public void removeRoot(Path root) { roots.remove(root); }
+
+    @Override public synchronized void start(Consumer<FileEvent> sink) {
+        if (this.sink != null) return;
+        this.sink = sink;
+        poller.scheduleWithFixedDelay(this::tick, 0, TICK_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("backend", "polling");
+        m.put("roots", roots.size());
+        m.put("scans", scans.get());
+        m.put("events", events.get());
+        Map<String, Long> intervals = new LinkedHashMap<>();
+        roots.forEach((r, s) -> intervals.put(r.toString(), s.intervalMs));
+        m.put("intervalMs", intervals);
+        return m;
+    }
+
+    @Override public void close() { poller.shutdownNow(); }
+
+    /* ---------- polling ---------- */
+
+    private void tick() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Path, RootState> e : roots.entrySet()) {
+            RootState rs = e.getValue();
+            if (rs.dueAt > now) continue;
+            try {
+                boolean changed;
+                if (!rs.baselined) {
+                    scanTree(rs, e.getKey(), false);
+                    rs.baselined = true;
+                    changed = false;
+                    LogManager.writeLog("[Poll] 기준 스냅샷 완료 → " + e.getKey() + " (dirs=" + rs.dirs.size() + ")");
+                } else {
+                    changed = pollRoot(rs);
+                    if (rs.dirs.isEmpty()) rs.baselined = false; // 루트가 사라졌다 돌아오면 기준점부터 다시
+                }
+                rs.intervalMs = changed ? MIN_MS : Math.min(MAX_MS, rs.intervalMs * 2);
+            } catch (Exception ex) {
+                rs.intervalMs = MAX_MS; // 루트 자체가 안 보임(분리 직전 등) → 천천히 재시도
+            }
+            rs.dueAt = System.currentTimeMillis() + rs.intervalMs;
+            scans.incrementAndGet();
+        }
+    }
+
+    /** @return 변화가 하나라도 있었는지 */
+    private boolean pollRoot(RootState rs) {
+        boolean changed = false;
+        for (Path dir : new ArrayList<>(rs.dirs.keySet())) {
+            Dir d = rs.dirs.get(dir);
+            if (d == null) continue; // 앞서 상위 폴더와 함께 제거됨
+            long m;
+            try {
+                m = Files.getLastModifiedTime(dir, LinkOption.NOFOLLOW_LINKS).toMillis();
+            } catch (IOException | SecurityException gone) {
+                dropTree(rs, dir);
+                changed = true;
+                continue;
+            }
+            if (m == d.mtime) continue;
+            d.mtime = m;
+            relist(rs, dir, d, true);
+            changed = true;
+        }
+        return changed;
+    }
+
+    /** top 아래 전체를 스냅샷에 올림, emit=true 면 파일마다 CREATE */
+    private void scanTree(RootState rs, Path top, boolean emit) {
+        Deque<Path> stack = new ArrayDeque<>();
+        stack.push(top);
+        while (!stack.isEmpty()) {
+            Path dir = stack.pop();
+            if (!roots.containsKey(dir) && PathClassifier.isIgnored(dir)) continue; // node_modules, 캐시 등
+            Dir d = new Dir();
+            try {
+                d.mtime = Files.getLastModifiedTime(dir, LinkOption.NOFOLLOW_LINKS).toMillis();
+            } catch (IOException | SecurityException ex) {
+                continue; // 접근 불가 → 하위 전체 skip
+            }
+            rs.dirs.put(dir, d);
+            for (String sub : relist(rs, dir, d, emit)) stack.push(dir.resolve(sub));
+        }
+    }
+
+    /**
+     * 폴더 하나 다시 나열 후 스냅샷과 diff
+     * @return 새로 발견한 하위 폴더 이름 (scanTree 에서 이어서 순회)
+     */
+    private List<String> relist(RootState rs, Path dir, Dir d, boolean emit) {
+        Map<String, long[]> seenFiles = new HashMap<>();
+        Set<String> seenDirs = new HashSet<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+            for (Path child : ds) {
+                BasicFileAttributes a;
+                try { a = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS); }
+                catch (IOException | SecurityException ex) { continue; }
+                String n = child.getFileName().toString();
+                if (a.isDirectory()) seenDirs.add(n);
+                else if (a.isRegularFile() && fileFilter.test(child)) {
+                    seenFiles.put(n, new long[]{a.size(), a.lastModifiedTime().toMillis()});
+                }
+            }
+        } catch (IOException | SecurityException ex) {
+            return List.of();
+        }
+
+        if (emit) {
+            for (Map.Entry<String, long[]> e : seenFiles.entrySet()) {
+                long[] old = d.files.get(e.getKey());
+                if (old == null) emit(FileEvent.Kind.CREATE, dir.resolve(e.getKey()));
+                else if (old[0] != e.getValue()[0] || old[1] != e.getValue()[1]) emit(FileEvent.Kind.MODIFY, dir.resolve(e.getKey()));
+            }
+            for (String gone : d.files.keySet()) {
+                if (!seenFiles.containsKey(gone)) emit(FileEvent.Kind.DELETE, dir.resolve(gone));
+            }
+        }
+        d.files.clear();
+        d.files.putAll(seenFiles);
+
+        List<String> added = new ArrayList<>();
+        for (String s : seenDirs) if (!d.subdirs.contains(s)) added.add(s);
+        for (String s : d.subdirs) if (!seenDirs.contains(s)) dropTree(rs, dir.resolve(s));
+        d.subdirs.clear();
+        d.subdirs.addAll(seenDirs);
+
+        // 폴링 중 새로 생긴 하위 폴더(폴더 복사·압축 해제): 안의 파일까지 통째로 CREATE
+        if (emit) {
+            for (String s : added) scanTree(rs, dir.resolve(s), true);
+            return List.of();
+        }
+        return added;
+    }
+
+    private static void dropTree(RootState rs, Path dir) {
+        rs.dirs.keySet().removeIf(p -> p.startsWith(dir));
+    }
+
+    private void emit(FileEvent.Kind kind, Path f) {
+        Consumer<FileEvent> s = sink;
+        if (s == null) return;
+        events.incrementAndGet();
+        s.accept(FileEvent.of(kind, f));
+    }
+}
@@ -0,0 +1,142 @@
+package com.airoom.secureagent.monitor;
+
+import com.airoom.secureagent.log.LogManager;
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.WString;
+
+import java.nio.file.FileSystems;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * 루트 hot-plug 감지 + 루트별 백엔드 선택
+ *
+ * - "fs-hotplug" 스레드가 HOTPLUG_MS 마다 getRootDirectories() 를 비교
+ *   → 새 드라이브(USB 연결, 네트워크 드라이브 매핑) onAttach / 사라진 드라이브 onDetach
+ * - backendFor(): 네트워크·이동식 루트는 POLLING, 로컬 고정 디스크는 NIO
+ *   · Windows : UNC 경로 또는 GetDriveTypeW = REMOVABLE / REMOTE / CDROM
+ *   · 그 외    : FileStore.type() 이 네트워크 파일시스템(cifs, nfs, sshfs ...)
+ *   · 강제 지정 : -Dsecureagent.watch.polling="E:\;\\\\nas\\share"
+ *
+ * 튜닝: -Dsecureagent.hotplug.ms=5000
+ */
+public class RootHotplugMonitor {
+
+    public enum Backend { NIO, POLLING }
+
+    private static final long HOTPLUG_MS = Long.getLong("secureagent.hotplug.ms", 5_000L);
+    private static final boolean IS_WINDOWS = System.getProperty("os.name", "").toLowerCase().contains("win");
+    private static final Set<String> NETWORK_FS = Set.of(
+            "cifs", "smb", "smbfs", "smb2", "smb3", "nfs", "nfs4", "afpfs", "webdav", "davfs",
+            "fuse.sshfs", "fuse.rclone", "9p");
+
+    // GetDriveType 반환값
+    private static final int DRIVE_REMOVABLE = 2;
+    private static final int DRIVE_REMOTE    = 4;
+    private static final int DRIVE_CDROM     = 5;
+
+    public interface Kernel32 extends Library {
+        int GetDriveTypeW(WString rootPathName);
+    }
+
+    /** Windows 에서만 실제로 로드 */
+    private static final class K32 {
+        static final Kernel32 INSTANCE = Native.load("kernel32", Kernel32.class);
+    }
+
+    private final Predicate<Path> accept;
+    private final Consumer<Path> onAttach;
+    private final Consumer<Path> onDetach;
+    private final Set<Path> known = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService exec = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "fs-hotplug"); t.setDaemon(true); return t;
+    });
+
+    /**
+     * @param accept   감시할 루트인지 (예: 운영 모드에서 C:\ 제외)
+     * @param onAttach 새로 보인 루트
+     * @param onDetach 사라진 루트
+     */
+    public RootHotplugMonitor(Predicate<Path> accept, Consumer<Path> onAttach, Consumer<Path> onDetach) {
+        this.accept = accept;
+        this.onAttach = onAttach;
+        this.onDetach = onDetach;
+    }
+
+    /** 시작 시점에 이미 있는 루트는 기준점으로만 기록(이미 붙어 있다고 보고 onAttach 하지 않음) */
+    public void start() {
+        known.addAll(currentRoots());
+        exec.scheduleWithFixedDelay(this::scan, HOTPLUG_MS, HOTPLUG_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public void shutdown() { exec.shutdownNow(); }
+
+    private void scan() {
+        try {
+            Set<Path> now = currentRoots();
+            for (Path r : now) {
+                if (known.add(r)) {
+                    LogManager.writeLog("[Hotplug] 루트 연결 → " + r + " (" + backendFor(r) + ")");
+                    onAttach.accept(r);
+                }
+            }
+            for (Path r : new ArrayList<>(known)) {
+                if (!now.contains(r)) {
+                    known.remove(r);
+                    LogManager.writeLog("[Hotplug] 루트 분리 → " + r);
+                    onDetach.accept(r);
+                }
+            }
+        } catch (Exception e) {
+            LogManager.writeLog("[Hotplug] 스캔 실패: " + e);
+        }
+    }
+
+    /** 마운트되어 실제로 읽을 수 있는 루트만 (빈 카드 리더·CD 드라이브 제외) */
+    private Set<Path> currentRoots() {
+        Set<Path> s = new LinkedHashSet<>();
+        for (Path r : FileSystems.getDefault().getRootDirectories()) {
+            if (accept.test(r) && Files.isDirectory(r)) s.add(r);
+        }
+        return s;
+    }
+
+    /** 루트(또는 그 아래 경로)에 맞는 백엔드 */
+    public static Backend backendFor(Path root) {
+        String s = root.toString();
+        String forced = System.getProperty("secureagent.watch.polling");
+        if (forced != null) {
+            for (String p : forced.split(";")) {
+                if (!p.isBlank() && root.startsWith(Paths.get(p.trim()))) return Backend.POLLING;
+            }
+        }
+        if (s.startsWith("\\\\")) return Backend.POLLING; // UNC 공유
+
+        if (IS_WINDOWS && root.getRoot() != null) {
+            try {
+                int t = K32.INSTANCE.GetDriveTypeW(new WString(root.getRoot().toString()));
+                if (t == DRIVE_REMOVABLE || t == DRIVE_REMOTE || t == DRIVE_CDROM) return Backend.POLLING;
+            } catch (Throwable ignore) {
+                // JNA 로드 실패 → FileStore 판정으로
+            }
+        }
+        try {
+            FileStore fs = Files.getFileStore(root);
+            String type = fs.type().toLowerCase(Locale.ROOT);
+            if (NETWORK_FS.contains(type)) return Backend.POLLING;
+        } catch (Exception ignore) {
+            // 판정 불가 → 기본 NIO
+        }
+        return Backend.NIO;
+    }
+}
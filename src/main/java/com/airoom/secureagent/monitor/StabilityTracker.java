@@ -0,0 +1,182 @@
+package com.airoom.secureagent.monitor;
+
+import com.airoom.secureagent.log.LogManager;
+import com.airoom.secureagent.util.SelfWriteLedger;
+
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * 논블로킹 파일 안정화 추적기 (기존 GlobalWatcher.waitUntilStable 대체)
+ *
+ * - 대기 중인 경로를 (size, mtime) 과 함께 DelayQueue 에 보관하고,
+ *   만기(tick)마다 단일 스레드가 stat 한 번으로 재확인한다. → sleep 없음
+ * - 직전 확인과 (size, mtime) 이 같고 size > 0 이면 "저장 완료" 로 보고 onStable 호출
+ *   onStable 이 false(다음 단계 큐 가득)면 추적을 유지한 채 창 하나 뒤에 다시 확인 → 추적 스레드에서 분류를 돌리지 않음
+ * - 계속 커지는 파일은 계속 추적, 변화 없이 maxIdle 이 지나도 안정되지 않으면(0바이트 등) 포기
+ * - 같은 경로가 다시 들어오면 기존 항목을 그대로 사용(중복 추적 없음)
+ * - 안정화 창은 루트별로 다르게 줄 수 있음 (가장 긴 prefix 루트 우선)
+ *
+ * 튜닝: -Dsecureagent.stable.ms=2000 (기본 창), -Dsecureagent.stable.maxIdleMs=60000,
+ *       -Dsecureagent.stable.max=50000 (동시 추적 상한),
+ *       -Dsecureagent.stable.roots="C:\Users\me\Downloads=1000;D:\=5000" (루트별 창)
+ */
+public final class StabilityTracker implements Runnable {
+
+    private static final long DEFAULT_WINDOW_MS = Long.getLong("secureagent.stable.ms", 2000L);
+    private static final long MAX_IDLE_MS       = Long.getLong("secureagent.stable.maxIdleMs", 60_000L);
+    private static final int  MAX_PENDING       = Integer.getInteger("secureagent.stable.max", 50_000);
+
+    private final DelayQueue<Pending> queue = new DelayQueue<>();
+    private final Map<Path, Pending> pending = new ConcurrentHashMap<>();
+    private final Map<Path, Long> rootWindows = new ConcurrentHashMap<>();
+    /** 안정된 파일 넘기기 – false 면 받지 못함(다음 단계 큐 가득) */
+    private final Predicate<Path> onStable;
+    private final Thread worker;
+
+    private final AtomicLong released = new AtomicLong();
+    private final AtomicLong gaveUp   = new AtomicLong();
+    private final AtomicLong dropped  = new AtomicLong();
+    private final AtomicLong deferred = new AtomicLong();
+
+    public StabilityTracker(Predicate<Path> onStable) {
+        this.onStable = onStable;
+        loadRootWindows(System.getProperty("secureagent.stable.roots"));
+        this.worker = new Thread(this, "fs-stability");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    public void shutdown() { worker.interrupt(); }
+
+    /** 루트별 안정화 창 지정 (예: Downloads 1초, 네트워크 드라이브 5초) */
+    public void setWindow(Path root, long windowMs) {
+        rootWindows.put(root.toAbsolutePath().normalize(), Math.max(100L, windowMs));
+    }
+
+    /** 추적 시작(호출 스레드에서는 I/O 없음). 이미 추적 중이면 no-op */
+    public void track(Path f) {
+        if (pending.containsKey(f)) return;
+        if (pending.size() >= MAX_PENDING) {
+            dropped.incrementAndGet();
+            LogManager.writeLog("[Stability] 추적 상한 초과 → drop : " + f);
+            return;
+        }
+        Pending p = new Pending(f, windowFor(f));
+        if (pending.putIfAbsent(f, p) == null) queue.add(p); // 첫 stat 은 즉시(추적 스레드에서)
+    }
+
+    public int inFlight() { return pending.size(); }
+    public long released() { return released.get(); }
+    public long gaveUp() { return gaveUp.get(); }
+    public long dropped() { return dropped.get(); }
+    public long deferred() { return deferred.get(); }
+
+    /* 추적 루프: 만기 항목만 깨어나서 stat 1회 */
+    @Override public void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Pending p;
+            try { p = queue.take(); }
+            catch (InterruptedException ie) { Thread.currentThread().interrupt(); return; }
+            try {
+                check(p);
+            } catch (Throwable t) {
+                pending.remove(p.path);
+                LogManager.writeLog("[Stability] 확인 실패 → " + p.path + " : " + t);
+            }
+        }
+    }
+
+    private void check(Pending p) throws Exception {
+        long now = System.currentTimeMillis();
+        BasicFileAttributes a;
+        try {
+            a = Files.readAttributes(p.path, BasicFileAttributes.class);
+        } catch (NoSuchFileException gone) {
+            pending.remove(p.path); // 임시 파일 rename/삭제 등
+            return;
+        }
+        if (SelfWriteLedger.matches(p.path, a)) {      // 늦게 도착한 우리 교체 이벤트 → 분류 단계로 보내지 않음
+            pending.remove(p.path);
+            return;
+        }
+        long size  = a.size();
+        long mtime = a.lastModifiedTime().toMillis();
+
+        if (size > 0 && size == p.lastSize && mtime == p.lastMtime) {
+            pending.remove(p.path);                      // 넘기는 사이 새 이벤트는 새 항목으로 추적
+            if (onStable.test(p.path)) {
+                released.incrementAndGet();
+            } else if (pending.putIfAbsent(p.path, p) == null) {
+                deferred.incrementAndGet();              // 분류 큐 가득 → 여기서 실행하지 않고 창 뒤 재시도
+                p.dueAt = now + p.windowMs;
+                queue.add(p);
+            }
+            return;
+        }
+        if (size != p.lastSize || mtime != p.lastMtime) p.lastChangeAt = now;
+        if (now - p.lastChangeAt > MAX_IDLE_MS) {
+            pending.remove(p.path);
+            gaveUp.incrementAndGet();
+            return;
+        }
+        p.lastSize = size;
+        p.lastMtime = mtime;
+        p.dueAt = now + p.windowMs;
+        queue.add(p);
+    }
+
+    /** "경로=ms;경로=ms" 형식, 잘못된 항목은 건너뜀 */
+    private void loadRootWindows(String spec) {
+        if (spec == null || spec.isBlank()) return;
+        for (String item : spec.split(";")) {
+            int eq = item.lastIndexOf('=');
+            if (eq <= 0) continue;
+            try {
+                setWindow(Path.of(item.substring(0, eq).trim()), Long.parseLong(item.substring(eq + 1).trim()));
+            } catch (Exception e) {
+                System.err.println("[Stability] 루트별 창 설정 무시: " + item);
+            }
+        }
+    }
+
+    private long windowFor(Path f) {
+        long best = DEFAULT_WINDOW_MS;
+        int bestLen = -1;
+        for (Map.Entry<Path, Long> e : rootWindows.entrySet()) {
+            Path root = e.getKey();
+            if (root.getNameCount() > bestLen && f.startsWith(root)) {
+                best = e.getValue();
+                bestLen = root.getNameCount();
+            }
+        }
+        return best;
+    }
+
+    /** 추적 중인 경로 하나 (추적 스레드에서만 갱신) */
+    private static final class Pending implements Delayed {
+        final Path path;
+        final long windowMs;
+        long lastSize = -1, lastMtime = -1;
+        long lastChangeAt = System.currentTimeMillis();
+        volatile long dueAt = System.currentTimeMillis();
+
+        Pending(Path path, long windowMs) { this.path = path; this.windowMs = windowMs; }
+
+        @Override public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAt - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+        @Override public int compareTo(Delayed o) {
+            return Long.compare(dueAt, ((Pending) o).dueAt);
+        }
+    }
+}
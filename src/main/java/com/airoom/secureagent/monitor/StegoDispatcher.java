@@ -5,8 +5,9 @@ import com.airoom.secureagent.log.HttpLogger;
 import com.airoom.secureagent.log.LogManager;
 import com.airoom.secureagent.steganography.ImageStegoWithWatermarkEncoder;
 import com.airoom.secureagent.steganography.PdfStegoWithWatermarkEncoder;
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
+import com.airoom.secureagent.util.FileFormat;
+import com.airoom.secureagent.util.FormatSniffer;
+import com.airoom.secureagent.util.ImageCodecs;
 import com.airoom.secureagent.anomaly.EventType;
 import com.airoom.secureagent.anomaly.LogEmitter;
 import com.airoom.secureagent.anomaly.LogEvent;
@@ -17,12 +18,13 @@ import com.airoom.secureagent.anomaly.AlertSender;
 
 import java.nio.channels.*;
 import java.nio.file.*;
-import java.time.Instant;
+import java.util.Map;
 import java.util.concurrent.*;
+import java.util.function.Consumer;
 
 import static java.nio.file.StandardOpenOption.WRITE;
 /**
- * 확장자별로 Encoder 호출 → 같은 경로/이름으로 덮어쓰기.
+ * 형식(매직 바이트 판별 결과)별로 Encoder 호출 → 같은 경로/이름으로 덮어쓰기.
  * PNG/JPG : tEXt or APP1   /  PDF : XMP
  */
 public class StegoDispatcher {
@@ -34,57 +36,133 @@ public class StegoDispatcher {
         WATERMARK_OPACITY = Math.max(0f, Math.min(1f, v));
     }
 
-    /** 최근 N초 안에 처리한 파일을 기억해 중복 호출 차단 (30 s 로 확대) */
-    private static final Cache<String, Boolean> recent = Caffeine.newBuilder()
-            .expireAfterWrite(30, TimeUnit.SECONDS)
-            .maximumSize(10_000)
-            .build();
+    /** 파일별 진행 상태 (중복 차단 / 락 대기 횟수 / 메트릭을 한곳에서) */
+    private static final PathStateTable STATES = new PathStateTable();
 
-    private static final ConcurrentMap<String, Integer> retryCounts = new ConcurrentHashMap<>();
+    /** 락 대기: 0.5s → 1s → 2s … 최대 LOCK_BACKOFF_MAX_MS, LOCK_RETRIES 번 후 포기 */
+    private static final int  LOCK_RETRIES = Integer.getInteger("secureagent.lock.retries", 8);
+    private static final long LOCK_BACKOFF_MS = 500;
+    private static final long LOCK_BACKOFF_MAX_MS = 30_000;
 
-    /** 락이 풀릴 때까지 재시도용 단일 스케줄러 */
-    private static final ScheduledExecutorService retryExec =
-            Executors.newSingleThreadScheduledExecutor(r -> {
-                Thread t = new Thread(r, "stego-retry"); t.setDaemon(true); return t;
-            });
+    /** 크기·hot 폴더 기준 삽입 레인 (작은 이미지가 큰 PDF 뒤에서 기다리지 않도록) */
+    private static final DispatchLanes LANES = new DispatchLanes();
+    /** 동시 인코딩 힙 예산 (헤더 해상도로 비용 추정) */
+    private static final EncodeAdmission ADMISSION = new EncodeAdmission();
 
-    public static void process(Path file) {
-        String abs = file.toAbsolutePath().toString();
+    /** 락 풀리기를 기다리는 파일 (due 순), 꺼내는 스레드 하나 + 실제 재시도는 원래 레인에서 */
+    private static final DelayQueue<LockRetry> lockWaiting = new DelayQueue<>();
+    static {
+        Thread t = new Thread(StegoDispatcher::lockRetryLoop, "stego-lock-wait");
+        t.setDaemon(true);
+        t.start();
+    }
 
-        // GlobalWatcher 에서 MODIFY 감지 때문에, 지금 tmp+atomic move 방식때문에 계속 해서 MODIFY가 감지되어서
-        // 무한 루프에 빠지게 됨. 그래서 쓰기 락 확보 시도 해서, 아직 쓰기 중이면 Retry
-        // 쓰기 락 확보 시도
-        // 0) 먼저 쓰기 가능 여부 확인 (락 걸려 있으면 'recent' 체크/등록 없이 재시도)
-        if (!isWritable(file)) {
-            int n = retryCounts.merge(abs, 1, Integer::sum);
-            if (n <= 10) { // 최대 10회, 20초 정도 재시도
-                LogManager.writeLog("[Stego] file locked, retry " + n + " → " + abs);
-                retryExec.schedule(() -> process(file), 2, TimeUnit.SECONDS);
-            } else {
-                LogManager.writeLog("[Stego] give up after retries → " + abs);
-                retryCounts.remove(abs);
-            }
-            return;
+    /** attempts: 지금까지 락 대기 횟수 (표에 기록이 없는 UNTRACKED 슬롯도 백오프·포기가 동작하도록 함께 전달) */
+    private record LockRetry(Path file, int slot, FileFormat format, int attempts, long dueNanos) implements Delayed {
+        @Override public long getDelay(TimeUnit unit) {
+            return unit.convert(dueNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
         }
-        retryCounts.remove(abs); // 락 해제됨
+        @Override public int compareTo(Delayed o) {
+            return Long.compare(dueNanos, ((LockRetry) o).dueNanos);
+        }
+    }
+
+    /** 삽입 단계 결과 → 보고 단계로 전달 (format: 매직 바이트로 판별한 실제 형식) */
+    public record EmbedResult(Path file, boolean ok, FileFormat format) {
+        public boolean isImage() { return format.isImage(); }
+        public boolean isPdf()   { return format.isPdf(); }
+    }
+
+    /** 단일 호출 진입점(PrintHook/CatchUp 등): 삽입 + 보고를 현재 스레드에서 순서대로 */
+    public static void process(Path file) {
+        EmbedResult r = embed(file, FormatSniffer.sniff(file));
+        if (r != null) report(r);
+    }
+
+    /**
+     * 파이프라인 분류 단계: 삽입 단계 큐에 넣기 직전 등록 (NEW → QUEUED)
+     * @return 상태 슬롯, 이미 진행 중이거나 방금 끝난 파일이면 PathStateTable.REJECTED
+     */
+    static int enqueue(Path file) {
+        int slot = STATES.admit(PathStateTable.key(file));
+        if (slot != PathStateTable.REJECTED) STATES.advance(slot, PathStateTable.State.NEW, PathStateTable.State.QUEUED);
+        return slot;
+    }
 
+    /**
+     * 파이프라인 삽입 단계: 분류 단계에서 태깅 여부 확인 + enqueue() 까지 끝난 파일을 레인에 투입
+     * @param format   분류 단계에서 판별한 실제 형식
+     * @param onResult 삽입이 끝나면 레인 워커에서 호출 (락 대기/중복이면 호출 안 함)
+     */
+    static void schedule(Path file, FileFormat format, int slot, Consumer<EmbedResult> onResult) {
+        if (format == FileFormat.NONE || slot == PathStateTable.REJECTED) return;
+        // 비용(파일 크기 + 헤더 해상도)은 여기서 한 번 – 레인 선택과 힙 예산에 같이 사용
+        EncodeAdmission.Cost cost = ADMISSION.estimate(file, format);
+        DispatchLanes.Lane lane = LANES.laneFor(format, cost.bytes(), cost.work());
+        boolean queued = LANES.submit(file, lane, () -> {
+            EmbedResult r = encode(file, format, slot, 0, cost, lane);
+            if (r != null) onResult.accept(r);
+        });
+        if (!queued) laneFull(file, slot);
+    }
 
-        // 1) 이제 중복 차단
-        if (recent.getIfPresent(abs) != null) return;
-        recent.put(abs, Boolean.TRUE);
+    /**
+     * 파이프라인 밖 호출(PrintHook/CatchUp): 등록 → 영속 인덱스 → 메타 파싱 순으로 태깅 여부 확인 → 삽입
+     * @param format 매직 바이트로 판별한 실제 형식 (NONE 이면 아무것도 하지 않음)
+     * @return 보고할 결과, 락 대기/중복/이미 태깅이면 null
+     */
+    static EmbedResult embed(Path file, FileFormat format) {
+        if (format == FileFormat.NONE) return null;
+        int slot = STATES.admit(PathStateTable.key(file));
+        if (slot == PathStateTable.REJECTED) return null;
 
-        // 2) 이미 태깅? 이미 삽입?
-        if (AlreadyTaggedChecker.isTagged(file)) {
+        TaggedFileIndex index = TaggedFileIndex.shared();
+        if (index != null && index.stateOf(file) == TaggedFileIndex.State.TAGGED) {
+            STATES.finish(slot, true);
+            return null;
+        }
+        if (AlreadyTaggedChecker.isTagged(file, format)) {
             LogManager.writeLog("[Stego] 이미 삽입됨 – skip : " + file);
-            return;
+            if (index != null) index.record(file, TaggedFileIndex.State.TAGGED);
+            STATES.finish(slot, true);
+            return null;
         }
+        STATES.advance(slot, PathStateTable.State.NEW, PathStateTable.State.QUEUED);
+        EncodeAdmission.Cost cost = ADMISSION.estimate(file, format);
+        return encode(file, format, slot, 0, cost, LANES.laneFor(format, cost.bytes(), cost.work()));
+    }
 
-        // 3) 실제 삽입
-        boolean ok = false;
-        boolean isImage = isImage(file);
-        boolean isPdf   = isPdf(file);
+    /**
+     * QUEUED → (락 있으면 WAITING_LOCK) → ENCODING → DONE / FAILED
+     * @param lockWaits 지금까지 락 대기 횟수 (첫 시도 0)
+     * @param cost      투입 시 추정한 비용, lane 은 그 비용으로 고른 레인 (FAST 는 힙 예산 전용 몫 사용)
+     */
+    private static EmbedResult encode(Path file, FileFormat format, int slot, int lockWaits,
+                                      EncodeAdmission.Cost cost, DispatchLanes.Lane lane) {
+        String abs = file.toAbsolutePath().toString();
+
+        // 다른 프로세스(브라우저·뷰어)가 아직 쓰는 중이면 지수 백오프로 다시 시도
+        if (!isWritable(file)) {
+            waitForLock(file, format, slot, lockWaits);
+            return null;
+        }
+        // 힙 예산 안에 들어올 때까지 QUEUED 로 대기 (예산보다 큰 작업은 단독 실행)
+        EncodeAdmission.Permit permit;
         try {
-            if (isImage) {
+            permit = ADMISSION.acquire(cost.heap(), lane == DispatchLanes.Lane.FAST, file);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            STATES.finish(slot, false);
+            return null;
+        }
+        if (!STATES.advance(slot, PathStateTable.State.QUEUED, PathStateTable.State.ENCODING)) {
+            permit.close();
+            return null;
+        }
+
+        boolean ok = false;
+        try (permit) {
+            if (format.isImage()) {
                 // 이미지 이벤트용 포렌식 페이로드 생성
                 ForensicPayload p = PayloadFactory.forEvent(EventType.STEGO_IMAGE, abs);
                 String encB64 = PayloadManager.encryptPayload(p);                 // AES-Base64
@@ -92,10 +170,10 @@ public class StegoDispatcher {
                 String wmText = "AIROOM" + token + " " + PayloadManager.boundUserId() + " " + p.ts();                   // 화면/파일 표시용
 
                 ok = ImageStegoWithWatermarkEncoder.encodeEncrypted(
-                        abs, abs, encB64, wmText, WATERMARK_OPACITY);
+                        abs, abs, encB64, wmText, WATERMARK_OPACITY, format);
 
                 if (ok) AlertSender.sendForensicEvent(p);                         //  서버 실시간 검증 전송
-            } else if (isPdf) {
+            } else if (format.isPdf()) {
                 //  PDF 이벤트용 포렌식 페이로드 생성
                 ForensicPayload p = PayloadFactory.forEvent(EventType.STEGO_PDF, abs);
                 String encB64 = PayloadManager.encryptPayload(p);
@@ -103,27 +181,99 @@ public class StegoDispatcher {
                 String wmText = "AIROOM" + token + " " + PayloadManager.boundUserId() + " " + p.ts();
 
                 ok = PdfStegoWithWatermarkEncoder.embedEncrypted(
-                        abs, abs, encB64, wmText, WATERMARK_OPACITY);
+                        abs, abs, encB64, wmText, WATERMARK_OPACITY, format);
 
                 if (ok) AlertSender.sendForensicEvent(p);                         //  서버 실시간 검증 전송
             }
         } catch (Exception ex) {
             LogManager.writeLog("[Stego] 예외 → " + file + " : " + ex);
+        } finally {
+            STATES.finish(slot, ok);    // Error 로 빠져나가도 ENCODING 에 남지 않도록
         }
+        // 교체된 파일의 크기·mtime·내용 해시로 기록 → 재시작 시 열지 않고 skip
+        TaggedFileIndex index = TaggedFileIndex.shared();
+        if (ok && index != null) index.record(file, TaggedFileIndex.State.TAGGED);
+        return new EmbedResult(file, ok, format);
+    }
 
-        // 4) 로그 & 테스트 디코딩, 이벤트 발행 & 디코딩 확인
-        if (ok) {
+    private static void waitForLock(Path file, FileFormat format, int slot, int lockWaits) {
+        int n = STATES.waitLock(slot, lockWaits);
+        if (n == 0) return;                         // 이미 다른 경로에서 처리됨
+        if (n > LOCK_RETRIES) {
+            LogManager.writeLog("[Stego] give up after retries → " + file);
+            STATES.finish(slot, false);
+            return;
+        }
+        long delay = Math.min(LOCK_BACKOFF_MAX_MS, LOCK_BACKOFF_MS << (n - 1));
+        LogManager.writeLog("[Stego] file locked, retry " + n + " in " + delay + " ms → " + file);
+        lockWaiting.add(new LockRetry(file, slot, format, n,
+                System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay)));
+    }
+
+    /** due 가 된 락 대기 파일을 QUEUED 로 돌려 재시도 풀에 넘김 */
+    private static void lockRetryLoop() {
+        while (true) {
+            try {
+                LockRetry r = lockWaiting.take();
+                if (!STATES.advance(r.slot(), PathStateTable.State.WAITING_LOCK, PathStateTable.State.QUEUED)) continue;
+                // 락이 걸려 있던 동안 파일이 바뀌었을 수 있으므로 비용은 재시도마다 새로
+                EncodeAdmission.Cost cost = ADMISSION.estimate(r.file(), r.format());
+                DispatchLanes.Lane lane = LANES.laneFor(r.format(), cost.bytes(), cost.work());
+                boolean queued = LANES.submit(r.file(), lane, () -> {
+                    EmbedResult res = encode(r.file(), r.format(), r.slot(), r.attempts(), cost, lane);
+                    if (res != null) report(res);
+                });
+                if (!queued) laneFull(r.file(), r.slot());
+            } catch (InterruptedException ie) {
+                return;
+            } catch (Exception e) {
+                LogManager.writeLog("[Stego] 재시도 예약 실패 : " + e);
+            }
+        }
+    }
+
+    /** 레인 넘침 대기열까지 가득 참: FAILED 로 끝내 중복 차단 창이 지나면 다음 이벤트가 다시 등록할 수 있게 */
+    private static void laneFull(Path file, int slot) {
+        LogManager.writeLog("[Stego] 삽입 레인 대기열 초과 – 다음 이벤트에서 재시도 : " + file);
+        STATES.finish(slot, false);
+    }
+
+    /** 진행 중인 삽입 수 (NEW ~ ENCODING) */
+    public static int inFlight() { return STATES.inFlight(); }
+
+    /** 파일의 현재 삽입 상태 이름 (기록 없으면 null) */
+    public static String stateOf(Path file) {
+        PathStateTable.State s = STATES.stateOf(PathStateTable.key(file));
+        return s == null ? null : s.name();
+    }
+
+    /** 레인 대기·실행 중인 삽입이 없는지 */
+    public static boolean lanesIdle() { return LANES.isIdle(); }
+
+    /** 상태별 개수 + 누적 카운터 + 레인별 대기 + 코덱 풀 (/watcher 노출용) */
+    public static Map<String, Object> stats() {
+        Map<String, Object> m = STATES.stats();
+        m.put("lanes", LANES.stats());
+        m.put("heap", ADMISSION.stats());
+        m.put("codecs", ImageCodecs.stats());
+        return m;
+    }
+
+    /** 보고 단계: 로그 & 테스트 디코딩, 이벤트 발행 & 디코딩 확인 */
+    static void report(EmbedResult r) {
+        Path file = r.file();
+        if (r.ok()) {
             String log = "[Stego] 삽입 완료 → " + file;
 
-            EventType type = isImage ? EventType.STEGO_IMAGE :
-                             isPdf   ? EventType.STEGO_PDF   :
+            EventType type = r.isImage() ? EventType.STEGO_IMAGE :
+                             r.isPdf()   ? EventType.STEGO_PDF   :
                              null; // 확장자 외: 발행하지 않음
 
             if (type != null) {
                 LogEvent ev = LogEvent.of(
                         type,
-                        isImage ? "image" : "pdf",                 // source
-                        abs,          // pageOrPath
+                        r.isImage() ? "image" : "pdf",             // source
+                        file.toAbsolutePath().toString(),           // pageOrPath
                         null,                                       // browserTitle (알 수 없으면 null)
                         LogManager.getUserId()                      // 사용자ID (LogManager에 getter가 있어야 함)
                 );
@@ -134,7 +284,7 @@ public class StegoDispatcher {
             }
 
             if (SecureAgentMain.TEST_MODE) {
-                String decoded = SecureAgentMain.decodeOnce(file);
+                String decoded = SecureAgentMain.decodeOnce(file, r.format());
                 System.out.println("[Stego] 디코딩 확인: " + decoded);
             }
         } else {
@@ -144,10 +294,6 @@ public class StegoDispatcher {
 
     /* ---------- helpers ---------- */
 
-    private static void scheduleRetry(Path f) {
-        retryExec.schedule(() -> process(f), 2, TimeUnit.SECONDS); // 최대 5회만
-    }
-
     /** 다른 프로세스가 *exclusive write* 락을 쥐고 있으면 false */
     private static boolean isWritable(Path f) {
         try (FileChannel ch = FileChannel.open(f, WRITE)) {
@@ -156,12 +302,4 @@ public class StegoDispatcher {
         } catch (Exception ignore) { }
         return false;
     }
-
-    private static boolean isPdf(Path f) {
-        return f.toString().toLowerCase().endsWith(".pdf");
-    }
-    private static boolean isImage(Path f) {
-        String n = f.toString().toLowerCase();
-        return n.endsWith(".png") || n.endsWith(".jpg") || n.endsWith(".jpeg");
-    }
 }
@@ -0,0 +1,440 @@
+package com.airoom.secureagent.monitor;
+
+import com.airoom.secureagent.log.LogManager;
+import com.airoom.secureagent.util.FastHash;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * 영속 태깅 인덱스 (memory-mapped open-addressing 해시 테이블)
+ *
+ * 재시작할 때마다 AlreadyTaggedChecker 로 이미지 메타 전체 파싱 / PDF 전체 로드를 반복하지 않도록
+ * "이 경로·크기·mtime 의 파일은 이미 태깅됨" 을 디스크에 남긴다.
+ *
+ * 파일 구조 (little-endian)
+ * - 헤더 64B : magic "AIDTIDX1" | version | slotSize | capacity | used | clean
+ * - 슬롯 32B : pathHash(8) | size(8) | mtime(8) | contentHash(4) | state(1B) + check(3B)
+ *   · pathHash == 0 → 빈 슬롯, 선형 탐사, 슬롯 위치는 (hash * capacity) >>> 64 (2의 거듭제곱 불필요)
+ *   · check = 나머지 필드 해시 24비트 → 쓰다 만 슬롯(크래시)은 check 불일치로 "모름" 처리
+ *   · 새 슬롯은 본문을 먼저 쓰고 pathHash 를 마지막에 기록(publish)
+ * - 비정상 종료(clean=0)로 열리면 슬롯을 훑어 used 재계산 + 깨진 슬롯 무효화
+ * - 사용률 LOAD_MAX 초과 시 1.5배 크기의 다음 세대 파일(tagged-N.idx)로 재해시
+ *   (매핑된 파일은 Windows 에서 교체/삭제가 안 되므로 세대 번호로 구분, 옛 세대는 다음 시작 때 정리)
+ * - 100만 건 ≈ 40MB
+ *
+ * 튜닝: -Dsecureagent.index.dir=..., -Dsecureagent.index.enabled=false
+ */
+public final class TaggedFileIndex {
+
+    public enum State {
+        UNKNOWN(0), TAGGED(1), NOT_TAGGABLE(2);
+        final int code;
+        State(int code) { this.code = code; }
+        static State of(int code) {
+            return code == 1 ? TAGGED : code == 2 ? NOT_TAGGABLE : UNKNOWN;
+        }
+    }
+
+    private static final long MAGIC = 0x3158444954444941L; // "AIDTIDX1" (LE)
+    private static final int VERSION = 1;
+    private static final int HEADER = 64;
+    private static final int SLOT = 32;
+    private static final long INITIAL_CAPACITY = 1 << 16;
+    private static final double LOAD_MAX = 0.8;
+
+    private static final int H_MAGIC = 0, H_VERSION = 8, H_SLOT = 12, H_CAPACITY = 16, H_USED = 24, H_CLEAN = 32;
+    private static final int S_HASH = 0, S_SIZE = 8, S_MTIME = 16, S_CONTENT = 24, S_META = 28;
+
+    private static volatile TaggedFileIndex shared;
+
+    private final Path dir;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private FileChannel channel;
+    private MappedByteBuffer map;
+    private long capacity;
+    private long used;
+    private int generation;
+
+    private final AtomicLong hits     = new AtomicLong();
+    private final AtomicLong misses   = new AtomicLong();
+    private final AtomicLong rehashed = new AtomicLong();
+
+    /** 기본 위치의 공유 인덱스 (열 수 없거나 비활성화면 null) */
+    public static TaggedFileIndex shared() {
+        TaggedFileIndex s = shared;
+        if (s != null || !enabled()) return s;
+        synchronized (TaggedFileIndex.class) {
+            if (shared == null) {
+                try {
+                    shared = new TaggedFileIndex(defaultDir());
+                    TaggedFileIndex opened = shared;
+                    Runtime.getRuntime().addShutdownHook(new Thread(opened::close, "tag-index-close"));
+                } catch (Exception e) {
+                    LogManager.writeLog("[TagIndex] 열기 실패 → 인덱스 없이 동작 : " + e);
+                    System.setProperty("secureagent.index.enabled", "false");
+                }
+            }
+            return shared;
+        }
+    }
+
+    private static boolean enabled() {
+        return !"false".equalsIgnoreCase(System.getProperty("secureagent.index.enabled"));
+    }
+
+    /** 인덱스 디렉터리 (-Dsecureagent.index.dir 또는 기본 위치) – 다른 영속 상태 파일도 같은 곳에 둠 */
+    static Path defaultDir() {
+        String p = System.getProperty("secureagent.index.dir");
+        if (p != null && !p.isBlank()) return Paths.get(p);
+        String os = System.getProperty("os.name", "").toLowerCase();
+        if (os.contains("win")) {
+            String appData = System.getenv("APPDATA");
+            if (appData != null && !appData.isBlank()) return Paths.get(appData, "SecureAgent", "index");
+        }
+        return Paths.get(System.getProperty("user.home"), ".secureagent", "index");
+    }
+
+    public TaggedFileIndex(Path dir) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir);
+        open();
+    }
+
+    /* ---------- public API ---------- */
+
+    /** 크기·mtime 까지 일치하는 기록의 상태 (파일을 열지 않음) */
+    public State lookup(Path f, long size, long mtime) {
+        long h = FastHash.pathHash(f);
+        lock.readLock().lock();
+        try {
+            long off = find(h);
+            if (off < 0 || !valid(off)) { misses.incrementAndGet(); return State.UNKNOWN; }
+            if (map.getLong((int) (off + S_SIZE)) != size || map.getLong((int) (off + S_MTIME)) != mtime) {
+                misses.incrementAndGet();
+                return State.UNKNOWN;
+            }
+            hits.incrementAndGet();
+            return State.of(map.getInt((int) (off + S_META)) & 0xFF);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** stat 1회 + 정확 일치 조회만 (워처 스레드용, 파일 내용은 읽지 않음) */
+    public State peek(Path f) {
+        try {
+            BasicFileAttributes a = Files.readAttributes(f, BasicFileAttributes.class);
+            return lookup(f, a.size(), a.lastModifiedTime().toMillis());
+        } catch (IOException e) {
+            return State.UNKNOWN;
+        }
+    }
+
+    /**
+     * 알려진 파일의 상태 (파이프라인 분류 단계용)
+     * - 크기·mtime 일치 → 기록된 상태 (stat 1회)
+     * - 태깅 기록이 있고 크기는 같은데 mtime 만 다름(동기화 도구의 touch 등)
+     *   → contentHash(최대 128KB 읽기)가 같으면 TAGGED + mtime 갱신
+     */
+    public State stateOf(Path f) {
+        BasicFileAttributes a;
+        try { a = Files.readAttributes(f, BasicFileAttributes.class); }
+        catch (IOException e) { return State.UNKNOWN; }
+        long size = a.size(), mtime = a.lastModifiedTime().toMillis();
+        State exact = lookup(f, size, mtime);
+        if (exact != State.UNKNOWN) return exact;
+
+        long h = FastHash.pathHash(f);
+        int content;
+        lock.readLock().lock();
+        try {
+            long off = find(h);
+            if (off < 0 || !valid(off)
+                    || (map.getInt((int) (off + S_META)) & 0xFF) != State.TAGGED.code
+                    || map.getLong((int) (off + S_SIZE)) != size) return State.UNKNOWN;
+            content = map.getInt((int) (off + S_CONTENT));
+        } finally {
+            lock.readLock().unlock();
+        }
+        try {
+            if (FastHash.contentHash(f) != content) return State.UNKNOWN;
+        } catch (IOException e) {
+            return State.UNKNOWN;
+        }
+        put(h, size, mtime, content, State.TAGGED);
+        return State.TAGGED;
+    }
+
+    /** 현재 파일 상태(크기·mtime·내용 해시)로 기록 */
+    public void record(Path f, State state) {
+        try {
+            BasicFileAttributes a = Files.readAttributes(f, BasicFileAttributes.class);
+            put(FastHash.pathHash(f), a.size(), a.lastModifiedTime().toMillis(), FastHash.contentHash(f), state);
+        } catch (IOException e) {
+            LogManager.writeLog("[TagIndex] 기록 실패 → " + f + " : " + e);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            m.put("entries", used);
+            m.put("capacity", capacity);
+            m.put("bytes", HEADER + capacity * SLOT);
+            m.put("generation", generation);
+        } finally {
+            lock.readLock().unlock();
+        }
+        m.put("hits", hits.get());
+        m.put("misses", misses.get());
+        m.put("rehashed", rehashed.get());
+        return m;
+    }
+
+    /** 정상 종료 표시 + 디스크 반영 */
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (map == null) return;
+            map.putInt(H_CLEAN, 1);
+            map.force();
+            channel.close();
+            map = null;
+        } catch (IOException ignore) {
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /* ---------- table ---------- */
+
+    private void put(long h, long size, long mtime, int content, State state) {
+        lock.writeLock().lock();
+        try {
+            if (map == null) return;
+            long off = find(h);
+            if (off >= 0) {
+                int o = (int) off;
+                map.putInt(o + S_META, 0);            // 갱신 중 크래시 → check 불일치로 무효
+                writeBody(o, h, size, mtime, content, state);
+                return;
+            }
+            if (used + 1 > capacity * LOAD_MAX) grow();
+            int o = (int) emptySlotFor(h);
+            writeBody(o, h, size, mtime, content, state);
+            map.putLong(o + S_HASH, h);               // publish
+            used++;
+            map.putLong(H_USED, used);
+        } catch (IOException e) {
+            LogManager.writeLog("[TagIndex] 확장 실패 : " + e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void writeBody(int o, long h, long size, long mtime, int content, State state) {
+        map.putLong(o + S_SIZE, size);
+        map.putLong(o + S_MTIME, mtime);
+        map.putInt(o + S_CONTENT, content);
+        map.putInt(o + S_META, state.code | (check(h, size, mtime, content, state.code) << 8));
+    }
+
+    /** 해당 해시의 슬롯 오프셋, 없으면 -1 */
+    private long find(long h) {
+        if (map == null) return -1;
+        long i = home(h);
+        for (long n = 0; n < capacity; n++) {
+            long off = HEADER + i * SLOT;
+            long cur = map.getLong((int) off);
+            if (cur == 0) return -1;
+            if (cur == h) return off;
+            if (++i == capacity) i = 0;
+        }
+        return -1;
+    }
+
+    private long emptySlotFor(long h) {
+        long i = home(h);
+        while (true) {
+            long off = HEADER + i * SLOT;
+            if (map.getLong((int) off) == 0) return off;
+            if (++i == capacity) i = 0;
+        }
+    }
+
+    private long home(long h) {
+        return Math.unsignedMultiplyHigh(h, capacity);
+    }
+
+    private boolean valid(long off) {
+        int o = (int) off;
+        int meta = map.getInt(o + S_META);
+        return (meta >>> 8) == check(map.getLong(o + S_HASH), map.getLong(o + S_SIZE),
+                map.getLong(o + S_MTIME), map.getInt(o + S_CONTENT), meta & 0xFF);
+    }
+
+    private static int check(long h, long size, long mtime, int content, int state) {
+        long x = FastHash.mix64(h ^ FastHash.mix64(size ^ FastHash.mix64(mtime ^ ((long) content << 8 | state))));
+        int c = (int) (x & 0xFFFFFF);
+        return c == 0 ? 1 : c; // meta == 0 (갱신 중) 과 구분
+    }
+
+    /* ---------- file lifecycle ---------- */
+
+    private Path fileFor(int gen) { return dir.resolve("tagged-" + gen + ".idx"); }
+
+    /** 가장 높은 세대 중 온전한 파일을 열고, 나머지 세대는 정리 */
+    private void open() throws IOException {
+        int best = -1;
+        try (Stream<Path> s = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) s::iterator) {
+                int g = genOf(p);
+                if (g > best && isComplete(p)) best = g;
+            }
+        }
+        if (best < 0) {
+            generation = 0;
+            create(fileFor(0), INITIAL_CAPACITY, true);
+        } else {
+            generation = best;
+        }
+        mapFile(fileFor(generation));
+        cleanupOtherGenerations();
+
+        boolean clean = map.getInt(H_CLEAN) == 1;
+        map.putInt(H_CLEAN, 0);                       // 열려 있는 동안은 dirty
+        if (!clean) recount();
+        System.out.println("[TagIndex] 열림: " + fileFor(generation) + " (entries=" + used
+                + ", capacity=" + capacity + (clean ? "" : ", 비정상 종료 → 재계산") + ")");
+    }
+
+    private void mapFile(Path p) throws IOException {
+        channel = FileChannel.open(p, READ, WRITE);
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        map.order(ByteOrder.LITTLE_ENDIAN);
+        capacity = map.getLong(H_CAPACITY);
+        used = map.getLong(H_USED);
+    }
+
+    /**
+     * 새 테이블 파일 (본문 0)
+     * @param publish true 면 바로 magic 기록. 재해시용 파일은 옮겨 담기가 끝난 뒤에 기록 → 도중 크래시면 이전 세대 사용
+     */
+    private static void create(Path p, long cap, boolean publish) throws IOException {
+        long bytes = HEADER + cap * SLOT;
+        if (bytes > Integer.MAX_VALUE) throw new IOException("index too large: " + cap);
+        try (FileChannel ch = FileChannel.open(p, CREATE, TRUNCATE_EXISTING, READ, WRITE)) {
+            MappedByteBuffer m = ch.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            m.order(ByteOrder.LITTLE_ENDIAN);
+            m.putInt(H_VERSION, VERSION);
+            m.putInt(H_SLOT, SLOT);
+            m.putLong(H_CAPACITY, cap);
+            m.putLong(H_USED, 0);
+            m.putInt(H_CLEAN, 1);
+            m.force();
+            if (publish) {
+                m.putLong(H_MAGIC, MAGIC);
+                m.force();
+            }
+        }
+    }
+
+    /** 1.5배 다음 세대로 재해시 (쓰기 락 안에서 호출) */
+    private void grow() throws IOException {
+        long newCap = capacity + capacity / 2;
+        int nextGen = generation + 1;
+        Path next = fileFor(nextGen);
+        Files.deleteIfExists(next);
+        create(next, newCap, false);
+
+        MappedByteBuffer old = map;
+        long oldCap = capacity;
+        FileChannel oldCh = channel;
+        map.putInt(H_CLEAN, 1);
+        map.force();
+
+        mapFile(next);
+        map.putInt(H_CLEAN, 0);
+        long moved = 0;
+        for (long i = 0; i < oldCap; i++) {
+            int o = (int) (HEADER + i * SLOT);
+            long h = old.getLong(o);
+            if (h == 0) continue;
+            int meta = old.getInt(o + S_META);
+            long size = old.getLong(o + S_SIZE), mtime = old.getLong(o + S_MTIME);
+            int content = old.getInt(o + S_CONTENT);
+            if ((meta >>> 8) != check(h, size, mtime, content, meta & 0xFF)) continue; // 깨진 슬롯 버림
+            int n = (int) emptySlotFor(h);
+            writeBody(n, h, size, mtime, content, State.of(meta & 0xFF));
+            map.putLong(n + S_HASH, h);
+            moved++;
+        }
+        used = moved;
+        map.putLong(H_USED, used);
+        map.force();
+        map.putLong(H_MAGIC, MAGIC);                  // 옮겨 담기 완료 → 이제부터 이 세대가 유효
+        map.force();
+        generation = nextGen;
+        oldCh.close();
+        rehashed.incrementAndGet();
+        cleanupOtherGenerations();
+        LogManager.writeLog("[TagIndex] 확장 " + oldCap + " → " + newCap + " (entries=" + moved + ")");
+    }
+
+    /** 비정상 종료 후: used 재계산 + 깨진 슬롯 무효화(pathHash 는 남겨 탐사 체인 유지) */
+    private void recount() {
+        long n = 0, broken = 0;
+        for (long i = 0; i < capacity; i++) {
+            long off = HEADER + i * SLOT;
+            if (map.getLong((int) off) == 0) continue;
+            n++;
+            if (!valid(off)) { map.putInt((int) off + S_META, 0); broken++; }
+        }
+        used = n;
+        map.putLong(H_USED, used);
+        if (broken > 0) LogManager.writeLog("[TagIndex] 깨진 슬롯 " + broken + "개 무효화");
+    }
+
+    private void cleanupOtherGenerations() {
+        try (Stream<Path> s = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) s::iterator) {
+                int g = genOf(p);
+                if (g >= 0 && g != generation) {
+                    try { Files.deleteIfExists(p); } catch (IOException ignore) { /* 아직 매핑됨 → 다음 시작 때 */ }
+                }
+            }
+        } catch (IOException ignore) { }
+    }
+
+    private static int genOf(Path p) {
+        String n = p.getFileName().toString();
+        if (!n.startsWith("tagged-") || !n.endsWith(".idx")) return -1;
+        try { return Integer.parseInt(n.substring(7, n.length() - 4)); }
+        catch (NumberFormatException e) { return -1; }
+    }
+
+    private static boolean isComplete(Path p) {
+        try (FileChannel ch = FileChannel.open(p, READ)) {
+            if (ch.size() < HEADER) return false;
+            java.nio.ByteBuffer b = java.nio.ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            ch.read(b, 0);
+            return b.getLong(H_MAGIC) == MAGIC && b.getInt(H_VERSION) == VERSION
+                    && ch.size() >= HEADER + b.getLong(H_CAPACITY) * SLOT;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.airoom.secureagent.monitor;
+
+import com.airoom.secureagent.log.LogManager;
+import com.airoom.secureagent.util.FileFormat;
+import com.airoom.secureagent.util.FormatSniffer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 감시 → 안정화 → 분류 → 삽입 → 보고 다단계 태깅 파이프라인
+ *
+ * - 워처 스레드는 submit() 으로 큐에 넣기만 한다(파일 I/O·sleep 없음).
+ * - 안정화는 StabilityTracker(단일 스레드 DelayQueue)가 담당, 나머지 단계는
+ *   bounded 큐 + 코어 수 기반 워커 풀을 따로 둔다.
+ *   → 200MB PDF 하나가 삽입 단계에 오래 머물러도 이벤트 수신/안정화는 계속 진행됨
+ * - 삽입 단계는 StegoDispatcher 레인(DispatchLanes: FAST / HEAVY, hot 폴더 우선)이 담당
+ * - 안정화 → 분류는 offer: 분류 큐가 가득 차면 추적기가 그 파일을 창 하나 뒤에 다시 넘김
+ *   (단일 추적 스레드가 sniff·태깅 확인을 직접 돌리면 모든 루트의 안정화가 멈춤)
+ * - 삽입 → 보고 단계 사이는 큐가 가득 차면 CallerRunsPolicy 로 앞 단계가 직접 실행(자연스러운 backpressure)
+ *
+ * 튜닝: -Dsecureagent.pipeline.queue=1024 (단계별 큐 크기)
+ */
+public class TaggingPipeline {
+
+    private static final int CORES = Math.max(1, Runtime.getRuntime().availableProcessors());
+    private static final int QUEUE_CAP = Integer.getInteger("secureagent.pipeline.queue", 1024);
+
+    private final Stage classify = new Stage("tag-classify", CORES, QUEUE_CAP);
+    private final Stage report   = new Stage("tag-report",   Math.max(1, CORES / 2), QUEUE_CAP);
+
+    /** 분류 단계 본체 (기본: 태깅 여부 확인 → 삽입 → 보고) */
+    private final Consumer<Path> classifier;
+
+    /** 같은 파일의 MODIFY 연속 이벤트는 추적기 안에서 하나로 합쳐짐 */
+    private final StabilityTracker stability;
+
+    public TaggingPipeline() {
+        this(null);
+    }
+
+    /** 분류 단계 본체 교체 (벤치/테스트: 실제 삽입 없이 디스패치 시점만 측정) */
+    public TaggingPipeline(Consumer<Path> classifier) {
+        this.classifier = classifier != null ? classifier : this::classify;
+        this.stability = new StabilityTracker(f -> classify.offer(() -> this.classifier.accept(f)));
+    }
+
+    /** 워처 스레드 진입점: 큐에 넣기만 하고 즉시 반환 */
+    public void submit(Path f) {
+        stability.track(f);
+    }
+
+    /**
+     * 이미 다 쓰인 파일(브라우저 rename 완료 등): 안정화 대기 없이 바로 분류 단계로
+     * - 분류 큐가 가득 차면 워처 스레드에서 실행하지 않고 안정화 추적으로 돌린다.
+     */
+    public void submitCompleted(Path f) {
+        boolean queued = classify.offer(() -> {
+            try { if (Files.size(f) <= 0) return; }
+            catch (Exception gone) { return; }
+            classifier.accept(f);
+        });
+        if (!queued) stability.track(f);
+    }
+
+    /**
+     * 실시간 이벤트로 분류·삽입 단계가 비어 있는지 (CatchUpScanner 등 백그라운드 투입 양보 판단)
+     * - 안정화 대기 중인 파일은 제외: 느린 다운로드 하나 때문에 밀린 작업이 멈추지 않도록
+     */
+    public boolean isIdle() {
+        return classify.pool.getQueue().isEmpty() && classify.pool.getActiveCount() == 0
+                && StegoDispatcher.lanesIdle();
+    }
+
+    /** 루트별 안정화 창 (StabilityTracker 위임) */
+    public void setStabilityWindow(Path root, long windowMs) {
+        stability.setWindow(root, windowMs);
+    }
+
+    /* ---------- stages ---------- */
+
+    /**
+     * 분류: 영속 인덱스 조회 → 매직 바이트로 실제 형식 판별 → 태깅 여부 확인
+     * 이후 단계는 판별된 형식을 그대로 사용
+     */
+    private void classify(Path f) {
+        TaggedFileIndex index = TaggedFileIndex.shared();
+        if (index != null && index.stateOf(f) != TaggedFileIndex.State.UNKNOWN) return; // 알려진 파일 → 열지 않음
+
+        FileFormat fmt = FormatSniffer.sniff(f);
+        if (fmt == FileFormat.NONE) {
+            LogManager.writeLog("[Pipeline] 형식 불일치(확장자만 대상) – skip : " + f);
+            if (index != null) index.record(f, TaggedFileIndex.State.NOT_TAGGABLE);
+            return;
+        }
+        if (AlreadyTaggedChecker.isTagged(f, fmt)) {
+            if (index != null) index.record(f, TaggedFileIndex.State.TAGGED);
+            return;
+        }
+        int slot = StegoDispatcher.enqueue(f);          // NEW → QUEUED (진행 중/방금 끝난 파일이면 거절)
+        if (slot == PathStateTable.REJECTED) return;
+        // 삽입은 디스패처 레인(FAST / HEAVY)에서 – 큰 PDF 가 작은 이미지를 막지 않음
+        StegoDispatcher.schedule(f, fmt, slot, r -> report.execute(() -> StegoDispatcher.report(r)));
+    }
+
+    /* ---------- metrics / lifecycle ---------- */
+
+    /** 단계별 대기/실행/완료 수 (StatusServer 등 노출용) */
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        Map<String, Object> st = new LinkedHashMap<>();
+        st.put("inFlight", stability.inFlight());
+        st.put("released", stability.released());
+        st.put("gaveUp", stability.gaveUp());
+        st.put("dropped", stability.dropped());
+        st.put("deferred", stability.deferred());
+        m.put("stabilize", st);
+        for (Stage s : new Stage[]{classify, report}) m.put(s.name, s.stats());
+        return m;
+    }
+
+    public void shutdown() {
+        stability.shutdown();
+        classify.pool.shutdownNow();
+        report.pool.shutdownNow();
+    }
+
+    /** bounded 큐 + 고정 워커 풀 하나 */
+    private static final class Stage {
+        final String name;
+        final ThreadPoolExecutor pool;
+        final AtomicLong completed = new AtomicLong();
+
+        Stage(String name, int workers, int queueCap) {
+            this.name = name;
+            AtomicInteger seq = new AtomicInteger();
+            this.pool = new ThreadPoolExecutor(workers, workers, 30, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueCap),
+                    r -> {
+                        Thread t = new Thread(r, name + "-" + seq.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    },
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+            this.pool.allowCoreThreadTimeOut(true);
+        }
+
+        /** 단계 간 전달(삽입 → 보고): 큐가 가득 차면 호출 스레드가 직접 실행 */
+        void execute(Runnable task) {
+            pool.execute(wrap(task));
+        }
+
+        /**
+         * 워처 · 안정화 스레드용: 큐에 자리가 없으면 실행하지 않고 false
+         * - 남은 자리 확인 후 execute 는 그 사이 큐가 차면 CallerRuns 로 빠짐 → 큐에 직접 offer (원자적)
+         * - 큐 직접 투입은 워커를 만들지 않으므로 코어 스레드가 유휴 종료됐으면 하나 띄움
+         */
+        boolean offer(Runnable task) {
+            if (pool.isShutdown() || !pool.getQueue().offer(wrap(task))) return false;
+            pool.prestartCoreThread();
+            return true;
+        }
+
+        private Runnable wrap(Runnable task) {
+            return () -> {
+                try { task.run(); }
+                catch (Throwable t) { LogManager.writeLog("[Pipeline] " + name + " 예외 : " + t); }
+                finally { completed.incrementAndGet(); }
+            };
+        }
+
+        Map<String, Object> stats() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("queued", pool.getQueue().size());
+            m.put("active", pool.getActiveCount());
+            m.put("completed", completed.get());
+            return m;
+        }
+    }
+}
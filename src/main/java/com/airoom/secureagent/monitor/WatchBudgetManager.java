@@ -0,0 +1,320 @@
+package com.airoom.secureagent.monitor;
+
+import com.airoom.secureagent.log.LogManager;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * WatchKey 예산 관리자 (GlobalWatcher 위에서 동작)
+ *
+ * 운영 모드는 홈 전체 + 추가 드라이브를 감시하므로 WatchKey 가 수십만 개가 될 수 있고,
+ * Linux 에서는 inotify watch 한도를 넘긴다. 그래서
+ * - hot 디렉터리(Downloads, Desktop, 최근 활동 폴더)만 네이티브 watch 유지
+ * - 나머지 cold 디렉터리는 샤드별 "fs-cold-poll-{name}" 스레드가 디렉터리 mtime 을 적응형 주기로 폴링
+ *   (변화 없으면 주기 2배 → 최대 COLD_MAX_MS, 변화 있으면 최소 주기로 복귀)
+ * - cold 폴더에서 활동이 보이면 승격(promote), 예산이 꽉 찼으면 가장 오래 조용한 non-pin 폴더를 강등(demote)
+ * - pin 폴더 등록은 유휴 시간과 상관없이 (모든 샤드에서) 가장 오래 조용한 non-pin watch 를 밀어냄
+ *   → 시작 병렬 순회가 Downloads/Desktop 에 닿기 전에 예산을 다 써도 hot 폴더는 네이티브 유지
+ * - 네이티브 watch 수는 모든 샤드 합계가 항상 maxWatches 이하 (OS 가 먼저 거부하면 그 시점 합계로 상한을 낮춤)
+ *
+ * 한계: 디렉터리 mtime 은 항목 생성/삭제/rename 때만 바뀌므로, cold 폴더의 "제자리 덮어쓰기" 는 놓칠 수 있음
+ *       (브라우저 다운로드는 임시 파일 rename 이라 해당 없음)
+ *
+ * 튜닝: -Dsecureagent.watch.max=8192, -Dsecureagent.watch.hot="D:\\Lectures;E:\\Share"
+ *       -Dsecureagent.watch.coldMinMs=2000, -Dsecureagent.watch.coldMaxMs=60000
+ */
+public final class WatchBudgetManager {
+
+    private static final long COLD_MIN_MS   = Long.getLong("secureagent.watch.coldMinMs", 2_000L);
+    private static final long COLD_MAX_MS   = Long.getLong("secureagent.watch.coldMaxMs", 60_000L);
+    /** 이 시간 이상 조용한 폴더만 강등 후보 */
+    private static final long DEMOTE_IDLE_MS = Long.getLong("secureagent.watch.demoteIdleMs", 10 * 60_000L);
+    private static final long TICK_MS = 500;
+    private static final int PIN_EVICT_TRIES = 4;
+
+    /** 네이티브 watch 상한은 샤드 전체 합계 기준 (inotify 한도는 사용자 단위) */
+    private static volatile int maxWatches = Integer.getInteger("secureagent.watch.max", 8192);
+    private static final AtomicInteger TOTAL_NATIVE = new AtomicInteger();
+    /** 살아 있는 샤드별 관리자 (pin 폴더가 다른 샤드의 watch 를 밀어낼 때) */
+    private static final List<WatchBudgetManager> INSTANCES = new CopyOnWriteArrayList<>();
+
+    private final WatchService ws;
+
+    private final List<Path> hotRoots = new CopyOnWriteArrayList<>();
+    private final Map<Path, Watched> watched = new ConcurrentHashMap<>();
+    private final Map<Path, Cold> cold = new ConcurrentHashMap<>();
+    private final AtomicInteger nativeCount = new AtomicInteger();
+
+    private final AtomicLong promotions = new AtomicLong();
+    private final AtomicLong demotions  = new AtomicLong();
+
+    private final ScheduledExecutorService poller;
+
+    private volatile Consumer<Path> onColdFile = f -> {};
+    private volatile Consumer<Path> onColdDirectory = d -> {};
+
+    private static final class Watched {
+        final WatchKey key;
+        final boolean pinned;
+        volatile long lastActive = System.currentTimeMillis();
+        Watched(WatchKey key, boolean pinned) { this.key = key; this.pinned = pinned; }
+    }
+
+    /** cold 폴더 하나: 마지막으로 본 디렉터리 mtime + 적응형 주기 */
+    private static final class Cold {
+        long dirMtime;
+        long lastScanAt = System.currentTimeMillis();
+        long intervalMs = COLD_MIN_MS;
+        long dueAt = System.currentTimeMillis() + COLD_MIN_MS;
+        volatile boolean active;   // 최근 폴링에서 변화가 있었는지 (승격 판단용)
+    }
+
+    /** @param name 샤드 이름 (cold 폴링 스레드 이름에 사용) */
+    public WatchBudgetManager(WatchService ws, String name) {
+        this.ws = ws;
+        this.poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "fs-cold-poll-" + name); t.setDaemon(true); return t;
+        });
+        Path home = Paths.get(System.getProperty("user.home"));
+        pin(home.resolve("Downloads"));
+        pin(home.resolve("Desktop"));
+        String extra = System.getProperty("secureagent.watch.hot");
+        if (extra != null) for (String p : extra.split(";")) if (!p.isBlank()) pin(Paths.get(p.trim()));
+        poller.scheduleWithFixedDelay(this::pollCold, TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
+        INSTANCES.add(this);
+    }
+
+    /** 항상 네이티브 watch 를 우선 배정할 hot 루트 */
+    public void pin(Path root) { hotRoots.add(root.toAbsolutePath().normalize()); }
+
+    /** cold 폴링에서 발견한 새/변경 파일, 새 하위 폴더 콜백 */
+    public void setColdListeners(Consumer<Path> onFile, Consumer<Path> onDirectory) {
+        this.onColdFile = onFile;
+        this.onColdDirectory = onDirectory;
+    }
+
+    /**
+     * 디렉터리 하나를 예산 안에서 등록: 여유가 있으면 네이티브, 없으면 cold 폴링
+     * @return 하위 순회를 계속할지 (접근 불가면 false)
+     */
+    public boolean register(Path dir) {
+        if (watched.containsKey(dir) || cold.containsKey(dir)) return true;
+        boolean pinned = isPinned(dir);
+        if (tryNative(dir, pinned)) return true;
+        // 강등으로 비운 자리를 동시에 순회 중인 다른 등록이 가져갈 수 있음 → 몇 번 재시도
+        for (int i = 0; pinned && i < PIN_EVICT_TRIES; i++) {
+            if (!demoteOne(true)) break;
+            if (tryNative(dir, true)) return true;
+        }
+        Cold c = newCold(dir);
+        if (c == null) return false;
+        cold.put(dir, c);
+        return true;
+    }
+
+    /** 네이티브 이벤트가 들어온 폴더의 활동 시각 갱신 (워처 스레드) */
+    public void touch(Path dir) {
+        Watched w = watched.get(dir);
+        if (w != null) w.lastActive = System.currentTimeMillis();
+    }
+
+    /** key.reset() 실패(폴더 삭제 등) 시 정리 */
+    public void forget(Path dir) {
+        if (watched.remove(dir) != null) releaseNative();
+        cold.remove(dir);
+    }
+
+    /** 루트 분리(드라이브 제거 등): 그 아래 watch/cold 항목 전부 해제 */
+    public void forgetTree(Path root) {
+        watched.entrySet().removeIf(e -> {
+            if (!e.getKey().startsWith(root)) return false;
+            e.getValue().key.cancel();
+            releaseNative();
+            return true;
+        });
+        cold.keySet().removeIf(d -> d.startsWith(root));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("native", nativeCount.get());
+        m.put("totalNative", TOTAL_NATIVE.get());
+        m.put("max", maxWatches);
+        m.put("cold", cold.size());
+        m.put("promotions", promotions.get());
+        m.put("demotions", demotions.get());
+        return m;
+    }
+
+    /** 샤드 종료: cold 폴링 중지 + 이 샤드 몫의 watch 를 전체 합계에서 반납 */
+    public void shutdown() {
+        INSTANCES.remove(this);
+        poller.shutdownNow();
+        watched.values().forEach(w -> w.key.cancel());
+        watched.clear();
+        TOTAL_NATIVE.addAndGet(-nativeCount.getAndSet(0));
+    }
+
+    /* ---------- native / promote / demote ---------- */
+
+    private boolean tryNative(Path dir, boolean pinned) {
+        if (TOTAL_NATIVE.incrementAndGet() > maxWatches) {
+            TOTAL_NATIVE.decrementAndGet();
+            return false;
+        }
+        nativeCount.incrementAndGet();
+        try {
+            WatchKey key = dir.register(ws, ENTRY_CREATE, ENTRY_MODIFY, // <- 동일한 이름으로 덮어쓰기 다운로드 대비 MODIFY도 감지
+                    ENTRY_DELETE);                                     // <- 임시 파일(.crdownload 등)이 사라지는 rename 감지용
+            watched.put(dir, new Watched(key, pinned));
+            return true;
+        } catch (IOException ex) {
+            releaseNative();
+            // inotify 한도 등 OS 거부: 현재 개수로 상한을 낮추고 cold 로
+            String m = String.valueOf(ex.getMessage()).toLowerCase();
+            if (m.contains("limit")) {
+                maxWatches = Math.max(1, TOTAL_NATIVE.get());
+                LogManager.writeLog("[WatchBudget] OS watch 한도 도달 → max=" + maxWatches);
+            }
+            return false;
+        } catch (SecurityException ex) {
+            releaseNative();
+            return false;
+        }
+    }
+
+    /**
+     * 가장 오래 조용한 non-pin 폴더 하나를 cold 로 강등
+     * @param forPinned pin 폴더 등록용: DEMOTE_IDLE_MS 조건 없이 모든 샤드에서 고름
+     *                  (예산은 샤드 합계라 다른 샤드의 시작 순회가 다 썼을 수 있음)
+     */
+    private boolean demoteOne(boolean forPinned) {
+        long idleBefore = forPinned ? Long.MAX_VALUE : System.currentTimeMillis() - DEMOTE_IDLE_MS;
+        WatchBudgetManager owner = null;
+        Path victim = null;
+        long oldest = Long.MAX_VALUE;
+        for (WatchBudgetManager m : forPinned ? INSTANCES : List.of(this)) {
+            for (Map.Entry<Path, Watched> e : m.watched.entrySet()) {
+                Watched w = e.getValue();
+                if (w.pinned || w.lastActive > idleBefore) continue;
+                if (w.lastActive < oldest) { oldest = w.lastActive; victim = e.getKey(); owner = m; }
+            }
+        }
+        return victim != null && owner.demote(victim);
+    }
+
+    private boolean demote(Path dir) {
+        Watched w = watched.remove(dir);
+        if (w == null) return false;
+        w.key.cancel();
+        releaseNative();
+        Cold c = newCold(dir);
+        if (c != null) cold.put(dir, c);
+        demotions.incrementAndGet();
+        return true;
+    }
+
+    private void promote(Path dir) {
+        if (!tryNative(dir, false) && !(demoteOne(false) && tryNative(dir, false))) return;
+        cold.remove(dir);
+        promotions.incrementAndGet();
+    }
+
+    private void releaseNative() {
+        nativeCount.decrementAndGet();
+        TOTAL_NATIVE.decrementAndGet();
+    }
+
+    /* ---------- cold polling ---------- */
+
+    /** 현재 디렉터리 mtime 을 기준점으로 cold 항목 생성, 읽을 수 없으면 null */
+    private static Cold newCold(Path dir) {
+        try {
+            Cold c = new Cold();
+            c.dirMtime = Files.getLastModifiedTime(dir).toMillis();
+            return c;
+        } catch (IOException | SecurityException ex) {
+            return null;
+        }
+    }
+
+    private void pollCold() {
+        long now = System.currentTimeMillis();
+        List<Path> toPromote = new ArrayList<>();
+        for (Map.Entry<Path, Cold> e : cold.entrySet()) {
+            Cold c = e.getValue();
+            if (c.dueAt > now) continue;
+            try {
+                if (pollOne(e.getKey(), c, now)) toPromote.add(e.getKey());
+            } catch (NoSuchFileException gone) {
+                cold.remove(e.getKey());
+            } catch (Exception ex) {
+                c.intervalMs = COLD_MAX_MS;
+                c.dueAt = now + c.intervalMs;
+            }
+        }
+        for (Path d : toPromote) promote(d);
+    }
+
+    /** @return 연속으로 변화가 보여 승격할 만한지 */
+    private boolean pollOne(Path dir, Cold c, long now) throws IOException {
+        long m = Files.getLastModifiedTime(dir).toMillis();
+        boolean changed = m != c.dirMtime;
+        c.dirMtime = m;
+
+        if (changed) {
+            scanSince(dir, c.lastScanAt);
+            boolean wasActive = c.active;
+            c.active = true;
+            c.intervalMs = COLD_MIN_MS;
+            c.lastScanAt = now;
+            c.dueAt = now + c.intervalMs;
+            return wasActive; // 두 번 연속 활동 → 승격
+        }
+        c.active = false;
+        c.intervalMs = Math.min(COLD_MAX_MS, c.intervalMs * 2);
+        c.dueAt = now + c.intervalMs;
+        return false;
+    }
+
+    /**
+     * 마지막 스캔 이후 생성(복사 포함)·수정된 항목만 콜백
+     * - 복사된 파일은 mtime 이 원본 그대로라 creationTime 도 함께 본다.
+     * - FAT/SMB 의 2초 시간 해상도를 감안해 약간 겹치게 본다(중복은 안정화 추적기에서 합쳐짐).
+     * - 하위 폴더는 아직 모르는(watch/cold 어디에도 없는) 것만 콜백 – 안에 파일 하나 생겨 mtime 이 바뀐
+     *   기존 폴더를 registerNewTree 로 다시 훑으면 하위 트리 전체가 CREATE 로 재방출됨 (그 폴더는 자기 watch/cold 폴링 몫)
+     */
+    private void scanSince(Path dir, long sinceMs) throws IOException {
+        sinceMs -= 2_000;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+            for (Path child : ds) {
+                BasicFileAttributes a;
+                try { a = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS); }
+                catch (IOException ex) { continue; }
+                long t = Math.max(a.creationTime().toMillis(), a.lastModifiedTime().toMillis());
+                if (t < sinceMs) continue;
+                if (a.isDirectory()) {
+                    if (!watched.containsKey(child) && !cold.containsKey(child)) onColdDirectory.accept(child);
+                }
+                else if (a.isRegularFile()) onColdFile.accept(child);
+            }
+        }
+    }
+
+    private boolean isPinned(Path dir) {
+        for (Path r : hotRoots) if (dir.startsWith(r)) return true;
+        return false;
+    }
+}
@@ -0,0 +1,155 @@
+package com.airoom.secureagent.monitor;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 워처 샤드 하나: 이벤트 소스(자기 WatchService + 루프 스레드) + 공정성 게이트 + 이벤트율 메트릭
+ *
+ * - 게이트: 샤드별 토큰 버킷(RATE/s, 버스트 BURST). 토큰이 없으면 파이프라인에 넣지 않고
+ *   샤드 자체 대기열(경로 기준 중복 제거, 최대 DEFER_MAX)에 쌓았다가 drain() 때 흘려보낸다.
+ *   → D: 빌드 출력처럼 시끄러운 샤드가 안정화/분류 큐를 독점하지 못하고,
+ *     조용한 샤드(Downloads 등)는 항상 자기 버킷이 차 있어 즉시 통과
+ * - 대기열이 가득 차 받지 못한 파일은 버리지 않고 폴더를 dirty 로 표시 + OverflowRescanner 에 이름을 남김
+ *   → 대기열이 절반 아래로 빠지면 dirty 폴더를 재스캔해 다시 게이트로 (폭풍이 끝난 뒤 빠짐없이 태깅)
+ * - 메트릭: 원시 이벤트 / 통과 / 대기 / 폐기(→ 재스캔) 카운터 + 최근 1초 이벤트율
+ *
+ * 튜닝: -Dsecureagent.shard.rate=200, -Dsecureagent.shard.burst=400, -Dsecureagent.shard.deferMax=20000
+ */
+final class WatchShard {
+
+    private static final double RATE = Integer.getInteger("secureagent.shard.rate", 200);
+    private static final double BURST = Integer.getInteger("secureagent.shard.burst", 400);
+    private static final int DEFER_MAX = Integer.getInteger("secureagent.shard.deferMax", 20_000);
+
+    /** 게이트 통과 후 파이프라인 투입 */
+    interface Dispatch { void submit(Path f, boolean completed); }
+
+    final String name;
+    final FileEventSource source;
+
+    /** 경로 → 다운로드 완료(rename) 여부, 삽입 순서 유지 */
+    private final LinkedHashMap<Path, Boolean> deferred = new LinkedHashMap<>();
+    /** 대기열 초과로 놓친 파일이 있는 폴더 (삽입 순서대로 재스캔) */
+    private final LinkedHashSet<Path> dirty = new LinkedHashSet<>();
+    /** 샤드 전용 재스캔기 – 스레드는 첫 재스캔 때 생성 */
+    private volatile Consumer<Path> onRescan = f -> {};
+    private final OverflowRescanner rescanner = new OverflowRescanner(f -> onRescan.accept(f), d -> {});
+    private double tokens = BURST;
+    private long refillAt = System.nanoTime();
+
+    private final AtomicLong events   = new AtomicLong();
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong delayed  = new AtomicLong();
+    private final AtomicLong dropped  = new AtomicLong();
+    private final AtomicLong rescanned = new AtomicLong();
+
+    private long rateAt = System.nanoTime(), rateEvents, rateAdmitted;
+    private volatile double eventsPerSec, admittedPerSec;
+
+    WatchShard(String name, FileEventSource source) {
+        this.name = name;
+        this.source = source;
+    }
+
+    /** 재스캔에서 다시 찾은 파일을 넘길 곳 (GlobalWatcher: CREATE 이벤트로 다시 분기) */
+    void setRescanTarget(Consumer<Path> target) { this.onRescan = target; }
+
+    /** 소스 스레드: 원시 이벤트 1건 */
+    void countEvent() { events.incrementAndGet(); }
+
+    /** 소스 스레드: 대상 파일 1건 (토큰 있으면 즉시, 없으면 대기열) */
+    void offer(Path f, boolean completed, Dispatch d) {
+        synchronized (this) {
+            if (!deferred.isEmpty() || !tryAcquire()) {
+                Boolean prev = deferred.get(f);
+                if (prev == null && deferred.size() >= DEFER_MAX) {
+                    dropped.incrementAndGet();
+                    rescanner.markMissed(f);
+                    if (f.getParent() != null) dirty.add(f.getParent());
+                    return;
+                }
+                deferred.put(f, completed || Boolean.TRUE.equals(prev));
+                if (prev == null) delayed.incrementAndGet();
+                return;
+            }
+        }
+        admitted.incrementAndGet();
+        d.submit(f, completed);
+    }
+
+    /** fs-shard-drain 스레드: 쌓인 만큼 토큰 한도 안에서 흘려보냄 + 이벤트율 갱신 */
+    void drain(Dispatch d) {
+        List<Map.Entry<Path, Boolean>> out = new ArrayList<>();
+        List<Path> rescan = List.of();
+        synchronized (this) {
+            Iterator<Map.Entry<Path, Boolean>> it = deferred.entrySet().iterator();
+            while (it.hasNext() && tryAcquire()) {
+                Map.Entry<Path, Boolean> e = it.next();
+                out.add(Map.entry(e.getKey(), e.getValue()));
+                it.remove();
+            }
+            // 대기열에 다시 받을 자리가 생겼을 때만 재스캔 (가득 찬 채로 돌리면 또 버려짐)
+            if (!dirty.isEmpty() && deferred.size() <= DEFER_MAX / 2) {
+                rescan = new ArrayList<>(dirty);
+                dirty.clear();
+            }
+        }
+        for (Map.Entry<Path, Boolean> e : out) {
+            admitted.incrementAndGet();
+            d.submit(e.getKey(), e.getValue());
+        }
+        for (Path dir : rescan) rescanner.rescanLater(dir);
+        rescanned.addAndGet(rescan.size());
+        sampleRate();
+    }
+
+    /** 소스 종료 + 재스캔 스레드 정리 */
+    void close() {
+        source.close();
+        rescanner.shutdown();
+    }
+
+    private boolean tryAcquire() {
+        long now = System.nanoTime();
+        tokens = Math.min(BURST, tokens + (now - refillAt) / 1e9 * RATE);
+        refillAt = now;
+        if (tokens < 1) return false;
+        tokens -= 1;
+        return true;
+    }
+
+    private void sampleRate() {
+        long now = System.nanoTime();
+        double sec = (now - rateAt) / 1e9;
+        if (sec < 1) return;
+        long ev = events.get(), ad = admitted.get();
+        eventsPerSec = (ev - rateEvents) / sec;
+        admittedPerSec = (ad - rateAdmitted) / sec;
+        rateAt = now; rateEvents = ev; rateAdmitted = ad;
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("events", events.get());
+        m.put("admitted", admitted.get());
+        m.put("delayed", delayed.get());
+        m.put("dropped", dropped.get());
+        m.put("rescannedDirs", rescanned.get());
+        synchronized (this) {
+            m.put("deferred", deferred.size());
+            m.put("dirtyDirs", dirty.size());
+        }
+        m.put("eventsPerSec", Math.round(eventsPerSec * 10) / 10.0);
+        m.put("admittedPerSec", Math.round(admittedPerSec * 10) / 10.0);
+        m.put("source", source.stats());
+        return m;
+    }
+}
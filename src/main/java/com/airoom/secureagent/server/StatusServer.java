@@ -2,6 +2,7 @@ package com.airoom.secureagent.server;
 
 import com.airoom.secureagent.log.LogManager;
 import com.airoom.secureagent.payload.PayloadManager;
+import com.airoom.secureagent.steganography.EncodeProfile;
 import com.airoom.secureagent.util.CryptoUtil;
 import com.airoom.secureagent.watermark.WatermarkOverlay;
 import com.google.gson.JsonParser;
@@ -18,9 +19,11 @@ import java.time.Instant;
 import oshi.SystemInfo;
 import oshi.hardware.CentralProcessor;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -48,6 +51,10 @@ public class StatusServer {
     private static volatile Runnable flushCallback;
     public static void registerFlushCallback(Runnable cb) { flushCallback = cb; }
 
+    // 파일 감시/태깅 파이프라인 카운터 (/watcher) — GlobalWatcher 생성 후 SecureAgentMain 에서 등록
+    private static volatile Supplier<Map<String, Object>> watcherStats;
+    public static void registerWatcherStats(Supplier<Map<String, Object>> s) { watcherStats = s; }
+
     private enum FailMode { OFF, HTTP_500, TIMEOUT, PERCENT }
     private static volatile FailMode failMode = FailMode.OFF;
     private static volatile long failUntil = 0L;
@@ -287,6 +294,8 @@ public class StatusServer {
         server.createContext("/download-tag", new DownloadTagHandler());
         server.createContext("/metrics", new MetricsHandler());
         server.createContext("/bind-session", new BindSessionHandler());
+        server.createContext("/watcher", new WatcherHandler());
+        server.createContext("/encode-profile", new EncodeProfileHandler());
 
 
         server.setExecutor(null);
@@ -602,6 +611,62 @@ public class StatusServer {
         }
     }
 
+    // 파일 감시 파이프라인 카운터 (overflow/rescan, 단계별 큐 등)
+    static class WatcherHandler implements HttpHandler {
+        private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+        @Override
+        public void handle(HttpExchange ex) {
+            try {
+                if (handleCorsPreflight(ex)) return;
+                Supplier<Map<String, Object>> s = watcherStats;
+                if (s == null) {
+                    sendJson(ex, 503, "{\"ok\":false,\"err\":\"watcher_not_started\"}");
+                    return;
+                }
+                sendJson(ex, 200, GSON.toJson(s.get()));
+            } catch (Exception e) {
+                e.printStackTrace();
+                try { sendJson(ex, 500, "{\"ok\":false}"); } catch (Exception ignore) {}
+            }
+        }
+    }
+
+    // 재인코딩 출력 프로파일 조회/변경 (GET 조회, POST ?mode=auto|fast|balanced|small&smallMaxPx=&fastMinPx=)
+    static class EncodeProfileHandler implements HttpHandler {
+        private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+        @Override
+        public void handle(HttpExchange ex) {
+            try {
+                if (handleCorsPreflight(ex)) return;
+                String method = ex.getRequestMethod();
+                if ("POST".equalsIgnoreCase(method)) {
+                    String q = ex.getRequestURI().getQuery();
+                    String mode = NetFailHandler.getParam(q, "mode", null);
+                    String small = NetFailHandler.getParam(q, "smallMaxPx", null);
+                    String fast = NetFailHandler.getParam(q, "fastMinPx", null);
+                    try {
+                        EncodeProfile.configure(mode,
+                                small == null ? null : Long.valueOf(small),
+                                fast == null ? null : Long.valueOf(fast));
+                    } catch (IllegalArgumentException bad) {                 // 모르는 mode / 숫자 아님
+                        sendJson(ex, 400, "{\"ok\":false,\"err\":\"bad_param\"}");
+                        return;
+                    }
+                    System.out.println("[StatusServer] encode-profile → " + EncodeProfile.policy());
+                } else if (!"GET".equalsIgnoreCase(method)) {
+                    sendJson(ex, 405, "{\"ok\":false}");
+                    return;
+                }
+                sendJson(ex, 200, GSON.toJson(EncodeProfile.policy()));
+            } catch (Exception e) {
+                e.printStackTrace();
+                try { sendJson(ex, 500, "{\"ok\":false}"); } catch (Exception ignore) {}
+            }
+        }
+    }
+
     static class BindSessionHandler implements HttpHandler {
         @Override public void handle(HttpExchange ex) {
             try {
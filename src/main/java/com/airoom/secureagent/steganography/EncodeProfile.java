@@ -0,0 +1,109 @@
+package com.airoom.secureagent.steganography;
+
+import com.airoom.secureagent.util.FileFormat;
+
+import javax.imageio.ImageWriteParam;
+import javax.imageio.plugins.jpeg.JPEGImageWriteParam;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 재인코딩 출력 프로파일 (PNG deflate 레벨 / JPEG 품질·허프만 최적화·프로그레시브)
+ *
+ * 기존에는 writer.getDefaultWriteParam() 그대로 → PNG deflate 4, JPEG 품질 0.75 (표준 허프만 표).
+ * - FAST     : PNG deflate 1, JPEG 표준 표 – 큰 이미지에서 CPU 우선
+ * - BALANCED : PNG deflate 4(기존), JPEG 허프만 최적화 – 무손실로 몇 % 작아지고 시간은 거의 같음
+ * - SMALL    : PNG deflate 9, JPEG 허프만 최적화 + 프로그레시브 – 크기 우선
+ * - JPEG 품질은 세 프로파일 모두 기존과 같은 0.75 (프로파일은 CPU ↔ 크기만 바꾸고 화질은 바꾸지 않음)
+ *   PNG 필터는 JDK 라이터가 행마다 적응형으로 고르고 선택 API 가 없어 프로파일 대상이 아님
+ *
+ * 선택(AUTO): 가로×세로 ≤ smallMaxPx → SMALL, ≥ fastMinPx → FAST, 그 사이 BALANCED
+ *   fastMinPx 기본값은 DispatchLanes 의 FAST/HEAVY 경계(예상 힙 128MB ≈ 16MP) → HEAVY 레인 이미지는 FAST
+ * 고정 · 임계값은 실행 중 StatusServer /encode-profile 로 변경
+ *
+ * 초기값: -Dsecureagent.encode.profile=AUTO|FAST|BALANCED|SMALL,
+ *        -Dsecureagent.encode.smallMaxPx=1000000, -Dsecureagent.encode.fastMinPx=16000000
+ */
+public enum EncodeProfile {
+
+    FAST(1, false, false),
+    BALANCED(4, true, false),
+    SMALL(9, true, true);
+
+    /** 기존 기본값과 같은 JPEG 품질 */
+    public static final float JPEG_QUALITY = 0.75f;
+
+    private final int pngLevel;
+    private final boolean optimizeHuffman;
+    private final boolean progressive;
+
+    EncodeProfile(int pngLevel, boolean optimizeHuffman, boolean progressive) {
+        this.pngLevel = pngLevel;
+        this.optimizeHuffman = optimizeHuffman;
+        this.progressive = progressive;
+    }
+
+    /** null = AUTO (크기로 선택) */
+    private static volatile EncodeProfile fixed = parse(System.getProperty("secureagent.encode.profile", "AUTO"));
+    private static volatile long smallMaxPx = Long.getLong("secureagent.encode.smallMaxPx", 1_000_000L);
+    private static volatile long fastMinPx = Long.getLong("secureagent.encode.fastMinPx", 16_000_000L);
+
+    /** 이미지 크기에 맞는 프로파일 (고정돼 있으면 그 값) */
+    public static EncodeProfile select(long pixels) {
+        EncodeProfile f = fixed;
+        if (f != null) return f;
+        if (pixels <= smallMaxPx) return SMALL;
+        if (pixels >= fastMinPx) return FAST;
+        return BALANCED;
+    }
+
+    /** 라이터 기본 파라미터에 프로파일 적용 */
+    public ImageWriteParam apply(ImageWriteParam p, FileFormat format) {
+        if (!p.canWriteCompressed()) return p;
+        p.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        if (format == FileFormat.PNG) {
+            p.setCompressionQuality(pngQuality(pngLevel));
+        } else if (format == FileFormat.JPEG) {
+            p.setCompressionQuality(JPEG_QUALITY);
+            if (p instanceof JPEGImageWriteParam j) j.setOptimizeHuffmanTables(optimizeHuffman);
+            if (progressive && p.canWriteProgressive()) p.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+        }
+        return p;
+    }
+
+    /** JDK PNG 라이터의 deflate 레벨 = 9 - round(9 × quality) 의 역 */
+    private static float pngQuality(int level) {
+        return (9 - level) / 9f;
+    }
+
+    /**
+     * 실행 중 변경 (/encode-profile) – null 인자는 그대로 둠
+     * @param mode AUTO | FAST | BALANCED | SMALL (대소문자 무시)
+     */
+    public static void configure(String mode, Long smallMax, Long fastMin) {
+        if (mode != null) fixed = parse(mode);
+        if (smallMax != null) smallMaxPx = Math.max(0, smallMax);
+        if (fastMin != null) fastMinPx = Math.max(0, fastMin);
+    }
+
+    private static EncodeProfile parse(String mode) {
+        String m = mode.trim().toUpperCase(Locale.ROOT);
+        return m.equals("AUTO") ? null : valueOf(m);
+    }
+
+    /** 현재 정책 (/encode-profile 응답) */
+    public static Map<String, Object> policy() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        EncodeProfile f = fixed;
+        m.put("mode", f == null ? "AUTO" : f.name());
+        m.put("smallMaxPx", smallMaxPx);
+        m.put("fastMinPx", fastMinPx);
+        return m;
+    }
+
+    @Override public String toString() {
+        return name() + "(png=" + pngLevel + ", jpegQ=" + JPEG_QUALITY + (optimizeHuffman ? ", huff" : "")
+                + (progressive ? ", prog" : "") + ")";
+    }
+}
@@ -5,9 +5,13 @@ import javax.imageio.metadata.IIOMetadata;
 import javax.imageio.metadata.IIOMetadataNode;
 import javax.imageio.stream.ImageInputStream;
 import java.io.File;
+import java.nio.file.Paths;
 import java.util.Base64;
 
 import com.airoom.secureagent.util.CryptoUtil;
+import com.airoom.secureagent.util.FileFormat;
+import com.airoom.secureagent.util.FormatSniffer;
+import com.airoom.secureagent.util.ImageCodecs;
 import org.w3c.dom.NodeList;
 import com.airoom.secureagent.log.LogManager;
 import com.airoom.secureagent.log.HttpLogger;
@@ -20,12 +24,19 @@ public class ImageStegoDecoder {
     private static final String KEYWORD = "StegoPayload";
 
     public static String decode(String path) {
-        String lower = path.toLowerCase();
+        return decode(path, FormatSniffer.sniff(Paths.get(path)));
+    }
 
+    /** 형식을 이미 판별한 호출자용 (매직 바이트 결과) */
+    public static String decode(String path, FileFormat fmt) {
         try {
-            if (lower.endsWith(".png"))
+            /* 헤더 구간만 훑는 빠른 조회 (splice·재인코딩 결과 모두 같은 위치) → 없으면 ImageIO 메타데이터 */
+            String b64 = MetadataSplicer.readText(Paths.get(path), fmt, KEYWORD);
+            if (b64 != null) return CryptoUtil.decryptFromBytes(Base64.getDecoder().decode(b64));
+
+            if (fmt == FileFormat.PNG)
                 return decodePng(path);
-            else if (lower.matches(".*\\.(jpe?g)$"))
+            else if (fmt == FileFormat.JPEG)
                 return decodeJpeg(path);
             else {
                 log("[Decode] 형식 미지원", path);
@@ -39,8 +50,8 @@ public class ImageStegoDecoder {
 
     /* ---------- PNG ---------- */
     private static String decodePng(String path) {
+        ImageReader r = ImageCodecs.reader(FileFormat.PNG);
         try (ImageInputStream iis = ImageIO.createImageInputStream(new File(path))) {
-            ImageReader r = ImageIO.getImageReadersByFormatName("png").next();
             r.setInput(iis, true);
 
             IIOMetadata meta = r.getImageMetadata(0);            // (1) 메타 읽기
@@ -56,19 +67,31 @@ public class ImageStegoDecoder {
                     return CryptoUtil.decryptFromBytes(enc);
                 }
             }
+            // 메타데이터가 지워진 재저장·잘라낸 사본 → 픽셀 LSB 에서 (같은 reader 로 이어서 디코딩)
+            String lsb = decodeLsb(r);
+            if (lsb != null) return lsb;
             log("[Decode] Stego 키 없음", path);
             return null;
 
         } catch (Exception e) {
             log("[Decode] 메타데이터 읽기 실패: " + e.getMessage(), path);
             return null;
+        } finally {
+            ImageCodecs.release(FileFormat.PNG, r);
         }
     }
 
+    /** LsbCodec 사본 (삽입 설정과 무관 – 다른 설정의 에이전트가 만든 파일도) – 초대형 이미지는 건너뜀 */
+    private static String decodeLsb(ImageReader r) throws Exception {
+        if ((long) r.getWidth(0) * r.getHeight(0) >= StripImageSource.STREAM_MIN_PX) return null;
+        byte[] enc = LsbCodec.extract(r.read(0));
+        return enc == null ? null : CryptoUtil.decryptFromBytes(enc);
+    }
+
     /* ---------- JPEG ---------- */
     private static String decodeJpeg(String path) {
+        ImageReader r = ImageCodecs.reader(FileFormat.JPEG);
         try (ImageInputStream iis = ImageIO.createImageInputStream(new File(path))) {
-            ImageReader r = ImageIO.getImageReadersByFormatName("jpeg").next();
             r.setInput(iis, true);
 
             IIOMetadata meta = r.getImageMetadata(0);
@@ -90,6 +113,8 @@ public class ImageStegoDecoder {
         } catch (Exception e) {
             log("[Decode] 메타데이터 읽기 실패: " + e.getMessage(), path);
             return null;
+        } finally {
+            ImageCodecs.release(FileFormat.JPEG, r);
         }
     }
 
@@ -1,14 +1,22 @@
 package com.airoom.secureagent.steganography;
 
 import com.airoom.secureagent.util.CryptoUtil;
+import com.airoom.secureagent.util.FileFormat;
+import com.airoom.secureagent.util.FormatSniffer;
+import com.airoom.secureagent.util.ImageCodecs;
+import com.airoom.secureagent.util.ImageHeader;
+import com.airoom.secureagent.util.SelfWriteLedger;
+import com.airoom.secureagent.watermark.WatermarkStamp;
 
 import javax.imageio.*;
 import javax.imageio.metadata.IIOMetadata;
 import javax.imageio.metadata.IIOMetadataNode;
 import javax.imageio.stream.ImageOutputStream;
 import java.awt.*;
+import java.awt.color.ColorSpace;
 import java.awt.image.BufferedImage;
-import java.io.File;
+import java.awt.image.ColorModel;
+import java.awt.image.IndexColorModel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -20,6 +28,18 @@ import java.util.Base64;
  * JPEG : COM marker "StegoPayload:<base64>"
  * + 대각선 반투명 워터마크
  *
+ * 워터마크가 사실상 보이지 않는 불투명도(기본 0.004 ≈ 알파 1/255)이면
+ * MetadataSplicer 로 PNG tEXt 청크 / JPEG COM 세그먼트만 삽입
+ * (픽셀 디코딩/재인코딩 없음 → JPEG 재압축 화질 손실도 없음, 정책: -Dsecureagent.embed.mode)
+ *
+ * 출력 압축은 EncodeProfile (FAST / BALANCED / SMALL, 이미지 크기별 또는 /encode-profile 고정)
+ *
+ * 팔레트·회색조 원본은 ColorModel·비트 깊이를 유지한 채 워터마크 (keepsColorModel)
+ *
+ * 초대형 이미지(기본 50MP 이상)는 StripImageSource 로 strip 단위 읽기·합성·기록 (메모리 = strip 크기)
+ *
+ * -Dsecureagent.lsb.enabled=true 이면 재인코딩 PNG(INT 래스터)에 같은 암호문을 픽셀 LSB 에도 반복 삽입 (LsbCodec – 메타데이터가 지워진 재저장·잘라내기 대비)
+ *
  * [변경 요약]
  * - (신규) encPayloadB64(이미 암호화된 Base64 본문)를 직접 받는 오버로드 추가
  * - 기존 encode(String payload, ...)은 유지하되 내부적으로 암호화→오버로드 호출
@@ -53,49 +73,82 @@ public class ImageStegoWithWatermarkEncoder {
      */
     public static boolean encodeEncrypted(String input, String output,
                                           String encPayloadB64, String wmText, float opacity) {
+        return encodeEncrypted(input, output, encPayloadB64, wmText, opacity, FormatSniffer.sniff(Paths.get(input)));
+    }
+
+    /**
+     * 형식을 이미 판별한 호출자용 (파이프라인 분류 단계의 매직 바이트 결과)
+     * - 확장자와 달라도 실제 형식으로 다시 쓴다(.jpg 이름의 PNG → PNG 로 기록)
+     */
+    public static boolean encodeEncrypted(String input, String output,
+                                          String encPayloadB64, String wmText, float opacity,
+                                          FileFormat format) {
+        StripImageSource strips = null;
+        ImageWriter writer = null;
         try {
             /* 포맷 판별 */
-            boolean isPng  = input.toLowerCase().endsWith(".png");
-            boolean isJpeg = input.toLowerCase().matches(".*\\.(jpe?g)$");
+            boolean isPng  = format == FileFormat.PNG;
+            boolean isJpeg = format == FileFormat.JPEG;
             if (!isPng && !isJpeg) return false;
 
-            /* 1) 원본 이미지 */
-            BufferedImage src = ImageIO.read(new File(input));
-            if (src == null) throw new IllegalStateException("이미지 로드 실패: " + input);
+            /* 0) 메타데이터만 삽입 (워터마크가 보이지 않는 경우) – 실패하면 아래 재인코딩으로 */
+            if (MetadataSplicer.applies(format, opacity)
+                    && MetadataSplicer.splice(format, Paths.get(input), Paths.get(output), KEYWORD, encPayloadB64)) {
+                System.out.println("[ImageStegoWithWatermarkEncoder] 완료(splice): " + output);
+                return true;
+            }
 
-            /* 2) 워터마크 오버레이 */
+            /* 1) 원본 이미지 */
             int targetType = (isJpeg ? BufferedImage.TYPE_INT_RGB   // ★ JPEG: 알파 없는 RGB
                     : BufferedImage.TYPE_INT_ARGB); // PNG : 알파 유지
-            BufferedImage dst = new BufferedImage(src.getWidth(), src.getHeight(), targetType);
-            Graphics2D g = dst.createGraphics();
-            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-            g.drawImage(src, 0, 0, null);
-
-            // 투명도 적용 — JPEG 의 경우 알파가 flatten 되지만, 효과는 남음
-            g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, Math.max(0f, Math.min(1f, opacity))));
-
-            // 기존: 고정 40px → 화면 스케일에 따른 동적 폰트/간격
-            float scale = Math.max(src.getWidth(), src.getHeight()) / 1000f; // 1000px 기준
-            int fontPx = Math.max(14, Math.round(40 * scale)); // 최소 14 px
-            int stepX  = Math.max(120, Math.round(300 * scale)); // 최소 간격
-            int stepY  = Math.max( 80, Math.round(200 * scale));
-            g.setFont(new Font("Arial", Font.BOLD, fontPx));
-            g.setColor(new Color(255, 0, 0, Math.round(Math.max(0f, Math.min(1f, opacity)) * 255)));
-
-            for (int x = 0; x < dst.getWidth(); x += stepX) {
-                for (int y = 0; y < dst.getHeight(); y += stepY) {
-                    g.rotate(Math.toRadians(-30), x, y);
-                    g.drawString(wmText, x, y);
-                    g.rotate(Math.toRadians(30), x, y);
+            float alpha = Math.max(0f, Math.min(1f, opacity));
+            BufferedImage dst;
+            // 픽셀 LSB 사본: 무손실(PNG)만 – JPEG 양자화는 최하위 비트를 남기지 않음
+            int[] lsbTile = isPng && LsbCodec.enabled()
+                    ? LsbCodec.tile(Base64.getDecoder().decode(encPayloadB64)) : null;
+
+            int[] wh = ImageHeader.dimensions(Paths.get(input), format);
+            if (StripImageSource.applies(wh)) {
+                /* 1-a) 초대형: strip 단위로 읽어 워터마크를 입히며 바로 기록 (전체 픽셀을 올리지 않음) */
+                int w = wh[0], h = wh[1];
+                int[] grid = grid(w, h);
+                WatermarkStamp.Stamp stamp = stamp(wmText, grid[0], alpha);
+                strips = StripImageSource.open(Paths.get(input), format, isPng, (px, sw, y0, y1) -> {
+                    WatermarkStamp.applyRows(px, sw, h, stamp, grid[1], grid[2], y0, y1, isPng);
+                    if (lsbTile != null) LsbCodec.embedRows(px, sw, lsbTile, y0, y1);
+                });
+                dst = strips.image();
+                System.out.println("[ImageStegoWithWatermarkEncoder] strip 인코딩: " + w + "x" + h
+                        + " (" + strips.stripRows() + "행 단위, " + (strips.sequential() ? "순차" : "영역")
+                        + ") " + input);
+            } else {
+                BufferedImage src = ImageCodecs.read(Paths.get(input), format);
+                if (src == null) throw new IllegalStateException("이미지 로드 실패: " + input);
+
+                /* 2) 워터마크 오버레이 – 회색조/팔레트 원본은 그 형식 그대로, 그 외는 INT 사본에 */
+                if (keepsColorModel(src, isPng)) {
+                    dst = src;
+                } else {
+                    dst = new BufferedImage(src.getWidth(), src.getHeight(), targetType);
+                    Graphics2D g = dst.createGraphics();
+                    g.drawImage(src, 0, 0, null);
+                    g.dispose();
                 }
+
+                // 회전 텍스트는 이미지당 한 번만 래스터화, 격자 칸마다 글자 픽셀만 합성
+                int[] grid = grid(src.getWidth(), src.getHeight());
+                WatermarkStamp.apply(dst, stamp(wmText, grid[0], alpha), grid[1], grid[2]);
+
+                /* 3) 픽셀 LSB – 팔레트·회색조 유지 경로는 INT 래스터가 아니라 건너뜀 */
+                if (lsbTile != null) LsbCodec.embed(dst, lsbTile);
             }
-            g.dispose();
 
-            String fmt = isPng ? "png" : "jpeg";
-            ImageWriter writer = ImageIO.getImageWritersByFormatName(fmt).next();
-            ImageWriteParam param = writer.getDefaultWriteParam();
+            writer = ImageCodecs.writer(format);
+            // 출력 프로파일 (크기별 deflate 레벨 / JPEG 허프만 최적화 등)
+            // strip 경로 JPEG 는 FAST 고정 – 허프만 최적화·프로그레시브는 libjpeg 가 전체 계수 버퍼를 잡음
+            EncodeProfile profile = strips != null && isJpeg ? EncodeProfile.FAST
+                    : EncodeProfile.select((long) dst.getWidth() * dst.getHeight());
+            ImageWriteParam param = profile.apply(writer.getDefaultWriteParam(), format);
 
             /* 3) 메타데이터 */
             ImageTypeSpecifier spec = ImageTypeSpecifier.createFromRenderedImage(dst);
@@ -128,13 +181,15 @@ public class ImageStegoWithWatermarkEncoder {
                 writer.setOutput(ios);
                 writer.write(null, new IIOImage(dst, null, meta), param);
                 ios.flush();
-                writer.dispose();
             }
+            ImageCodecs.release(format, writer);
+            writer = null;
 
             /* 5) 한 번의 시스템 호출로 교체 */
             Files.move(tmp, orig,
                     StandardCopyOption.ATOMIC_MOVE,
                     StandardCopyOption.REPLACE_EXISTING);
+            SelfWriteLedger.record(orig);   // 교체의 첫 이벤트는 워처가 I/O 없이, 나머지는 안정화 단계에서 버림
             System.out.println("[ImageStegoWithWatermarkEncoder] 완료: " + output);
             return true;
 
@@ -142,9 +197,50 @@ public class ImageStegoWithWatermarkEncoder {
             System.err.println("[ImageStegoWithWatermarkEncoder] 오류(encodeEncrypted): " + e.getMessage());
             e.printStackTrace();
             return false;
+        } finally {
+            if (writer != null) ImageCodecs.release(format, writer, false);   // 기록 중 실패 → 폐기
+            if (strips != null) {
+                try { strips.close(); } catch (Exception ignore) {}
+            }
         }
     }
 
+    /**
+     * 원본 ColorModel 을 유지할지 (-Dsecureagent.encode.keepColorModel=false 면 항상 INT 변환)
+     * - 8bit 이하 팔레트 PNG, 회색조 PNG(8/16bit, 알파 포함), 회색조 JPEG
+     *   INT_(A)RGB 로 바꾸면 PNG 는 채널 수·비트 깊이만큼 3~4배 커지고 JPEG 는 색 성분이 생김
+     * - 워터마크는 Java2D 가 대상 형식으로 합성 (회색조는 휘도, 팔레트는 가까운 팔레트 색)
+     * - 16bit RGB, CMYK 등은 기존대로 INT 변환
+     */
+    static boolean keepsColorModel(BufferedImage src, boolean isPng) {
+        if ("false".equalsIgnoreCase(System.getProperty("secureagent.encode.keepColorModel"))) return false;
+        ColorModel cm = src.getColorModel();
+        if (cm instanceof IndexColorModel) return isPng;
+        if (cm.getColorSpace().getType() != ColorSpace.TYPE_GRAY) return false;
+        return isPng || src.getType() == BufferedImage.TYPE_BYTE_GRAY;
+    }
+
+    /**
+     * 이미지 크기별 워터마크 격자 {fontPx, stepX, stepY}
+     * 기존: 고정 40px → 화면 스케일에 따른 동적 폰트/간격
+     */
+    private static int[] grid(int w, int h) {
+        float scale = Math.max(w, h) / 1000f; // 1000px 기준
+        int fontPx = Math.max(14, Math.round(40 * scale)); // 최소 14 px
+        int stepX  = Math.max(120, Math.round(300 * scale)); // 최소 간격
+        int stepY  = Math.max( 80, Math.round(200 * scale));
+        return new int[]{fontPx, stepX, stepY};
+    }
+
+    /**
+     * 투명도 적용 — JPEG 의 경우 알파가 flatten 되지만, 효과는 남음
+     * - 문구에 파일별 토큰·시각이 들어가 다시 쓰이지 않으므로 캐시하지 않음 (WatermarkStamp.render)
+     */
+    private static WatermarkStamp.Stamp stamp(String wmText, int fontPx, float alpha) {
+        return WatermarkStamp.render(wmText, new Font("Arial", Font.BOLD, fontPx),
+                new Color(255, 0, 0, Math.round(alpha * 255)), alpha);
+    }
+
     /* util */
     private static IIOMetadataNode getOrCreate(IIOMetadataNode parent, String name) {
         for (int i = 0; i < parent.getLength(); i++)
@@ -0,0 +1,274 @@
+package com.airoom.secureagent.steganography;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.zip.CRC32;
+
+/**
+ * 픽셀 영역 LSB 삽입 · 추출 (int[] ARGB/RGB 래스터, 파랑 채널 최하위 비트)
+ *
+ * PNG tEXt / JPEG COM 태그는 다시 저장하거나 화면을 캡처·잘라내면 사라진다.
+ * 켜 두면 재인코딩 PNG 에는 같은 암호문을 픽셀에도 넣어 둔다 (무손실 저장 · 잘라내기까지 유지, JPEG 재압축은 불가).
+ *
+ * - 프레임: SYNC(32bit) + 길이(16bit) + 암호문 + CRC32(길이+암호문) – MSB 먼저
+ * - 반복 부호: TILE×TILE 타일의 칸 c 에 프레임 비트 (c mod 프레임 길이) → 타일 안에서도 여러 번 반복,
+ *   타일은 이미지 전체에 (x mod TILE, y mod TILE) 로 깔림
+ * - 백색화: 칸마다 고정 의사난수 비트와 XOR (평탄한 영역에서도 LSB 평면에 무늬가 생기지 않음)
+ * - 추출: 이미지 전체를 (x mod TILE, y mod TILE) 위상별 1 의 개수로 한 번에 누적 → 위상별 다수결
+ *   잘라낸 이미지는 타일 시작점(오프셋)을 모르므로 TILE² 개 오프셋에서 SYNC 를 맞춰 보고
+ *   맞는 후보만 전체 칸 다수결 + CRC 로 확인 (TILE×TILE 이상 남아 있으면 복구)
+ * - 행 루프(LSB 교체 / 위상별 누적)는 Vector API(jdk.incubator.vector) 구현, 모듈이 없으면 스칼라
+ *   실행 옵션 --add-modules jdk.incubator.vector 가 빠지면 자동으로 스칼라, -Dsecureagent.lsb.vector=false 로 강제
+ *
+ * 비용: 평탄한 화면(스크린샷) PNG 는 LSB 평면이 잡음이 되어 deflate 효율이 떨어짐 (4K 스크린샷 2~3배, 사진은 거의 그대로)
+ * 켜기: -Dsecureagent.lsb.enabled=true (기본 꺼짐) – 삽입만 해당, 재인코딩 경로(REENCODE 또는 AUTO 의 spliceAlpha 초과)에서만
+ *       기본 AUTO 의 splice 는 픽셀을 건드리지 않으므로 그대로. 디코더의 픽셀 복구는 설정과 무관하게 시도
+ */
+public final class LsbCodec {
+
+    /** 타일 한 변 (벡터 길이 4~16 의 배수) – 잘라낸 이미지가 이보다 작으면 복구 불가 */
+    public static final int TILE = 128;
+    private static final int CELLS = TILE * TILE;
+
+    private static final int SYNC = 0x5A17C0DE;
+    private static final int SYNC_BITS = 32, LEN_BITS = 16, CRC_BITS = 32;
+    /** 한 타일에 프레임이 한 번은 들어가는 최대 암호문 크기 */
+    public static final int MAX_PAYLOAD = (CELLS - SYNC_BITS - LEN_BITS - CRC_BITS) / 8;
+
+    /** SYNC 32비트 중 이만큼 맞으면 후보 (위상별 다수결이 일부 틀려도 CRC 로 거름) */
+    private static final int SYNC_MIN_MATCH = 29;
+    private static final int MAX_CANDIDATES = 16;
+    /** 추출 시 getRGB 로 한 번에 변환하는 행 수 (INT 래스터가 아닌 이미지) */
+    private static final int BAND_ROWS = 256;
+
+    private static final int[] PATTERN = pattern();
+    private static final LsbKernel SCALAR = new ScalarLsbKernel();
+    private static final LsbKernel KERNEL = pickKernel();
+
+    private LsbCodec() {}
+
+    public static boolean enabled() {
+        return Boolean.getBoolean("secureagent.lsb.enabled");
+    }
+
+    /** 사용 중인 행 루프 구현 (로그 · 벤치용) */
+    public static String kernel() { return KERNEL.name(); }
+
+    public static boolean vectorAvailable() { return KERNEL != SCALAR; }
+
+    /* ---------- 삽입 ---------- */
+
+    /**
+     * 암호문 → 타일 비트 (TILE×TILE, 0/1, 백색화 포함) – 이미지 · strip 마다 재사용
+     * @return 암호문이 MAX_PAYLOAD 보다 크면 null
+     */
+    public static int[] tile(byte[] payload) {
+        if (payload == null || payload.length > MAX_PAYLOAD) return null;
+        int[] frame = frameBits(payload);
+        int[] tile = new int[CELLS];
+        for (int c = 0; c < CELLS; c++) tile[c] = frame[c % frame.length] ^ PATTERN[c];
+        return tile;
+    }
+
+    /**
+     * INT_RGB / INT_ARGB 이미지에 직접 삽입
+     * @return 다른 형식(팔레트 · 회색조 · 바이트 래스터) 이거나 암호문이 너무 크면 false
+     */
+    public static boolean embed(BufferedImage img, byte[] payload) {
+        int[] tile = tile(payload);
+        return tile != null && embed(img, tile);
+    }
+
+    /** 미리 만든 타일로 삽입 (INT_RGB / INT_ARGB 만) */
+    public static boolean embed(BufferedImage img, int[] tile) {
+        int type = img.getType();
+        if (type != BufferedImage.TYPE_INT_RGB && type != BufferedImage.TYPE_INT_ARGB) return false;
+        int[] px = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+        embedRows(px, img.getWidth(), tile, 0, img.getHeight(), KERNEL);
+        return true;
+    }
+
+    /** 이미지 행 [y0, y1) 에 삽입 – px 의 0 행이 이미지 y0 행 (스트리밍 인코딩의 strip) */
+    public static void embedRows(int[] px, int w, int[] tile, int y0, int y1) {
+        embedRows(px, w, tile, y0, y1, KERNEL);
+    }
+
+    /** 구현 지정 삽입 (벤치 · 검증용) – vector 인데 모듈이 없으면 스칼라 */
+    public static void embed(int[] px, int w, int h, int[] tile, boolean vector) {
+        embedRows(px, w, tile, 0, h, vector ? KERNEL : SCALAR);
+    }
+
+    private static void embedRows(int[] px, int w, int[] tile, int y0, int y1, LsbKernel k) {
+        for (int y = y0; y < y1; y++) {
+            k.embedRow(px, (y - y0) * w, w, tile, (y % TILE) * TILE, TILE);
+        }
+    }
+
+    /* ---------- 추출 ---------- */
+
+    /** 이미지에서 암호문 (없거나 CRC 불일치면 null) */
+    public static byte[] extract(BufferedImage img) {
+        int w = img.getWidth(), h = img.getHeight();
+        Votes v = new Votes(w);
+        int type = img.getType();
+        if (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB) {
+            v.add(((DataBufferInt) img.getRaster().getDataBuffer()).getData(), 0, h, KERNEL);
+        } else {
+            int[] band = new int[w * Math.min(h, BAND_ROWS)];
+            for (int y0 = 0; y0 < h; y0 += BAND_ROWS) {
+                int n = Math.min(BAND_ROWS, h - y0);
+                img.getRGB(0, y0, w, n, band, 0, w);                       // 8bit 채널 → 원래 LSB 그대로
+                v.add(band, y0, y0 + n, KERNEL);
+            }
+        }
+        return v.decode();
+    }
+
+    /** 구현 지정 추출 (벤치 · 검증용) */
+    public static byte[] extract(int[] px, int w, int h, boolean vector) {
+        Votes v = new Votes(w);
+        v.add(px, 0, h, vector ? KERNEL : SCALAR);
+        return v.decode();
+    }
+
+    /** 위상(x mod TILE, y mod TILE)별 LSB 1 의 개수 */
+    private static final class Votes {
+        final int w;
+        final int[] ones = new int[CELLS];
+        final int[] rows = new int[TILE];
+
+        Votes(int w) { this.w = w; }
+
+        /** px 의 0 행이 이미지 y0 행 */
+        void add(int[] px, int y0, int y1, LsbKernel k) {
+            for (int y = y0; y < y1; y++) {
+                k.accumulateRow(px, (y - y0) * w, w, ones, (y % TILE) * TILE, TILE);
+                rows[y % TILE]++;
+            }
+        }
+
+        byte[] decode() {
+            // 위상별 부호 있는 표: 양수 = 1 이 많음, 0 = 표본 없음 / 동률
+            int[] vote = new int[CELLS];
+            for (int py = 0; py < TILE; py++) {
+                for (int pxp = 0; pxp < TILE; pxp++) {
+                    int count = rows[py] * (w / TILE + (pxp < w % TILE ? 1 : 0));
+                    vote[py * TILE + pxp] = 2 * ones[py * TILE + pxp] - count;
+                }
+            }
+            for (long cand : syncCandidates(vote)) {
+                byte[] p = decodeAt(vote, (int) (cand >>> 32) & 0xFFFF, (int) cand & 0xFFFF);
+                if (p != null) return p;
+            }
+            return null;
+        }
+    }
+
+    /** 타일 칸 (cx, cy) 가 놓인 이미지 위상 – 오프셋 (ox, oy) 는 잘린 이미지 (0,0) 의 타일 칸 */
+    private static int phase(int cx, int cy, int ox, int oy) {
+        return Math.floorMod(cy - oy, TILE) * TILE + Math.floorMod(cx - ox, TILE);
+    }
+
+    /** SYNC 가 SYNC_MIN_MATCH 비트 이상 맞는 오프셋, 점수 높은 순 (점수<<40 | ox<<32 | oy 로 정렬 후 반환) */
+    private static long[] syncCandidates(int[] vote) {
+        List<long[]> found = new ArrayList<>();
+        for (int oy = 0; oy < TILE; oy++) {
+            for (int ox = 0; ox < TILE; ox++) {
+                int score = 0;
+                for (int j = 0; j < SYNC_BITS; j++) {                       // 프레임 첫 비트들 = 칸 (j, 0)
+                    int v = vote[phase(j, 0, ox, oy)];
+                    if (v == 0) continue;
+                    int bit = (v > 0 ? 1 : 0) ^ PATTERN[j];
+                    if (bit == ((SYNC >>> (SYNC_BITS - 1 - j)) & 1)) score++;
+                }
+                if (score >= SYNC_MIN_MATCH) found.add(new long[]{score, (long) ox << 32 | oy});
+            }
+        }
+        found.sort((a, b) -> Long.compare(b[0], a[0]));
+        int n = Math.min(MAX_CANDIDATES, found.size());
+        long[] out = new long[n];
+        for (int i = 0; i < n; i++) out[i] = found.get(i)[1];
+        return out;
+    }
+
+    /** 오프셋 가정하에 전체 칸 다수결로 프레임 복원 → CRC 확인 */
+    private static byte[] decodeAt(int[] vote, int ox, int oy) {
+        // 길이는 첫 반복(칸 32..47)에서 – 프레임 길이를 알아야 나머지 반복을 모을 수 있음
+        int len = 0;
+        for (int j = SYNC_BITS; j < SYNC_BITS + LEN_BITS; j++) {
+            int v = vote[phase(j % TILE, j / TILE, ox, oy)];
+            len = len << 1 | ((v > 0 ? 1 : 0) ^ PATTERN[j]);
+        }
+        if (len > MAX_PAYLOAD) return null;
+        int frameLen = SYNC_BITS + LEN_BITS + 8 * len + CRC_BITS;
+
+        long[] sum = new long[frameLen];
+        for (int c = 0; c < CELLS; c++) {
+            int v = vote[phase(c % TILE, c / TILE, ox, oy)];
+            sum[c % frameLen] += PATTERN[c] == 1 ? -v : v;
+        }
+        int[] bits = new int[frameLen];
+        for (int j = 0; j < frameLen; j++) bits[j] = sum[j] > 0 ? 1 : 0;
+
+        if (read(bits, 0, SYNC_BITS) != SYNC || read(bits, SYNC_BITS, LEN_BITS) != len) return null;
+        byte[] payload = new byte[len];
+        for (int i = 0; i < len; i++) payload[i] = (byte) read(bits, SYNC_BITS + LEN_BITS + 8 * i, 8);
+        int crc = read(bits, frameLen - CRC_BITS, CRC_BITS);
+        return crc == crc(len, payload) ? payload : null;
+    }
+
+    /* ---------- 프레임 ---------- */
+
+    private static int[] frameBits(byte[] payload) {
+        int len = payload.length;
+        int[] bits = new int[SYNC_BITS + LEN_BITS + 8 * len + CRC_BITS];
+        int i = write(bits, 0, SYNC, SYNC_BITS);
+        i = write(bits, i, len, LEN_BITS);
+        for (byte b : payload) i = write(bits, i, b & 0xFF, 8);
+        write(bits, i, crc(len, payload), CRC_BITS);
+        return bits;
+    }
+
+    private static int write(int[] bits, int at, int value, int n) {
+        for (int k = n - 1; k >= 0; k--) bits[at++] = (value >>> k) & 1;
+        return at;
+    }
+
+    private static int read(int[] bits, int at, int n) {
+        int v = 0;
+        for (int k = 0; k < n; k++) v = v << 1 | bits[at + k];
+        return v;
+    }
+
+    private static int crc(int len, byte[] payload) {
+        CRC32 c = new CRC32();
+        c.update(len >>> 8);
+        c.update(len);
+        c.update(payload);
+        return (int) c.getValue();
+    }
+
+    /** 칸별 백색화 비트 (고정 시드 – 삽입 · 추출이 같은 값) */
+    private static int[] pattern() {
+        SplittableRandom r = new SplittableRandom(0x41524F4F4D4C5342L);
+        int[] p = new int[CELLS];
+        Arrays.setAll(p, i -> r.nextInt(2));
+        return p;
+    }
+
+    private static LsbKernel pickKernel() {
+        if ("false".equalsIgnoreCase(System.getProperty("secureagent.lsb.vector"))) return SCALAR;
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) return SCALAR;
+        try {
+            return (LsbKernel) Class.forName(LsbCodec.class.getPackageName() + ".VectorLsbKernel")
+                    .getDeclaredConstructor().newInstance();
+        } catch (Throwable t) {                                             // 모듈은 있는데 링크 실패 등
+            System.err.println("[LsbCodec] Vector API 사용 불가 → 스칼라: " + t);
+            return SCALAR;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.airoom.secureagent.steganography;
+
+/**
+ * LsbCodec 의 행 단위 픽셀 루프 (Vector API 구현 / 스칼라 구현)
+ *
+ * 모든 행은 이미지 x = 0 부터 시작, 타일 열 위상 = x % tileW (tileW 는 벡터 길이의 배수)
+ */
+interface LsbKernel {
+
+    /** px[off + x] 의 최하위 비트를 tile[tileOff + x % tileW] (0/1) 로 교체, x ∈ [0, len) */
+    void embedRow(int[] px, int off, int len, int[] tile, int tileOff, int tileW);
+
+    /** ones[onesOff + x % tileW] += px[off + x] & 1, x ∈ [0, len) */
+    void accumulateRow(int[] px, int off, int len, int[] ones, int onesOff, int tileW);
+
+    String name();
+}
@@ -0,0 +1,277 @@
+package com.airoom.secureagent.steganography;
+
+import com.airoom.secureagent.util.FileFormat;
+import com.airoom.secureagent.util.SelfWriteLedger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * 픽셀 디코딩 없이 메타데이터만 끼워 넣는 삽입 (splice)
+ *
+ * 기본 워터마크 불투명도 0.004 는 알파로 약 1/255 → 눈에 보이는 효과가 거의 없는데도
+ * 전체 디코딩 → 워터마크 그리기 → ImageIO 재인코딩을 하고 있었다. 이 경우 청크만 덧붙인다.
+ *
+ * - PNG  : 청크 헤더(길이+타입 8B)만 읽어 첫 IDAT 위치를 찾고,
+ *          [시그니처 ~ IDAT 직전] + tEXt "StegoPayload" + [IDAT ~ 끝] 을 FileChannel.transferTo 로 복사
+ *          → 픽셀·기존 청크는 바이트 그대로, CRC 는 새 청크만 계산
+ * - JPEG : 세그먼트 헤더(마커+길이 4B)만 읽어 SOI / APPn(EXIF·JFIF·ICC) 뒤 위치를 찾고,
+ *          [SOI ~ APPn 끝] + COM "StegoPayload:<b64>" + [나머지] 를 같은 방식으로 복사
+ *          → 재압축이 없으므로 화질·엔트로피 데이터는 그대로, 파일 크기는 COM 세그먼트만큼만 증가
+ * - 결과는 tmp 에 쓰고 ATOMIC_MOVE (인코더와 같은 교체 방식 + SelfWriteLedger 기록)
+ * - 구조가 이상하면(IDAT 없음, 길이 초과) false → 호출자는 기존 재인코딩으로
+ *
+ * - readText : 디코더용 빠른 조회 – PNG 는 IDAT 전까지의 tEXt, JPEG 는 SOS 전까지의 COM 만 훑음
+ *
+ * 모드: -Dsecureagent.embed.mode=AUTO | SPLICE | REENCODE (기본 AUTO)
+ *   AUTO : round(opacity × 255) ≤ -Dsecureagent.embed.spliceAlpha (기본 1) 이면 splice
+ *   (픽셀 LSB 사본은 재인코딩 경로에서만 – LsbCodec 참고)
+ */
+public final class MetadataSplicer {
+
+    public enum Mode { AUTO, SPLICE, REENCODE }
+
+    private static final byte[] PNG_SIG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int IDAT = 0x49444154;
+    private static final int IEND = 0x49454E44;
+    private static final int TEXT = 0x74455874;
+
+    private static final int SOI = 0xD8, EOI = 0xD9, SOS = 0xDA, COM = 0xFE;
+    /** COM 세그먼트 길이 필드(2B)가 담을 수 있는 최대 본문 */
+    private static final int MAX_SEGMENT = 0xFFFF - 2;
+
+    private MetadataSplicer() {}
+
+    public static Mode mode() {
+        try {
+            return Mode.valueOf(System.getProperty("secureagent.embed.mode", "AUTO").trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return Mode.AUTO;
+        }
+    }
+
+    /** 이 형식·불투명도에서 splice 를 쓸지 (정책 또는 실효 알파 기준) */
+    public static boolean applies(FileFormat format, float opacity) {
+        if (format != FileFormat.PNG && format != FileFormat.JPEG) return false;
+        return switch (mode()) {
+            case SPLICE   -> true;
+            case REENCODE -> false;
+            case AUTO     -> Math.round(Math.max(0f, Math.min(1f, opacity)) * 255)
+                    <= Integer.getInteger("secureagent.embed.spliceAlpha", 1);
+        };
+    }
+
+    /**
+     * 형식에 맞게 삽입 (PNG → tEXt, JPEG → COM "keyword:value")
+     * @return 성공 여부 (false 면 아무 파일도 바꾸지 않음)
+     */
+    public static boolean splice(FileFormat format, Path input, Path output, String keyword, String value)
+            throws IOException {
+        return switch (format) {
+            case PNG  -> splicePng(input, output, keyword, value);
+            case JPEG -> spliceJpeg(input, output, keyword + ":" + value);
+            default   -> false;
+        };
+    }
+
+    /** PNG 에 tEXt(keyword, value) 청크를 첫 IDAT 앞에 삽입 */
+    public static boolean splicePng(Path input, Path output, String keyword, String value) throws IOException {
+        return insert(input, output, MetadataSplicer::findFirstIdat, () -> textChunk(keyword, value));
+    }
+
+    /** JPEG 에 COM(comment) 세그먼트를 SOI / APPn 바로 뒤에 삽입 (재압축 없음) */
+    public static boolean spliceJpeg(Path input, Path output, String comment) throws IOException {
+        byte[] body = comment.getBytes(StandardCharsets.ISO_8859_1);
+        if (body.length > MAX_SEGMENT) return false;
+        return insert(input, output, MetadataSplicer::findAfterAppSegments, () -> comSegment(body));
+    }
+
+    /**
+     * 삽입 시그니처 조회: PNG 는 첫 IDAT 전 tEXt(keyword), JPEG 는 SOS 전 COM "keyword:..."
+     * @return value (없거나 구조가 이상하면 null → 호출자는 ImageIO 메타데이터로 재확인)
+     */
+    public static String readText(Path f, FileFormat format, String keyword) {
+        try (FileChannel ch = FileChannel.open(f, READ)) {
+            return switch (format) {
+                case PNG  -> readPngText(ch, keyword);
+                case JPEG -> readJpegComment(ch, keyword + ":");
+                default   -> null;
+            };
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private interface Locator { long find(FileChannel ch) throws IOException; }
+    private interface Segment { ByteBuffer build(); }
+
+    /** [0, at) + segment + [at, 끝) 을 tmp 에 쓰고 교체 */
+    private static boolean insert(Path input, Path output, Locator locator, Segment segment) throws IOException {
+        Path tmp = Files.createTempFile(output.toAbsolutePath().getParent(), "aidt_", ".tmp");
+        boolean moved = false;
+        try {
+            try (FileChannel in = FileChannel.open(input, READ)) {
+                long at = locator.find(in);
+                if (at < 0) return false;
+
+                try (FileChannel out = FileChannel.open(tmp, WRITE)) {
+                    copy(in, 0, at, out);
+                    ByteBuffer seg = segment.build();
+                    while (seg.hasRemaining()) out.write(seg);
+                    copy(in, at, in.size() - at, out);
+                    out.force(false);
+                }
+            }
+            Files.move(tmp, output, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            moved = true;
+        } finally {
+            if (!moved) Files.deleteIfExists(tmp);
+        }
+        SelfWriteLedger.record(output);
+        return true;
+    }
+
+    /** 첫 IDAT 청크의 시작 오프셋, 구조가 이상하면 -1 */
+    private static long findFirstIdat(FileChannel ch) throws IOException {
+        long size = ch.size();
+        ByteBuffer head = ByteBuffer.allocate(8);
+        if (readFully(ch, head, 0) < 8) return -1;
+        for (int i = 0; i < 8; i++) if (head.get(i) != PNG_SIG[i]) return -1;
+
+        long pos = 8;
+        while (pos + 12 <= size) {
+            head.clear();
+            if (readFully(ch, head, pos) < 8) return -1;
+            long len = head.getInt(0) & 0xFFFFFFFFL;
+            int type = head.getInt(4);
+            if (type == IDAT) return pos;
+            if (type == IEND) return -1;
+            pos += 12 + len;                                     // length + type + data + crc
+        }
+        return -1;
+    }
+
+    /** SOI 와 앞쪽 APPn 세그먼트 다음 오프셋, 구조가 이상하면 -1 */
+    private static long findAfterAppSegments(FileChannel ch) throws IOException {
+        long size = ch.size();
+        ByteBuffer head = ByteBuffer.allocate(4);
+        head.limit(2);
+        if (readFully(ch, head, 0) < 2 || (head.getShort(0) & 0xFFFF) != (0xFF00 | SOI)) return -1;
+
+        long pos = 2;
+        while (pos + 4 <= size) {
+            head.clear();
+            if (readFully(ch, head, pos) < 4) return -1;
+            if ((head.get(0) & 0xFF) != 0xFF) return -1;
+            int marker = head.get(1) & 0xFF;
+            if (marker == 0xFF) { pos++; continue; }                 // fill byte
+            if (marker < 0xE0 || marker > 0xEF) return pos;          // APPn 이 아닌 첫 마커 앞
+            int len = head.getShort(2) & 0xFFFF;
+            if (len < 2) return -1;
+            pos += 2 + len;
+        }
+        return -1;
+    }
+
+    private static String readPngText(FileChannel ch, String keyword) throws IOException {
+        long size = ch.size();
+        ByteBuffer head = ByteBuffer.allocate(8);
+        if (readFully(ch, head, 0) < 8) return null;
+        for (int i = 0; i < 8; i++) if (head.get(i) != PNG_SIG[i]) return null;
+
+        byte[] k = keyword.getBytes(StandardCharsets.ISO_8859_1);
+        long pos = 8;
+        while (pos + 12 <= size) {
+            head.clear();
+            if (readFully(ch, head, pos) < 8) return null;
+            long len = head.getInt(0) & 0xFFFFFFFFL;
+            int type = head.getInt(4);
+            if (type == IDAT || type == IEND) return null;
+            if (type == TEXT && len > k.length && len <= Integer.MAX_VALUE - 8 && pos + 8 + len <= size) {
+                ByteBuffer data = ByteBuffer.allocate((int) len);
+                readFully(ch, data, pos + 8);
+                byte[] a = data.array();
+                if (a[k.length] == 0 && Arrays.equals(a, 0, k.length, k, 0, k.length)) {
+                    return new String(a, k.length + 1, a.length - k.length - 1, StandardCharsets.ISO_8859_1);
+                }
+            }
+            pos += 12 + len;
+        }
+        return null;
+    }
+
+    private static String readJpegComment(FileChannel ch, String prefix) throws IOException {
+        long size = ch.size();
+        ByteBuffer head = ByteBuffer.allocate(4);
+        head.limit(2);
+        if (readFully(ch, head, 0) < 2 || (head.getShort(0) & 0xFFFF) != (0xFF00 | SOI)) return null;
+
+        long pos = 2;
+        while (pos + 4 <= size) {
+            head.clear();
+            if (readFully(ch, head, pos) < 4) return null;
+            if ((head.get(0) & 0xFF) != 0xFF) return null;
+            int marker = head.get(1) & 0xFF;
+            if (marker == 0xFF) { pos++; continue; }
+            if (marker == SOS || marker == EOI) return null;         // 엔트로피 데이터 전까지만
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) { pos += 2; continue; }
+            int len = head.getShort(2) & 0xFFFF;
+            if (len < 2) return null;
+            if (marker == COM && len - 2 >= prefix.length()) {
+                ByteBuffer data = ByteBuffer.allocate(len - 2);
+                readFully(ch, data, pos + 4);
+                String c = new String(data.array(), 0, data.position(), StandardCharsets.ISO_8859_1);
+                if (c.startsWith(prefix)) return c.substring(prefix.length());
+            }
+            pos += 2 + len;
+        }
+        return null;
+    }
+
+    private static ByteBuffer comSegment(byte[] body) {
+        ByteBuffer b = ByteBuffer.allocate(4 + body.length);
+        b.put((byte) 0xFF).put((byte) COM).putShort((short) (2 + body.length)).put(body);
+        return b.flip();
+    }
+
+    private static ByteBuffer textChunk(String keyword, String value) {
+        byte[] k = keyword.getBytes(StandardCharsets.ISO_8859_1);
+        byte[] v = value.getBytes(StandardCharsets.ISO_8859_1);
+        int len = k.length + 1 + v.length;
+        ByteBuffer b = ByteBuffer.allocate(12 + len);
+        b.putInt(len).putInt(TEXT).put(k).put((byte) 0).put(v);
+        CRC32 crc = new CRC32();
+        crc.update(b.array(), 4, 4 + len);                       // type + data
+        b.putInt((int) crc.getValue());
+        return b.flip();
+    }
+
+    private static void copy(FileChannel in, long from, long count, FileChannel out) throws IOException {
+        long done = 0;
+        while (done < count) {
+            long n = in.transferTo(from + done, count - done, out);
+            if (n <= 0) throw new IOException("transferTo stalled at " + (from + done));
+            done += n;
+        }
+    }
+
+    private static int readFully(FileChannel ch, ByteBuffer b, long pos) throws IOException {
+        int total = 0;
+        while (b.hasRemaining()) {
+            int n = ch.read(b, pos + total);
+            if (n < 0) break;
+            total += n;
+        }
+        return total;
+    }
+}
@@ -5,10 +5,13 @@ import com.airoom.secureagent.anomaly.LogEmitter;
 import com.airoom.secureagent.anomaly.LogEvent;
 import com.airoom.secureagent.log.LogManager;
 import com.airoom.secureagent.util.CryptoUtil;
+import com.airoom.secureagent.util.FileFormat;
+import com.airoom.secureagent.util.FormatSniffer;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDDocumentInformation;
 
 import java.io.File;
+import java.nio.file.Paths;
 
 /**
  * PDF에서 Stego 정보 추출 및 복호화
@@ -30,6 +33,24 @@ public class PdfStegoDecoder {
      * @return 복호화된 문자열, 없거나 실패 시 null
      */
     public static String extract(String inputPdfPath) {
+        return extract(inputPdfPath, FormatSniffer.sniff(Paths.get(inputPdfPath)));
+    }
+
+    /** 형식을 이미 판별한 호출자용: 실제 PDF 가 아니면 로드하지 않음 */
+    public static String extract(String inputPdfPath, FileFormat format) {
+        if (format != FileFormat.PDF) {
+            String line = "[PdfStegoDecoder] PDF 아님(매직 바이트) → " + inputPdfPath;
+            LogEvent ev = LogEvent.of(
+                    EventType.DECODE_FAIL,
+                    "pdf",
+                    inputPdfPath,
+                    "not-pdf",
+                    LogManager.getUserId()
+            );
+            LogEmitter.emit(ev, line);
+            System.err.println(line);
+            return null;
+        }
         try (PDDocument document = PDDocument.load(new File(inputPdfPath))) {
             PDDocumentInformation info = document.getDocumentInformation();
             String encrypted = info.getCustomMetadataValue(METADATA_KEY);
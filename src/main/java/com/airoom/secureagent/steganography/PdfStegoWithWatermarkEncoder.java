@@ -1,23 +1,35 @@
 package com.airoom.secureagent.steganography;
 
 import com.airoom.secureagent.util.CryptoUtil;
+import com.airoom.secureagent.util.FileFormat;
+import com.airoom.secureagent.util.FormatSniffer;
+import com.airoom.secureagent.util.SelfWriteLedger;
+import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDDocumentInformation;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
 import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
 import org.apache.pdfbox.util.Matrix;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.*;
+import java.util.HashMap;
+import java.util.Map;
 
 import static java.nio.file.StandardCopyOption.*;
 
 /**
  *  PDF : ① X-Doc-Tracking-Key 메타 + ② 대각선 워터마크
  *  tmp 에 먼저 저장한 뒤 ATOMIC_MOVE 로 원본을 한번에 교체
+ *  워터마크 격자는 페이지 크기별 Form XObject 로 한 번만 만들고 각 페이지는 참조만
+ *  (300쪽 문서도 글자 격자 스트림은 크기 종류 수만큼)
  *
  * [변경 요약]
  * - (버그 수정) 입력 로드 경로를 outputPdf가 아닌 inputPdf로 수정
@@ -50,6 +62,21 @@ public class PdfStegoWithWatermarkEncoder {
                                          String encPayloadB64,
                                          String watermarkText,
                                          float opacity) {
+        return embedEncrypted(inputPdf, outputPdf, encPayloadB64, watermarkText, opacity,
+                FormatSniffer.sniff(Paths.get(inputPdf)));
+    }
+
+    /** 형식을 이미 판별한 호출자용: 실제 PDF 가 아니면 PDDocument.load 전에 중단 */
+    public static boolean embedEncrypted(String inputPdf,
+                                         String outputPdf,
+                                         String encPayloadB64,
+                                         String watermarkText,
+                                         float opacity,
+                                         FileFormat format) {
+        if (format != FileFormat.PDF) {
+            System.err.println("[PdfStegoWithWatermarkEncoder] PDF 아님(매직 바이트) – skip : " + inputPdf);
+            return false;
+        }
 
         /* 최종 파일 경로 (Dispatcher 에서 input == output 로 들어올 수도 있음) */
         Path outPath = Paths.get(outputPdf);
@@ -63,33 +90,22 @@ public class PdfStegoWithWatermarkEncoder {
             doc.setDocumentInformation(info);
 
             /* -------- 2) 페이지 워터마크 -------- */
+            // 같은 크기의 페이지는 워터마크 격자 Form XObject 하나를 공유 (페이지에는 Do 한 번)
+            Map<String, PDFormXObject> stamps = new HashMap<>();
             for (PDPage page : doc.getPages()) {
                 PDRectangle r = page.getMediaBox();
                 float w = r.getWidth(), h = r.getHeight();
 
-                PDExtendedGraphicsState gs = new PDExtendedGraphicsState();
-                gs.setNonStrokingAlphaConstant(Math.max(0f, Math.min(1f, opacity)));
+                String key = w + "x" + h;
+                PDFormXObject stamp = stamps.get(key);
+                if (stamp == null) {
+                    stamp = watermarkForm(doc, w, h, watermarkText, opacity);
+                    stamps.put(key, stamp);
+                }
 
                 try (PDPageContentStream cs = new PDPageContentStream(
                         doc, page, PDPageContentStream.AppendMode.APPEND, true, true)) {
-                    cs.setGraphicsStateParameters(gs);
-                    // 화면 크기 기반 동적 폰트 & 간격 (가독/일관성 개선)
-                    float base = Math.max(18, Math.min(w, h) / 10f);
-                    cs.setFont(PDType1Font.HELVETICA_BOLD, base);
-                    cs.setNonStrokingColor(250, 0, 0);
-
-                    float stepX = Math.max(200, w / 4f);
-                    float stepY = Math.max(150, h / 4f);
-
-                    for (float y = 0; y < h; y += stepY) {
-                        for (float x = 0; x < w; x += stepX) {
-                            cs.beginText();
-                            cs.setTextMatrix(Matrix.getRotateInstance(
-                                    (float) Math.toRadians(-30), x, y));
-                            cs.showText(watermarkText);
-                            cs.endText();
-                        }
-                    }
+                    cs.drawForm(stamp);
                 }
             }
 
@@ -99,6 +115,7 @@ public class PdfStegoWithWatermarkEncoder {
             doc.close();                 // 핸들 닫기
 
             Files.move(tmp, outPath, ATOMIC_MOVE, REPLACE_EXISTING);
+            SelfWriteLedger.record(outPath); // 교체의 첫 이벤트는 워처가 I/O 없이, 나머지는 안정화 단계에서 버림
             System.out.println("[PdfStegoWithWatermarkEncoder] 완료: " + outputPdf);
             return true;
 
@@ -108,4 +125,38 @@ public class PdfStegoWithWatermarkEncoder {
             return false;
         }
     }
+
+    /** w × h 페이지용 대각선 워터마크 격자 (기존 페이지별 루프와 같은 배치) */
+    private static PDFormXObject watermarkForm(PDDocument doc, float w, float h,
+                                               String watermarkText, float opacity) throws IOException {
+        PDFormXObject form = new PDFormXObject(doc);
+        form.setBBox(new PDRectangle(w, h));
+        form.setResources(new PDResources());
+
+        PDExtendedGraphicsState gs = new PDExtendedGraphicsState();
+        gs.setNonStrokingAlphaConstant(Math.max(0f, Math.min(1f, opacity)));
+
+        try (OutputStream out = form.getContentStream().createOutputStream(COSName.FLATE_DECODE);
+             PDPageContentStream cs = new PDPageContentStream(doc, form, out)) {
+            cs.setGraphicsStateParameters(gs);
+            // 화면 크기 기반 동적 폰트 & 간격 (가독/일관성 개선)
+            float base = Math.max(18, Math.min(w, h) / 10f);
+            cs.setFont(PDType1Font.HELVETICA_BOLD, base);
+            cs.setNonStrokingColor(250, 0, 0);
+
+            float stepX = Math.max(200, w / 4f);
+            float stepY = Math.max(150, h / 4f);
+
+            for (float y = 0; y < h; y += stepY) {
+                for (float x = 0; x < w; x += stepX) {
+                    cs.beginText();
+                    cs.setTextMatrix(Matrix.getRotateInstance(
+                            (float) Math.toRadians(-30), x, y));
+                    cs.showText(watermarkText);
+                    cs.endText();
+                }
+            }
+        }
+        return form;
+    }
 }
@@ -0,0 +1,25 @@
+package com.airoom.secureagent.steganography;
+
+/** Vector API 를 쓸 수 없을 때(모듈 미포함 · 비활성) 의 LSB 루프 */
+final class ScalarLsbKernel implements LsbKernel {
+
+    @Override public void embedRow(int[] px, int off, int len, int[] tile, int tileOff, int tileW) {
+        for (int x0 = 0; x0 < len; x0 += tileW) {
+            int n = Math.min(tileW, len - x0), base = off + x0;
+            for (int k = 0; k < n; k++) {
+                px[base + k] = (px[base + k] & ~1) | tile[tileOff + k];
+            }
+        }
+    }
+
+    @Override public void accumulateRow(int[] px, int off, int len, int[] ones, int onesOff, int tileW) {
+        for (int x0 = 0; x0 < len; x0 += tileW) {
+            int n = Math.min(tileW, len - x0), base = off + x0;
+            for (int k = 0; k < n; k++) {
+                ones[onesOff + k] += px[base + k] & 1;
+            }
+        }
+    }
+
+    @Override public String name() { return "scalar"; }
+}
@@ -0,0 +1,321 @@
+package com.airoom.secureagent.steganography;
+
+import com.airoom.secureagent.util.FileFormat;
+import com.airoom.secureagent.util.ImageCodecs;
+import com.airoom.secureagent.util.ImageHeader;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.*;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 초대형 이미지용 strip 단위 원본 (전체 픽셀을 메모리에 올리지 않는 인코딩 경로)
+ *
+ * 기존 경로는 ImageIO.read 원본 + INT_(A)RGB 사본을 동시에 들고 있어 픽셀당 약 8B
+ * (20000×20000 = 3.2GB) → 힙 부족으로 실패했다.
+ *
+ * - image() 는 지연 DataBuffer 위의 INT_RGB / INT_ARGB BufferedImage
+ *   ImageWriter(PNG: 행마다 getData, JPEG: 래스터에서 행마다 createChild)가 위에서부터 픽셀을 요청하면
+ *   해당 행이 든 strip 만 INT 로 변환 → Painter(워터마크) → 보관
+ * - strip 공급 두 가지
+ *   · 순차(비인터레이스 PNG, baseline JPEG) : 디코딩 스레드가 파일을 한 번만 읽으며
+ *     목적지 래스터(sink)에 쓰이는 행을 strip 단위로 끊어 넘김 – 두 strip 을 번갈아 사용
+ *   · 영역(인터레이스 PNG, progressive JPEG) : ImageReadParam.setSourceRegion 으로 strip 마다 읽음
+ *     JDK 리더는 영역마다 처음부터 디코딩 → 디코딩 시간이 strip 수에 비례해 늘어남
+ * - 메모리는 strip 크기로 고정: -Dsecureagent.encode.stripMb (기본 64)
+ * - 변환은 기존 경로와 같은 drawImage(원본 → INT) → 결과 픽셀은 전체 경로와 동일
+ * - 이 경로 대상: 가로×세로 ≥ -Dsecureagent.encode.streamMinPx (기본 50,000,000 ≈ 기존 경로 400MB)
+ *
+ * image() 는 읽기 전용, 행을 위에서 아래로 읽는 한 스레드(인코더)에서만 사용
+ */
+public final class StripImageSource implements Closeable {
+
+    static final long STREAM_MIN_PX = Long.getLong("secureagent.encode.streamMinPx", 50_000_000L);
+    private static final long STRIP_BYTES = Long.getLong("secureagent.encode.stripMb", 64) << 20;
+    /** 행 픽셀당 바이트 – 리더 strip(최대 16bit RGBA = 8B) + INT strip 4B (순차는 INT strip 2개) */
+    private static final int REGION_BYTES_PER_PIXEL = 12;
+    private static final int SEQUENTIAL_BYTES_PER_PIXEL = 16;
+
+    /** strip 하나가 메모리에 올라올 때마다 호출 – px 의 0 행이 이미지 y0 행 */
+    interface Painter { void paint(int[] px, int w, int y0, int y1); }
+
+    /** 변환·워터마크가 끝난 strip (image 의 0 행 = 이미지 y0 행) */
+    private record Strip(BufferedImage image, int[] px, int y0, int y1) {}
+    private static final Strip END = new Strip(null, null, Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+    private final ImageInputStream iis;
+    private final FileFormat format;
+    private final ImageReader reader;
+    private final int width, height, stripRows;
+    private final Painter painter;
+    private final BufferedImage image;
+    private final boolean sequential;
+
+    private Strip current;
+    private int loads;
+
+    // 영역 모드
+    private final Strip regionStrip;
+
+    // 순차 모드 : 디코딩 스레드 → ready → 인코더, 다 쓴 strip 은 free 로 반환
+    private final BlockingQueue<Strip> ready = new ArrayBlockingQueue<>(1);
+    private final BlockingQueue<Strip> free = new ArrayBlockingQueue<>(2);
+    private Thread decoder;
+    private volatile Throwable failure;
+
+    /** 이 크기면 strip 경로를 써야 하는지 (헤더 크기를 못 읽었으면 false) */
+    public static boolean applies(int[] wh) {
+        return wh != null && (long) wh[0] * wh[1] >= STREAM_MIN_PX
+                && (long) wh[0] * wh[1] <= Integer.MAX_VALUE;             // DataBuffer 크기 한계
+    }
+
+    /** strip 경로의 최대 힙 사용량 추정 (EncodeAdmission 용) */
+    public static long peakBytes() {
+        return STRIP_BYTES;
+    }
+
+    /**
+     * @param alpha true 면 INT_ARGB(PNG), false 면 INT_RGB(JPEG) – 기존 인코더의 대상 형식과 같음
+     */
+    static StripImageSource open(Path f, FileFormat format, boolean alpha, Painter painter) throws IOException {
+        ImageInputStream iis = ImageIO.createImageInputStream(f.toFile());
+        if (iis == null) throw new IOException("입력 스트림 생성 실패: " + f);
+        ImageReader reader = null;
+        try {
+            reader = ImageCodecs.reader(format);
+            reader.setInput(iis, false, true);                              // 영역 모드는 strip 마다 다시 읽음
+            return new StripImageSource(iis, format, reader, alpha, painter, ImageHeader.sequential(f, format));
+        } catch (IOException | RuntimeException e) {
+            ImageCodecs.release(format, reader, false);
+            iis.close();
+            throw e;
+        }
+    }
+
+    private StripImageSource(ImageInputStream iis, FileFormat format, ImageReader reader, boolean alpha,
+                             Painter painter, boolean sequentialFormat) throws IOException {
+        this.iis = iis;
+        this.format = format;
+        this.reader = reader;
+        this.painter = painter;
+        this.width = reader.getWidth(0);
+        this.height = reader.getHeight(0);
+
+        // 순차 모드 sink 는 리더 기본 형식의 래스터 – 행 단위 주소 계산이 되는 SampleModel 만
+        ImageTypeSpecifier spec = sequentialFormat ? reader.getImageTypes(0).next() : null;
+        int scan = spec == null ? -1 : scanlineStride(spec.getSampleModel(width, 1));
+        this.sequential = scan > 0 && (long) scan * height <= Integer.MAX_VALUE;
+
+        int bpp = sequential ? SEQUENTIAL_BYTES_PER_PIXEL : REGION_BYTES_PER_PIXEL;
+        this.stripRows = (int) Math.max(16, Math.min(height, STRIP_BYTES / ((long) width * bpp)));
+
+        int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        if (sequential) {
+            free.add(newStrip(type));
+            free.add(newStrip(type));
+            regionStrip = null;
+            startDecoder(spec, scan, alpha);
+        } else {
+            regionStrip = newStrip(type);
+        }
+
+        // 기존 경로의 대상 이미지와 같은 ColorModel / SampleModel, 픽셀만 지연 로딩
+        ColorModel cm = ColorModel.getRGBdefault();
+        if (!alpha) cm = new BufferedImage(1, 1, type).getColorModel();
+        SampleModel sm = cm.createCompatibleSampleModel(width, height);
+        WritableRaster raster = Raster.createWritableRaster(sm, new LazyBuffer(), null);
+        this.image = new BufferedImage(cm, raster, false, null);
+    }
+
+    private Strip newStrip(int type) {
+        BufferedImage img = new BufferedImage(width, stripRows, type);
+        return new Strip(img, ((DataBufferInt) img.getRaster().getDataBuffer()).getData(), -1, -1);
+    }
+
+    BufferedImage image() { return image; }
+
+    int stripRows() { return stripRows; }
+
+    boolean sequential() { return sequential; }
+
+    /** 지금까지 인코더에 넘긴 strip 수 (로그/벤치용) */
+    int loads() { return loads; }
+
+    /** y 행이 든 strip 을 current 로 */
+    private void advance(int y) {
+        if (current != null && y < current.y0()) {
+            throw new IllegalStateException("strip 원본은 위에서 아래로만 읽을 수 있음 (행 " + y + ")");
+        }
+        if (sequential) nextSequential(y);
+        else current = loadRegion(y);
+        loads++;
+    }
+
+    /** 원본 strip(src 의 0 행 = y0) → INT strip 변환 + 워터마크 */
+    private Strip fill(Strip into, BufferedImage src, int y0, int y1) {
+        int rows = y1 - y0;
+        Arrays.fill(into.px(), 0);                                          // 새 이미지와 같은 출발점
+        BufferedImage dst = rows == stripRows ? into.image() : into.image().getSubimage(0, 0, width, rows);
+        Graphics2D g = dst.createGraphics();
+        g.drawImage(rows == src.getHeight() ? src : src.getSubimage(0, 0, width, rows), 0, 0, null);
+        g.dispose();
+        painter.paint(into.px(), width, y0, y1);
+        return new Strip(into.image(), into.px(), y0, y1);
+    }
+
+    /* ---------- 영역 모드 ---------- */
+
+    private Strip loadRegion(int y) {
+        int y0 = y - y % stripRows, y1 = Math.min(height, y0 + stripRows);
+        try {
+            ImageReadParam p = reader.getDefaultReadParam();
+            p.setSourceRegion(new Rectangle(0, y0, width, y1 - y0));
+            BufferedImage src = reader.read(0, p);
+            return fill(regionStrip, src, y0, y1);
+        } catch (IOException e) {
+            throw new IllegalStateException("strip 읽기 실패 (" + y0 + "~" + y1 + "): " + e.getMessage(), e);
+        }
+    }
+
+    /* ---------- 순차 모드 ---------- */
+
+    private void nextSequential(int y) {
+        try {
+            while (current == null || y >= current.y1()) {
+                if (current != null) free.put(current);
+                current = ready.take();
+                if (current == END) {
+                    current = null;
+                    Throwable t = failure;
+                    throw new IllegalStateException("strip 디코딩 실패: " + (t == null ? "예상보다 짧음" : t), t);
+                }
+                if (y < current.y0()) throw new IllegalStateException("strip 누락 (행 " + y + ")");
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("strip 대기 중 인터럽트", ie);
+        }
+    }
+
+    private void startDecoder(ImageTypeSpecifier spec, int scan, boolean alpha) {
+        BufferedImage raw = spec.createBufferedImage(width, stripRows);
+        Sink sink = new Sink(raw, scan);
+        BufferedImage dest = new BufferedImage(spec.getColorModel(),
+                Raster.createWritableRaster(spec.getSampleModel(width, height), sink, null),
+                spec.getColorModel().isAlphaPremultiplied(), null);
+
+        decoder = new Thread(() -> {
+            try {
+                ImageReadParam p = reader.getDefaultReadParam();
+                p.setDestination(dest);
+                reader.read(0, p);
+                sink.flush();                                               // 마지막 strip
+                ready.put(END);
+            } catch (Throwable t) {
+                // 실패해도 인코더가 무한 대기하지 않도록 (남은 strip 은 버리고 END 만)
+                failure = t;
+                ready.clear();
+                ready.offer(END);
+            }
+        }, "strip-decode");
+        decoder.setDaemon(true);
+        decoder.start();
+    }
+
+    /**
+     * 리더의 목적지 래스터 – 이미지 전체 크기로 보이지만 현재 strip 의 원본 행만 보관
+     * 다음 strip 행이 쓰이기 시작하면 이전 strip 을 변환해 인코더에 넘긴다 (디코딩 스레드에서 실행)
+     */
+    private final class Sink extends DataBuffer {
+        private final BufferedImage raw;
+        private final DataBuffer rawBuf;
+        private final int scan;
+        private int y0 = 0, y1 = Math.min(height, stripRows);
+
+        Sink(BufferedImage raw, int scan) {
+            super(raw.getRaster().getDataBuffer().getDataType(), scan * height,
+                    raw.getRaster().getDataBuffer().getNumBanks());
+            this.raw = raw;
+            this.rawBuf = raw.getRaster().getDataBuffer();
+            this.scan = scan;
+        }
+
+        @Override public int getElem(int bank, int i) {
+            int row = i / scan;
+            return row >= y0 && row < y1 ? rawBuf.getElem(bank, i - y0 * scan) : 0;
+        }
+
+        @Override public void setElem(int bank, int i, int val) {
+            int row = i / scan;
+            if (row >= y1) {
+                flush();
+                y0 = row - row % stripRows;
+                y1 = Math.min(height, y0 + stripRows);
+            } else if (row < y0) {
+                throw new IllegalStateException("비순차 디코딩 (행 " + row + " < " + y0 + ")");
+            }
+            rawBuf.setElem(bank, i - y0 * scan, val);
+        }
+
+        void flush() {
+            try {
+                Strip s = free.take();
+                ready.put(fill(s, raw, y0, y1));
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("strip 전달 중 인터럽트", ie);
+            }
+        }
+    }
+
+    private static int scanlineStride(SampleModel sm) {
+        if (sm instanceof ComponentSampleModel c) return c.getScanlineStride();
+        if (sm instanceof SinglePixelPackedSampleModel s) return s.getScanlineStride();
+        if (sm instanceof MultiPixelPackedSampleModel m) return m.getScanlineStride();
+        return -1;
+    }
+
+    @Override public void close() throws IOException {
+        Thread d = decoder;
+        boolean reusable = d == null || !d.isAlive();
+        if (!reusable) {
+            reader.abort();
+            d.interrupt();
+            try { d.join(5_000); } catch (InterruptedException ie) { Thread.currentThread().interrupt(); }
+        }
+        ImageCodecs.release(format, reader, reusable);                      // 중간에 끊은 리더는 폐기
+        iis.close();
+    }
+
+    /** 이미지 전체 크기의 int 버퍼처럼 보이지만 현재 strip 만 보관 */
+    private final class LazyBuffer extends DataBuffer {
+
+        LazyBuffer() {
+            super(TYPE_INT, width * height);
+        }
+
+        @Override public int getElem(int bank, int i) {
+            int y = i / width;
+            Strip s = current;
+            if (s == null || y < s.y0() || y >= s.y1()) {
+                advance(y);
+                s = current;
+            }
+            return s.px()[i - s.y0() * width];
+        }
+
+        @Override public void setElem(int bank, int i, int val) {
+            throw new UnsupportedOperationException("읽기 전용 strip 원본");
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.airoom.secureagent.steganography;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * jdk.incubator.vector 로 LSB 루프를 벡터화 (--add-modules jdk.incubator.vector 필요)
+ *
+ * - 타일 폭이 벡터 길이의 배수 → 타일 한 칸 안에서는 px · tile · ones 를 같은 위상으로 통째 로드
+ * - 타일 끝 조각(이미지 오른쪽 가장자리)은 스칼라
+ * LsbCodec 이 모듈 존재를 확인한 뒤에만 이 클래스를 로드한다.
+ */
+final class VectorLsbKernel implements LsbKernel {
+
+    private static final VectorSpecies<Integer> S = IntVector.SPECIES_PREFERRED;
+
+    static int lanes() { return S.length(); }
+
+    @Override public void embedRow(int[] px, int off, int len, int[] tile, int tileOff, int tileW) {
+        for (int x0 = 0; x0 < len; x0 += tileW) {
+            int n = Math.min(tileW, len - x0), base = off + x0;
+            int upper = S.loopBound(n), k = 0;
+            for (; k < upper; k += S.length()) {
+                IntVector bits = IntVector.fromArray(S, tile, tileOff + k);
+                IntVector.fromArray(S, px, base + k).and(~1).or(bits).intoArray(px, base + k);
+            }
+            for (; k < n; k++) px[base + k] = (px[base + k] & ~1) | tile[tileOff + k];
+        }
+    }
+
+    @Override public void accumulateRow(int[] px, int off, int len, int[] ones, int onesOff, int tileW) {
+        for (int x0 = 0; x0 < len; x0 += tileW) {
+            int n = Math.min(tileW, len - x0), base = off + x0;
+            int upper = S.loopBound(n), k = 0;
+            for (; k < upper; k += S.length()) {
+                IntVector.fromArray(S, ones, onesOff + k)
+                        .add(IntVector.fromArray(S, px, base + k).and(1))
+                        .intoArray(ones, onesOff + k);
+            }
+            for (; k < n; k++) ones[onesOff + k] += px[base + k] & 1;
+        }
+    }
+
+    @Override public String name() { return "vector(" + S.length() + "x32)"; }
+}
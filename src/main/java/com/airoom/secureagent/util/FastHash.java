@@ -0,0 +1,70 @@
+package com.airoom.secureagent.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * 인덱스용 빠른 해시 (암호학적 용도 아님)
+ * - pathHash   : 경로 문자열 64비트 해시 (Windows 는 대소문자 무시), 0 은 "빈 슬롯" 예약값이라 피한다
+ * - contentHash: CRC32C(앞 64KB + 뒤 64KB + 크기) → 큰 PDF 도 최대 128KB 만 읽음
+ */
+public final class FastHash {
+
+    private static final boolean IS_WINDOWS = System.getProperty("os.name", "").toLowerCase().contains("win");
+    private static final int CHUNK = 64 * 1024;
+
+    private static final ThreadLocal<ByteBuffer> BUF =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(CHUNK));
+
+    private FastHash() {}
+
+    /** FNV-1a 64 + murmur3 finalizer, 결과는 항상 0 이 아님 */
+    public static long pathHash(CharSequence path) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0, n = path.length(); i < n; i++) {
+            char c = path.charAt(i);
+            if (IS_WINDOWS) c = c >= 'A' && c <= 'Z' ? (char) (c + 32) : Character.toLowerCase(c);
+            h ^= c;
+            h *= 0x100000001b3L;
+        }
+        h = mix64(h);
+        return h == 0 ? 1 : h;
+    }
+
+    public static long pathHash(Path p) { return pathHash(p.toAbsolutePath().toString()); }
+
+    /** 앞/뒤 CHUNK 바이트 + 크기의 CRC32C */
+    public static int contentHash(Path f) throws IOException {
+        CRC32C crc = new CRC32C();
+        ByteBuffer buf = BUF.get();
+        try (FileChannel ch = FileChannel.open(f, StandardOpenOption.READ)) {
+            long size = ch.size();
+            readAt(ch, buf, 0, crc);
+            if (size > CHUNK) readAt(ch, buf, Math.max(CHUNK, size - CHUNK), crc);
+            buf.clear();
+            buf.putLong(size).flip();
+            crc.update(buf);
+        }
+        return (int) crc.getValue();
+    }
+
+    private static void readAt(FileChannel ch, ByteBuffer buf, long pos, CRC32C crc) throws IOException {
+        buf.clear();
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, pos + buf.position());
+            if (n <= 0) break;
+        }
+        buf.flip();
+        crc.update(buf);
+    }
+
+    public static long mix64(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+}
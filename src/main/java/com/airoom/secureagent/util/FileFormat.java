@@ -0,0 +1,11 @@
+package com.airoom.secureagent.util;
+
+/**
+ * 태깅 대상 파일 형식 (확장자·매직 바이트 판별 결과)
+ */
+public enum FileFormat {
+    PNG, JPEG, PDF, NONE;
+
+    public boolean isImage() { return this == PNG || this == JPEG; }
+    public boolean isPdf()   { return this == PDF; }
+}
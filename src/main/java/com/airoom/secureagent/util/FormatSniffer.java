@@ -0,0 +1,66 @@
+package com.airoom.secureagent.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 매직 바이트 기반 실제 형식 판별
+ *
+ * - 파일 앞 16바이트만 FileChannel 로 읽는다 (스레드별 ByteBuffer 재사용 → 호출당 할당 없음)
+ * - PNG  : 89 50 4E 47 0D 0A 1A 0A
+ * - JPEG : FF D8 FF (SOI + 다음 마커)
+ * - PDF  : "%PDF-" (앞쪽 공백/BOM 허용, 16바이트 안에서 탐색)
+ * - 확장자가 틀린 파일은 여기서 NONE 또는 실제 형식으로 걸러져
+ *   ImageIO.read / PDDocument.load 같은 무거운 작업이 시작되지 않는다.
+ */
+public final class FormatSniffer {
+
+    public static final int HEAD_BYTES = 16;
+
+    private static final byte[] PNG_SIG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] PDF_SIG = {'%', 'P', 'D', 'F', '-'};
+
+    private static final ThreadLocal<ByteBuffer> HEAD =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocate(HEAD_BYTES));
+
+    private FormatSniffer() {}
+
+    /** 실제 형식 (읽기 실패·알 수 없는 형식이면 NONE) */
+    public static FileFormat sniff(Path f) {
+        ByteBuffer buf = HEAD.get();
+        buf.clear();
+        try (FileChannel ch = FileChannel.open(f, StandardOpenOption.READ)) {
+            while (buf.hasRemaining() && ch.read(buf) > 0) { /* 16바이트 또는 EOF 까지 */ }
+        } catch (IOException | SecurityException e) {
+            return FileFormat.NONE;
+        }
+        buf.flip();
+        return sniff(buf);
+    }
+
+    /** 이미 읽어둔 앞부분으로 판별 (position ~ limit) */
+    public static FileFormat sniff(ByteBuffer head) {
+        int p = head.position(), n = head.remaining();
+        if (startsWith(head, p, n, PNG_SIG)) return FileFormat.PNG;
+        if (n >= 3 && (head.get(p) & 0xFF) == 0xFF && (head.get(p + 1) & 0xFF) == 0xD8
+                && (head.get(p + 2) & 0xFF) == 0xFF) {
+            return FileFormat.JPEG;
+        }
+        for (int i = 0; i + PDF_SIG.length <= n; i++) {
+            if (startsWith(head, p + i, n - i, PDF_SIG)) return FileFormat.PDF;
+            int b = head.get(p + i) & 0xFF;
+            // "%PDF-" 앞에는 공백·UTF-8 BOM 정도만 허용
+            if (!(b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == 0xEF || b == 0xBB || b == 0xBF)) break;
+        }
+        return FileFormat.NONE;
+    }
+
+    private static boolean startsWith(ByteBuffer b, int p, int n, byte[] sig) {
+        if (n < sig.length) return false;
+        for (int i = 0; i < sig.length; i++) if (b.get(p + i) != sig[i]) return false;
+        return true;
+    }
+}
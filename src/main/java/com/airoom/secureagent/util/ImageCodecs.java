@@ -0,0 +1,249 @@
+package com.airoom.secureagent.util;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PNG / JPEG ImageReader · ImageWriter 재사용 풀 (인코딩 · 디코딩 · 태그 확인 공용)
+ *
+ * 기존에는 호출마다 ImageIO.getImageReadersByFormatName / getImageWritersByFormatName 으로
+ * IIORegistry 를 훑고 새 인스턴스를 만들었다 (twelvemonkeys 플러그인으로 레지스트리도 커짐).
+ * JPEG 리더/라이터는 생성 때 네이티브 구조체까지 할당하고, 호출부는 dispose 도 하지 않았다.
+ * - 스레드별 형식별 스택: acquire 로 꺼내고 release 에서 reset() 후 반납 (스레드당 최대 POOL_PER_THREAD 개)
+ *   같은 스레드에서 겹쳐 써도(중첩) 서로 다른 인스턴스
+ * - 스레드 스택이 비면 공용 예비(warmUp 이 미리 만들어 둔 인스턴스) → 그래도 없으면 새로 생성
+ * - warmUp : 시작 직후 백그라운드에서 scanForPlugins + 형식별 예비 인스턴스 생성 + 8×8 이미지 쓰기/읽기
+ *   (클래스 로딩 · 네이티브 라이브러리 로딩 · 메타데이터 클래스 초기화를 첫 파일 전에 끝냄)
+ *   워터마크 글꼴 래스터라이저 초기화도 함께 (재인코딩 첫 파일에서 코덱보다 오래 걸림)
+ * - release 를 빼먹으면 GC 로 정리될 뿐 누수는 아님, 실패한 인스턴스는 release(…, false) 로 폐기
+ *
+ * 풀 크기: -Dsecureagent.codec.poolPerThread (기본 2), 예비: -Dsecureagent.codec.spares (기본 2)
+ */
+public final class ImageCodecs {
+
+    private static final int POOL_PER_THREAD = Math.max(1, Integer.getInteger("secureagent.codec.poolPerThread", 2));
+    private static final int SPARES = Math.max(0, Integer.getInteger("secureagent.codec.spares", 2));
+
+    private static final class Pools {
+        final Map<FileFormat, ArrayDeque<ImageReader>> readers = new EnumMap<>(FileFormat.class);
+        final Map<FileFormat, ArrayDeque<ImageWriter>> writers = new EnumMap<>(FileFormat.class);
+    }
+
+    private static final ThreadLocal<Pools> LOCAL = ThreadLocal.withInitial(Pools::new);
+
+    private static final Map<FileFormat, ConcurrentLinkedQueue<ImageReader>> SPARE_READERS = new EnumMap<>(FileFormat.class);
+    private static final Map<FileFormat, ConcurrentLinkedQueue<ImageWriter>> SPARE_WRITERS = new EnumMap<>(FileFormat.class);
+    static {
+        for (FileFormat f : new FileFormat[]{FileFormat.PNG, FileFormat.JPEG}) {
+            SPARE_READERS.put(f, new ConcurrentLinkedQueue<>());
+            SPARE_WRITERS.put(f, new ConcurrentLinkedQueue<>());
+        }
+    }
+
+    private static final AtomicLong created = new AtomicLong();
+    private static final AtomicLong reused = new AtomicLong();
+    private static final AtomicLong spareTaken = new AtomicLong();
+    private static final AtomicLong discarded = new AtomicLong();
+    private static volatile long warmUpMs = -1;
+    private static volatile Thread warmer;
+
+    private ImageCodecs() {}
+
+    /* ---------- 리더 ---------- */
+
+    /** 형식의 리더 (PNG / JPEG 외 형식은 IllegalArgumentException) – 다 쓰면 release */
+    public static ImageReader reader(FileFormat format) {
+        ImageReader r = LOCAL.get().readers.computeIfAbsent(format, k -> new ArrayDeque<>()).pollFirst();
+        if (r != null) { reused.incrementAndGet(); return r; }
+        r = spares(SPARE_READERS, format).poll();
+        if (r != null) { spareTaken.incrementAndGet(); return r; }
+        return newReader(format);
+    }
+
+    /** 정상 사용 후 반납 */
+    public static void release(FileFormat format, ImageReader r) {
+        release(format, r, true);
+    }
+
+    /**
+     * @param reusable false 면(예외 · abort 이후 · 다른 스레드가 아직 사용 중) 반납하지 않고 dispose
+     */
+    public static void release(FileFormat format, ImageReader r, boolean reusable) {
+        if (r == null) return;
+        try {
+            if (reusable) {
+                r.reset();                                                  // 입력 · 리스너 · 로케일 해제
+                ArrayDeque<ImageReader> q = LOCAL.get().readers.computeIfAbsent(format, k -> new ArrayDeque<>());
+                if (q.size() < POOL_PER_THREAD) { q.addFirst(r); return; }
+            }
+        } catch (RuntimeException ignore) { }
+        discarded.incrementAndGet();
+        r.dispose();
+    }
+
+    /** ImageIO.read(File) 대체 – 판별된 형식의 풀 리더로 첫 이미지 전체 */
+    public static BufferedImage read(Path f, FileFormat format) throws IOException {
+        ImageReader r = reader(format);
+        boolean ok = false;
+        try (ImageInputStream iis = ImageIO.createImageInputStream(f.toFile())) {
+            if (iis == null) throw new IOException("입력 스트림 생성 실패: " + f);
+            r.setInput(iis, true, true);
+            BufferedImage img = r.read(0, r.getDefaultReadParam());
+            ok = true;
+            return img;
+        } finally {
+            release(format, r, ok);
+        }
+    }
+
+    /* ---------- 라이터 ---------- */
+
+    /** 형식의 라이터 – 다 쓰면 release */
+    public static ImageWriter writer(FileFormat format) {
+        ImageWriter w = LOCAL.get().writers.computeIfAbsent(format, k -> new ArrayDeque<>()).pollFirst();
+        if (w != null) { reused.incrementAndGet(); return w; }
+        w = spares(SPARE_WRITERS, format).poll();
+        if (w != null) { spareTaken.incrementAndGet(); return w; }
+        return newWriter(format);
+    }
+
+    public static void release(FileFormat format, ImageWriter w) {
+        release(format, w, true);
+    }
+
+    public static void release(FileFormat format, ImageWriter w, boolean reusable) {
+        if (w == null) return;
+        try {
+            if (reusable) {
+                w.reset();                                                  // 출력 · 리스너 · 로케일 해제
+                ArrayDeque<ImageWriter> q = LOCAL.get().writers.computeIfAbsent(format, k -> new ArrayDeque<>());
+                if (q.size() < POOL_PER_THREAD) { q.addFirst(w); return; }
+            }
+        } catch (RuntimeException ignore) { }
+        discarded.incrementAndGet();
+        w.dispose();
+    }
+
+    /* ---------- 예열 ---------- */
+
+    /** 백그라운드 예열 시작 (여러 번 불러도 한 번만) */
+    public static synchronized void warmUp() {
+        if (warmer != null) return;
+        Thread t = new Thread(ImageCodecs::warmUpNow, "codec-warmup");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        warmer = t;
+        t.start();
+    }
+
+    /** 현재 스레드에서 예열 (벤치 · 테스트용) */
+    public static void warmUpNow() {
+        long t0 = System.nanoTime();
+        try {
+            ImageIO.scanForPlugins();
+            BufferedImage probe = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+            warmText(probe);
+            for (FileFormat f : SPARE_READERS.keySet()) {
+                ImageReader r = newReader(f);
+                ImageWriter w = newWriter(f);
+                roundTrip(f, probe, r, w);
+                r.reset();
+                w.reset();
+                spares(SPARE_READERS, f).add(r);
+                spares(SPARE_WRITERS, f).add(w);
+                for (int i = 1; i < SPARES; i++) {
+                    spares(SPARE_READERS, f).add(newReader(f));
+                    spares(SPARE_WRITERS, f).add(newWriter(f));
+                }
+            }
+        } catch (Throwable t) {
+            System.err.println("[ImageCodecs] 예열 실패: " + t);
+        }
+        warmUpMs = (System.nanoTime() - t0) / 1_000_000;
+        System.out.println("[ImageCodecs] 예열 완료 " + warmUpMs + " ms");
+    }
+
+    /**
+     * 재인코딩 첫 파일에서 코덱 다음으로 무거운 글꼴 초기화 (FontManager · 글리프 래스터라이저)
+     * 워터마크 스탬프와 같은 글꼴 · 안티앨리어싱 조건으로 글자 하나
+     */
+    private static void warmText(BufferedImage probe) {
+        Graphics2D g = probe.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setFont(new Font("Arial", Font.BOLD, 8));
+            g.rotate(Math.toRadians(-30));
+            g.drawString("A", 0, 8);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    /** 작은 이미지 한 장 쓰고 메타데이터 · 픽셀까지 읽기 (인코더 · 디코더가 밟는 코드 경로) */
+    private static void roundTrip(FileFormat f, BufferedImage img, ImageReader r, ImageWriter w) throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(bos)) {
+            w.setOutput(ios);
+            w.write(img);
+        }
+        try (ImageInputStream iis = ImageIO.createImageInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+            r.setInput(iis, true, false);
+            r.getImageMetadata(0).getAsTree(r.getImageMetadata(0).getNativeMetadataFormatName());
+            r.read(0);
+        }
+    }
+
+    /* ---------- 공통 ---------- */
+
+    private static <T> ConcurrentLinkedQueue<T> spares(Map<FileFormat, ConcurrentLinkedQueue<T>> m, FileFormat f) {
+        ConcurrentLinkedQueue<T> q = m.get(f);
+        if (q == null) throw new IllegalArgumentException("이미지 코덱 없음: " + f);
+        return q;
+    }
+
+    private static String formatName(FileFormat f) {
+        if (f == FileFormat.PNG) return "png";
+        if (f == FileFormat.JPEG) return "jpeg";
+        throw new IllegalArgumentException("이미지 코덱 없음: " + f);
+    }
+
+    private static ImageReader newReader(FileFormat f) {
+        var it = ImageIO.getImageReadersByFormatName(formatName(f));
+        if (!it.hasNext()) throw new IllegalStateException("리더 없음: " + f);
+        created.incrementAndGet();
+        return it.next();
+    }
+
+    private static ImageWriter newWriter(FileFormat f) {
+        var it = ImageIO.getImageWritersByFormatName(formatName(f));
+        if (!it.hasNext()) throw new IllegalStateException("라이터 없음: " + f);
+        created.incrementAndGet();
+        return it.next();
+    }
+
+    /** /watcher 노출용 */
+    public static Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("created", created.get());
+        m.put("reused", reused.get());
+        m.put("spareTaken", spareTaken.get());
+        m.put("discarded", discarded.get());
+        m.put("warmUpMs", warmUpMs);
+        return m;
+    }
+}
@@ -0,0 +1,94 @@
+package com.airoom.secureagent.util;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 픽셀을 디코딩하지 않고 헤더에서 이미지 크기만 읽기 (메모리 비용 추정용)
+ * - PNG  : IHDR (시그니처 8B 바로 뒤, 고정 위치)
+ * - JPEG : 세그먼트를 길이만큼 건너뛰며 첫 SOFn 마커까지
+ * - 읽을 수 없으면 null (호출자는 파일 크기 기반 추정으로 대체)
+ * - sequential : 디코더가 행을 위에서 아래로 한 번만 내보내는지 (비인터레이스 PNG / baseline·extended JPEG)
+ */
+public final class ImageHeader {
+
+    private ImageHeader() {}
+
+    /** {width, height} 또는 null */
+    public static int[] dimensions(Path f, FileFormat format) {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(f), 8192)) {
+            DataInputStream d = new DataInputStream(in);
+            return switch (format) {
+                case PNG  -> png(d);
+                case JPEG -> jpeg(d);
+                default   -> null;
+            };
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /** 행 순서대로 한 번에 디코딩되는 형식인지 (모르면 false) */
+    public static boolean sequential(Path f, FileFormat format) {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(f), 8192)) {
+            DataInputStream d = new DataInputStream(in);
+            return switch (format) {
+                case PNG  -> {
+                    d.skipNBytes(8 + 8 + 12);                      // 시그니처, IHDR 길이·타입, 가로~필터
+                    yield d.readUnsignedByte() == 0;               // interlace method 0 = 없음
+                }
+                case JPEG -> {
+                    int sof = jpegSof(d);
+                    yield sof == 0xC0 || sof == 0xC1;              // progressive(C2) / lossless 등 제외
+                }
+                default   -> false;
+            };
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static int[] png(DataInputStream d) throws IOException {
+        d.skipNBytes(8);                                   // 시그니처
+        int len = d.readInt();
+        int type = d.readInt();
+        if (type != 0x49484452 || len < 8) return null;    // "IHDR"
+        int w = d.readInt(), h = d.readInt();
+        return w > 0 && h > 0 ? new int[]{w, h} : null;
+    }
+
+    private static int[] jpeg(DataInputStream d) throws IOException {
+        if (jpegSof(d) < 0) return null;
+        d.readUnsignedByte();                              // precision
+        int h = d.readUnsignedShort(), w = d.readUnsignedShort();
+        return w > 0 && h > 0 ? new int[]{w, h} : null;
+    }
+
+    /** 첫 SOFn 마커까지 건너뛰고 마커 값 반환 (스트림은 SOF 길이 필드 바로 뒤), 없으면 -1 */
+    private static int jpegSof(DataInputStream d) throws IOException {
+        if (d.readUnsignedShort() != 0xFFD8) return -1;    // SOI
+        while (true) {
+            int b = d.readUnsignedByte();
+            if (b != 0xFF) return -1;
+            int marker;
+            do { marker = d.readUnsignedByte(); } while (marker == 0xFF);   // fill bytes
+            if (marker == 0xD9 || marker == 0xDA) return -1;               // EOI / SOS 전에 SOF 없음
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) continue; // 길이 없는 마커
+            int len = d.readUnsignedShort();
+            if (len < 2) return -1;
+            boolean sof = marker >= 0xC0 && marker <= 0xCF
+                    && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;  // DHT / JPG / DAC 제외
+            if (sof) return marker;
+            try {
+                d.skipNBytes(len - 2);
+            } catch (EOFException eof) {
+                return -1;
+            }
+        }
+    }
+}
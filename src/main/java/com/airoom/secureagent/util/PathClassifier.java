@@ -0,0 +1,232 @@
+package com.airoom.secureagent.util;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 컴파일된 경로 분류기 (워처·디스패처·디코더 공용)
+ *
+ * - 확장자: 역방향 suffix trie. 경로 문자열 끝에서부터 한 글자씩 내려가며 ASCII 대소문자 무시 비교
+ *   → toLowerCase() / 정규식 없이, 이벤트당 객체 할당 0
+ * - 무시 규칙: 세그먼트 단위 glob('*', '?') 목록을 시작 시 한 번 컴파일.
+ *   "AppData/Local/Temp" 처럼 여러 세그먼트도 경로 어디서든 연속으로 일치하면 무시
+ *   (구분자 '/' 와 '\' 모두 인식, 대소문자 무시)
+ *   '**' 세그먼트는 0개 이상의 세그먼트 – 예) AppData 아래 어느 깊이든 Cache (사용자 문서의 Cache 폴더는 대상)
+ * - Path.toString() 은 Path 안에 캐시되므로 호출해도 새 문자열이 생기지 않는다.
+ *
+ * 튜닝: -Dsecureagent.ignore="Lectures/tmp;*.cache"  (기본 규칙에 추가)
+ *       -Dsecureagent.ignore.defaults=false          (기본 규칙 끄기)
+ */
+public final class PathClassifier {
+
+    /**
+     * 기본 무시 규칙: 빌드/VCS/IDE 폴더, 임시 폴더, 브라우저 캐시
+     * - 흔한 이름(Cache, bin/Debug …)은 단독으로 쓰지 않고 생긴 위치에 묶음
+     *   .NET 출력은 대상 프레임워크 폴더(net8.0, net48 …) 까지, 브라우저·Electron 캐시는 프로필 위치 아래만
+     */
+    private static final String[] DEFAULT_IGNORES = {
+            "node_modules", ".git", ".svn", ".hg",
+            ".idea", ".vs", ".vscode", ".gradle", "__pycache__", "cmake-build-*",
+            "target/classes", "build/intermediates",
+            "bin/Debug/net*", "bin/Release/net*", "obj/Debug/net*", "obj/Release/net*",
+            "AppData/Local/Temp", "AppData/Local/Microsoft/Windows/INetCache",
+            "AppData/**/Cache", "AppData/**/Code Cache", "AppData/**/GPUCache", "AppData/**/Service Worker",
+            "AppData/**/cache2",
+            "Library/Application Support/**/Cache", "Library/Application Support/**/Code Cache",
+            "Library/Application Support/**/GPUCache", "Library/Application Support/**/Service Worker",
+            ".config/**/Cache", ".config/**/Code Cache", ".config/**/GPUCache", ".config/**/Service Worker",
+            ".cache", "Library/Caches",
+            "$Recycle.Bin", "System Volume Information",
+    };
+
+    /* ---------- extension trie ---------- */
+
+    /** 'a'-'z' → 0-25, '0'-'9' → 26-35, '.' → 36, 그 외 → -1 */
+    private static final int ALPHABET = 37;
+    private static final int[][] NEXT;
+    private static final FileFormat[] TERMINAL;
+
+    /* ---------- ignore globs ---------- */
+
+    /** 규칙 하나 = 세그먼트 glob 배열 (소문자) */
+    private static final char[][][] IGNORES;
+    /** 첫 세그먼트의 첫 글자(ASCII 소문자)별 규칙 묶음, 와일드카드로 시작하는 규칙은 WILD */
+    private static final char[][][][] BY_FIRST = new char[128][][][];
+    private static final char[][][] WILD_FIRST;
+
+    static {
+        List<int[]> next = new ArrayList<>();
+        List<FileFormat> term = new ArrayList<>();
+        next.add(new int[ALPHABET]);
+        term.add(null);
+        addExt(next, term, ".png", FileFormat.PNG);
+        addExt(next, term, ".jpg", FileFormat.JPEG);
+        addExt(next, term, ".jpeg", FileFormat.JPEG);
+        addExt(next, term, ".pdf", FileFormat.PDF);
+        NEXT = next.toArray(new int[0][]);
+        TERMINAL = term.toArray(new FileFormat[0]);
+
+        List<String> rules = new ArrayList<>();
+        if (!"false".equalsIgnoreCase(System.getProperty("secureagent.ignore.defaults"))) {
+            rules.addAll(List.of(DEFAULT_IGNORES));
+        }
+        String extra = System.getProperty("secureagent.ignore");
+        if (extra != null) for (String r : extra.split(";")) if (!r.isBlank()) rules.add(r.trim());
+        IGNORES = new char[rules.size()][][];
+        for (int i = 0; i < rules.size(); i++) IGNORES[i] = compile(rules.get(i));
+
+        List<List<char[][]>> buckets = new ArrayList<>();
+        for (int i = 0; i < 128; i++) buckets.add(new ArrayList<>());
+        List<char[][]> wild = new ArrayList<>();
+        for (char[][] r : IGNORES) {
+            if (r.length == 0) continue;
+            char c = r[0][0];
+            if (c == '*' || c == '?' || c >= 128) wild.add(r);
+            else buckets.get(c).add(r);
+        }
+        for (int i = 0; i < 128; i++) {
+            if (!buckets.get(i).isEmpty()) BY_FIRST[i] = buckets.get(i).toArray(new char[0][][]);
+        }
+        WILD_FIRST = wild.toArray(new char[0][][]);
+    }
+
+    private PathClassifier() {}
+
+    /** 확장자로 본 형식 (대상이 아니면 NONE) */
+    public static FileFormat formatOf(CharSequence path) {
+        int node = 0;
+        for (int i = path.length() - 1; i >= 0; i--) {
+            int c = index(path.charAt(i));
+            if (c < 0) return FileFormat.NONE;
+            node = NEXT[node][c];
+            if (node == 0) return FileFormat.NONE;
+            if (TERMINAL[node] != null) return TERMINAL[node];
+        }
+        return FileFormat.NONE;
+    }
+
+    public static FileFormat formatOf(Path p) { return formatOf(p.toString()); }
+
+    /** 무시 규칙에 걸리는 경로인지 (폴더 자체 또는 그 아래) */
+    public static boolean isIgnored(CharSequence path) {
+        int n = path.length();
+        int start = 0;
+        while (start < n) {
+            while (start < n && isSep(path.charAt(start))) start++;
+            if (start >= n) break;
+            int end = start;
+            while (end < n && !isSep(path.charAt(end))) end++;
+
+            char c = lower(path.charAt(start));
+            char[][][] bucket = c < 128 ? BY_FIRST[c] : null;
+            if (bucket != null) {
+                for (char[][] rule : bucket) if (matchesAt(rule, path, start, end)) return true;
+            }
+            for (char[][] rule : WILD_FIRST) if (matchesAt(rule, path, start, end)) return true;
+            start = end;
+        }
+        return false;
+    }
+
+    public static boolean isIgnored(Path p) { return isIgnored(p.toString()); }
+
+    /** 워처 대상: 대상 확장자이면서 무시 폴더 밖 */
+    public static boolean isTarget(Path p) {
+        String s = p.toString();
+        return formatOf(s) != FileFormat.NONE && !isIgnored(s);
+    }
+
+    /* ---------- internals ---------- */
+
+    private static void addExt(List<int[]> next, List<FileFormat> term, String ext, FileFormat f) {
+        int node = 0;
+        for (int i = ext.length() - 1; i >= 0; i--) {
+            int c = index(ext.charAt(i));
+            if (next.get(node)[c] == 0) {
+                next.add(new int[ALPHABET]);
+                term.add(null);
+                next.get(node)[c] = next.size() - 1;
+            }
+            node = next.get(node)[c];
+        }
+        term.set(node, f);
+    }
+
+    private static int index(char ch) {
+        if (ch >= 'a' && ch <= 'z') return ch - 'a';
+        if (ch >= 'A' && ch <= 'Z') return ch - 'A';
+        if (ch >= '0' && ch <= '9') return 26 + (ch - '0');
+        if (ch == '.') return 36;
+        return -1;
+    }
+
+    private static boolean isSep(char c) { return c == '/' || c == '\\'; }
+
+    private static char lower(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + 32) : Character.toLowerCase(c);
+    }
+
+    private static boolean hasWildcard(char[] pat) {
+        for (char c : pat) if (c == '*' || c == '?') return true;
+        return false;
+    }
+
+    private static char[][] compile(String rule) {
+        String[] segs = rule.replace('\\', '/').split("/");
+        List<char[]> out = new ArrayList<>();
+        for (String s : segs) if (!s.isEmpty()) out.add(s.toLowerCase().toCharArray());
+        return out.toArray(new char[0][]);
+    }
+
+    /** path 의 [start, end) 세그먼트부터 rule 의 세그먼트들이 연속으로 일치하는지 */
+    private static boolean matchesAt(char[][] rule, CharSequence path, int start, int end) {
+        return glob(rule[0], path, start, end) && matchesFrom(rule, 1, path, end);
+    }
+
+    /** rule[k..] 가 pos 뒤 세그먼트들과 연속으로 일치하는지 ('**' 는 0개 이상의 세그먼트) */
+    private static boolean matchesFrom(char[][] rule, int k, CharSequence path, int pos) {
+        int n = path.length();
+        for (; k < rule.length; k++) {
+            if (isAnySegments(rule[k])) {
+                if (k + 1 == rule.length) return true;
+                while (true) {
+                    if (matchesFrom(rule, k + 1, path, pos)) return true;
+                    while (pos < n && isSep(path.charAt(pos))) pos++;
+                    if (pos >= n) return false;
+                    while (pos < n && !isSep(path.charAt(pos))) pos++;
+                }
+            }
+            while (pos < n && isSep(path.charAt(pos))) pos++;
+            if (pos >= n) return false;
+            int e = pos;
+            while (e < n && !isSep(path.charAt(e))) e++;
+            if (!glob(rule[k], path, pos, e)) return false;
+            pos = e;
+        }
+        return true;
+    }
+
+    private static boolean isAnySegments(char[] pat) {
+        return pat.length == 2 && pat[0] == '*' && pat[1] == '*';
+    }
+
+    /** '*' / '?' glob, 대소문자 무시, 역추적 위치만 정수로 보관 (할당 없음) */
+    private static boolean glob(char[] pat, CharSequence s, int from, int to) {
+        if (!hasWildcard(pat) && pat.length != to - from) return false; // 리터럴은 길이부터
+        int p = 0, i = from, star = -1, mark = 0;
+        while (i < to) {
+            if (p < pat.length && (pat[p] == '?' || pat[p] == lower(s.charAt(i)))) {
+                p++; i++;
+            } else if (p < pat.length && pat[p] == '*') {
+                star = p++; mark = i;
+            } else if (star >= 0) {
+                p = star + 1; i = ++mark;
+            } else {
+                return false;
+            }
+        }
+        while (p < pat.length && pat[p] == '*') p++;
+        return p == pat.length;
+    }
+}
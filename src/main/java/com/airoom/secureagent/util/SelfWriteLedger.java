@@ -0,0 +1,96 @@
+package com.airoom.secureagent.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 우리 자신이 쓴 파일 장부 (인코더 tmp → ATOMIC_MOVE 교체 직후 기록)
+ *
+ * 교체 한 번에 CREATE/MODIFY 가 여러 개 발생하는데, 예전에는 그때마다 쓰기 락 확인 →
+ * AlreadyTaggedChecker 메타 재파싱 → recent 캐시로 겨우 막았다. 이제 워처가 장부를 보고 바로 버린다.
+ *
+ * - 키 : FastHash.pathHash (64비트), 값 : 교체 직후의 크기 / mtime / fileKey(inode 등) / 기록 시각
+ * - isOwnWrite(path) : 기록 후 ttlMs 이내의 첫 이벤트 한 번만 true (소비) → 파일 I/O 없는 O(1) 조회 (워처 스레드용)
+ *   경로·시각만으로는 교체 직후 사용자가 다시 저장·덮어쓴 이벤트와 구분할 수 없으므로 한 번만 버림
+ * - matches(path, attrs) : 이미 stat 한 단계용 정확 비교, keepMs 동안 유효
+ *   (교체가 만든 나머지 이벤트 · ttl 이 지난 뒤 늦게 도착한 이벤트는 여기서 버리고,
+ *    사용자가 다시 저장한 내용은 크기·mtime·fileKey 가 달라 분류 단계로 감)
+ *
+ * 튜닝: -Dsecureagent.selfwrite.ttlMs=3000, -Dsecureagent.selfwrite.keepMs=120000
+ */
+public final class SelfWriteLedger {
+
+    private static final long TTL_NS  = TimeUnit.MILLISECONDS.toNanos(Long.getLong("secureagent.selfwrite.ttlMs", 3_000));
+    private static final long KEEP_NS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("secureagent.selfwrite.keepMs", 120_000));
+    private static final int PURGE_ABOVE = 4_096;
+
+    /** unclaimed : 워처가 아직 I/O 없이 버릴 수 있는 이벤트가 남았는지 (교체 1회당 1개) */
+    private record Entry(long size, long mtime, Object fileKey, long at, AtomicBoolean unclaimed) {}
+
+    private static final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    private static final AtomicLong recorded   = new AtomicLong();
+    private static final AtomicLong suppressed = new AtomicLong();
+    private static final AtomicLong matched    = new AtomicLong();
+
+    private SelfWriteLedger() {}
+
+    /** 인코더: ATOMIC_MOVE 직후 호출 (교체된 최종 파일 stat 1회) */
+    public static void record(Path target) {
+        try {
+            BasicFileAttributes a = Files.readAttributes(target, BasicFileAttributes.class);
+            entries.put(FastHash.pathHash(target),
+                    new Entry(a.size(), a.lastModifiedTime().toMillis(), a.fileKey(), System.nanoTime(),
+                            new AtomicBoolean(true)));
+            recorded.incrementAndGet();
+        } catch (IOException ignore) {
+            return; // 교체 직후 다른 프로세스가 지운 경우 등 – 기록할 것 없음
+        }
+        if (entries.size() > PURGE_ABOVE) purge();
+    }
+
+    /** 워처: 방금 우리가 쓴 교체의 첫 이벤트인지 (파일 I/O 없음, 교체 1회당 한 번만 true) */
+    public static boolean isOwnWrite(Path f) {
+        Entry e = entries.get(FastHash.pathHash(f));
+        if (e == null || System.nanoTime() - e.at > TTL_NS || !e.unclaimed.compareAndSet(true, false)) return false;
+        suppressed.incrementAndGet();
+        return true;
+    }
+
+    /** 이미 stat 한 단계: 크기·mtime·fileKey 까지 우리가 쓴 그대로인지 */
+    public static boolean matches(Path f, BasicFileAttributes a) {
+        Entry e = entries.get(FastHash.pathHash(f));
+        if (e == null) return false;
+        if (System.nanoTime() - e.at > KEEP_NS) {
+            entries.remove(FastHash.pathHash(f), e);
+            return false;
+        }
+        boolean same = e.size == a.size() && e.mtime == a.lastModifiedTime().toMillis()
+                && (e.fileKey == null || a.fileKey() == null || Objects.equals(e.fileKey, a.fileKey()));
+        if (same) matched.incrementAndGet();
+        return same;
+    }
+
+    public static Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("entries", entries.size());
+        m.put("recorded", recorded.get());
+        m.put("suppressed", suppressed.get());
+        m.put("matched", matched.get());
+        return m;
+    }
+
+    private static void purge() {
+        long now = System.nanoTime();
+        entries.values().removeIf(e -> now - e.at > KEEP_NS);
+    }
+}
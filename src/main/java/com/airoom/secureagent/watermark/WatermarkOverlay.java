@@ -2,6 +2,7 @@ package com.airoom.secureagent.watermark;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.geom.AffineTransform;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -66,14 +67,15 @@ public class WatermarkOverlay {
                     int stepX = Math.max(200, w / 5);
                     int stepY = Math.max(140, h / 5);
 
-                    // 대각선 텍스트 반복 출력
-                    for (int x = 0; x < w; x += stepX) {
-                        for (int y = 0; y < h; y += stepY) {
-                            g2d.rotate(Math.toRadians(-30), x, y);
-                            g2d.drawString(watermarkText, x, y);
-                            g2d.rotate(Math.toRadians(30), x, y); // 원위치
-                        }
-                    }
+                    // 대각선 텍스트 반복 출력 – 회전 텍스트는 WatermarkStamp 캐시에서 (repaint 마다 래스터화하지 않음)
+                    // HiDPI 배율은 장치 픽셀 크기로 스탬프를 만들어 이미지 확대로 흐려지지 않게
+                    AffineTransform tx = g2d.getTransform();
+                    double sx = tx.getScaleX(), sy = tx.getScaleY();
+                    g2d.setTransform(AffineTransform.getTranslateInstance(tx.getTranslateX(), tx.getTranslateY()));
+                    Font font = g2d.getFont().deriveFont((float) Math.round(base * sx));
+                    WatermarkStamp.draw(g2d, WatermarkStamp.of(watermarkText, font, watermarkColor, 1f),
+                            (int) Math.round(stepX * sx), (int) Math.round(stepY * sy),
+                            (int) Math.ceil(w * sx), (int) Math.ceil(h * sy));
 
                     g2d.dispose();
                 }
@@ -0,0 +1,330 @@
+package com.airoom.secureagent.watermark;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 대각선 워터마크 스탬프 (이미지 인코더 · 화면 오버레이 공용)
+ *
+ * 기존에는 격자 칸마다 rotate → drawString → rotate 로 이미지마다 칸 수만큼 글리프를 그렸다.
+ * - 회전된 텍스트를 한 장에 한 번만 래스터화, 불투명도(AlphaComposite 몫)까지 미리 곱한 premultiplied 픽셀로 보관
+ * - of     : (텍스트, 폰트, 크기, 색상+알파, 불투명도) 로 캐시 – 문구가 고정인 화면 오버레이용 (repaint 마다 재사용)
+ * - render : 캐시 없이 한 번 – 이미지 인코더용 (문구에 파일별 토큰·시각이 들어가 이미지 간에 재사용되지 않음)
+ * - 픽셀은 알파 > 0 인 가로 구간(span)만 보관 → 칸마다 실제 글자 픽셀만 합성
+ *   (칸 전체 타일을 TexturePaint / drawImage 로 덮으면 투명 픽셀까지 합성해 drawString 보다 느렸음)
+ * - apply : INT_RGB / INT_ARGB 래스터(DataBufferInt)에 정수 SRC_OVER 로 직접 합성, 그 외 형식은 draw 로
+ * - draw  : Graphics2D 만 있는 곳(오버레이 paintComponent)용 – 칸마다 스탬프 이미지 drawImage
+ * - 격자 기준점은 기존 루프와 동일 (0,0) 부터 step 간격, 이미지 안쪽 기준점만
+ * - 큰 이미지(기본 4MP 이상, 8K 스크린샷·스캔 페이지)는 가로 띠(band)로 나눠 fork-join 풀에서 합성
+ *   띠마다 자기 행만 쓰고 픽셀별 합성 순서가 같으므로 직렬 결과와 비트 단위로 동일
+ *
+ * 캐시 상한: 스탬프 바이트 합계 -Dsecureagent.stamp.cacheMb (기본 32)
+ * 병렬: -Dsecureagent.stamp.threads (기본 코어 수), -Dsecureagent.stamp.parallelMinPx (기본 4000000)
+ */
+public final class WatermarkStamp {
+
+    /** 기존 루프와 같은 기울기 */
+    public static final double ANGLE_DEG = -30;
+
+    private record Key(String text, String family, int style, int fontPx, int argb, int opacityBits) {}
+
+    private static final Cache<Key, Stamp> STAMPS = Caffeine.newBuilder()
+            .maximumWeight(Long.getLong("secureagent.stamp.cacheMb", 32) << 20)
+            .weigher((Key k, Stamp s) -> s.weight())
+            .build();
+
+    private static final long PARALLEL_MIN_PX = Long.getLong("secureagent.stamp.parallelMinPx", 4_000_000L);
+    /** 띠 하나의 최소 행 수 (너무 잘게 나누면 fork 비용이 합성보다 커짐) */
+    private static final int MIN_BAND_ROWS = 32;
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong renders = new AtomicLong();
+    private static final AtomicLong parallel = new AtomicLong();
+
+    /** 합성 전용 풀 – 첫 대형 이미지에서 생성 */
+    private static final class Pool {
+        static final ForkJoinPool INSTANCE = new ForkJoinPool(
+                Math.max(1, Integer.getInteger("secureagent.stamp.threads",
+                        Runtime.getRuntime().availableProcessors())), p -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setName("stamp-band-" + t.getPoolIndex());
+            t.setDaemon(true);
+            return t;
+        }, null, false);
+    }
+
+    private WatermarkStamp() {}
+
+    /**
+     * 래스터화된 워터마크 한 개 (불변)
+     * - (ox, oy) : 기준점(drawString 의 x, y) 에서 스탬프 왼쪽 위까지 오프셋
+     * - spans    : {dy, dx, len, pixels 시작 인덱스} 반복 (dy 오름차순), pixels 는 premultiplied ARGB
+     * - rows     : 스탬프 행 dy 의 span 은 spans[rows[dy] .. rows[dy+1])
+     */
+    public static final class Stamp {
+        final int ox, oy, width, height;
+        final int[] spans;
+        final int[] rows;
+        final int[] pixels;
+        final BufferedImage image;
+
+        private Stamp(int ox, int oy, BufferedImage image, int[] spans, int[] pixels) {
+            this.ox = ox;
+            this.oy = oy;
+            this.width = image.getWidth();
+            this.height = image.getHeight();
+            this.image = image;
+            this.spans = spans;
+            this.pixels = pixels;
+            this.rows = new int[height + 1];
+            int i = 0;
+            for (int dy = 0; dy <= height; dy++) {
+                while (i < spans.length && spans[i] < dy) i += 4;
+                rows[dy] = i;
+            }
+        }
+
+        /** 합성 대상 픽셀 수 (칸 하나) */
+        public int coverage() { return pixels.length; }
+
+        private int weight() { return (width * height + pixels.length + spans.length + rows.length) * 4; }
+    }
+
+    /**
+     * 캐시된 스탬프 (같은 문구를 반복해 그리는 곳)
+     * @param color   글자 색 (알파 포함)
+     * @param opacity 추가 불투명도 (기존 AlphaComposite SRC_OVER 값, 없으면 1)
+     */
+    public static Stamp of(String text, Font font, Color color, float opacity) {
+        float op = Math.max(0f, Math.min(1f, opacity));
+        Key k = new Key(text, font.getFamily(), font.getStyle(), font.getSize(), color.getRGB(), Float.floatToIntBits(op));
+        Stamp s = STAMPS.getIfPresent(k);
+        if (s != null) {
+            hits.incrementAndGet();
+            return s;
+        }
+        return STAMPS.get(k, key -> {
+            renders.incrementAndGet();
+            return rasterize(text, font, color, op);
+        });
+    }
+
+    /**
+     * 캐시하지 않는 스탬프 (문구가 매번 다른 곳 – 이미지 한 장 안의 칸끼리만 공유)
+     * - 일회용 스탬프로 캐시를 채워 오버레이 스탬프를 밀어내지 않도록
+     */
+    public static Stamp render(String text, Font font, Color color, float opacity) {
+        return rasterize(text, font, color, Math.max(0f, Math.min(1f, opacity)));
+    }
+
+    /** 이미지 전체 격자에 합성 (가능하면 래스터 직접 합성, 큰 이미지는 띠 병렬) */
+    public static void apply(BufferedImage dst, Stamp s, int stepX, int stepY) {
+        boolean large = (long) dst.getWidth() * dst.getHeight() >= PARALLEL_MIN_PX;
+        apply(dst, s, stepX, stepY, large ? Pool.INSTANCE : null);
+    }
+
+    /**
+     * 풀 지정 합성 (벤치·검증용)
+     * @param pool null 또는 병렬도 1 이면 현재 스레드에서 직렬
+     */
+    public static void apply(BufferedImage dst, Stamp s, int stepX, int stepY, ForkJoinPool pool) {
+        int type = dst.getType();
+        if (s.pixels.length == 0) return;
+        if (type != BufferedImage.TYPE_INT_RGB && type != BufferedImage.TYPE_INT_ARGB) {
+            Graphics2D g = dst.createGraphics();
+            try { draw(g, s, stepX, stepY, dst.getWidth(), dst.getHeight()); }
+            finally { g.dispose(); }
+            return;
+        }
+        int[] px = ((DataBufferInt) dst.getRaster().getDataBuffer()).getData();
+        int w = dst.getWidth(), h = dst.getHeight();
+        int sx = Math.max(1, stepX), sy = Math.max(1, stepY);
+        boolean opaque = type == BufferedImage.TYPE_INT_RGB;
+        if (pool == null || pool.getParallelism() == 1) {
+            blendRows(px, w, h, s, sx, sy, 0, h, 0, opaque);
+            return;
+        }
+        parallel.incrementAndGet();
+        int bandRows = Math.max(MIN_BAND_ROWS, h / (pool.getParallelism() * 4));   // 코어당 4띠 → 띠별 편차 흡수
+        pool.invoke(new Band(px, w, h, s, sx, sy, 0, h, opaque, bandRows));
+    }
+
+    /** 행 구간 [y0, y1) – bandRows 이하가 될 때까지 반으로 나눔 */
+    @SuppressWarnings("serial")     // 풀 안에서만 쓰는 작업 – 직렬화하지 않음
+    private static final class Band extends RecursiveAction {
+        private final int[] px;
+        private final int w, h, stepX, stepY, y0, y1, bandRows;
+        private final Stamp s;
+        private final boolean opaque;
+
+        Band(int[] px, int w, int h, Stamp s, int stepX, int stepY, int y0, int y1, boolean opaque, int bandRows) {
+            this.px = px; this.w = w; this.h = h; this.s = s;
+            this.stepX = stepX; this.stepY = stepY;
+            this.y0 = y0; this.y1 = y1; this.opaque = opaque; this.bandRows = bandRows;
+        }
+
+        @Override protected void compute() {
+            if (y1 - y0 <= bandRows) {
+                blendRows(px, w, h, s, stepX, stepY, y0, y1, 0, opaque);
+                return;
+            }
+            int mid = (y0 + y1) >>> 1;
+            invokeAll(new Band(px, w, h, s, stepX, stepY, y0, mid, opaque, bandRows),
+                      new Band(px, w, h, s, stepX, stepY, mid, y1, opaque, bandRows));
+        }
+    }
+
+    /**
+     * 이미지 일부 행만 메모리에 있는 경우(스트리밍 인코딩의 strip) – px 의 0 행이 이미지의 y0 행
+     * 결과는 전체 이미지에 apply 한 것의 같은 행과 동일
+     * @param h     전체 이미지 높이 (격자 기준점 범위)
+     * @param alpha INT_ARGB 면 true, INT_RGB 면 false
+     */
+    public static void applyRows(int[] px, int w, int h, Stamp s, int stepX, int stepY,
+                                 int y0, int y1, boolean alpha) {
+        if (s.pixels.length == 0) return;
+        blendRows(px, w, h, s, Math.max(1, stepX), Math.max(1, stepY), y0, y1, y0, !alpha);
+    }
+
+    /**
+     * 이미지 행 [y0, y1) 에 걸친 모든 스탬프 조각을 합성 (px 의 0 행 = 이미지 baseY 행)
+     * - 스탬프 단위로 세로로 훑으면 큰 이미지에서 행마다 캐시/TLB 미스 → 이미지 행 순서대로 처리
+     * - 한 픽셀에 겹치는 스탬프는 항상 (격자 행, 격자 열) 오름차순으로 합성 → 행 구간을 나눠도 결과 동일
+     */
+    static void blendRows(int[] px, int w, int h, Stamp s, int stepX, int stepY,
+                          int y0, int y1, int baseY, boolean opaque) {
+        int[] spans = s.spans, src = s.pixels, rows = s.rows;
+        int lastJ = (h - 1) / stepY;                                  // 이미지 안쪽 기준점만 (기존 루프와 동일)
+        for (int y = y0; y < y1; y++) {
+            int rel = y - s.oy;                                       // = j*stepY + dy
+            int jMin = Math.max(0, Math.floorDiv(rel - s.height, stepY) + 1);
+            int jMax = Math.min(lastJ, Math.floorDiv(rel, stepY));
+            int row = (y - baseY) * w;
+            for (int j = jMin; j <= jMax; j++) {
+                int dy = rel - j * stepY;
+                for (int i = rows[dy]; i < rows[dy + 1]; i += 4) {
+                    int dx = s.ox + spans[i + 1], len = spans[i + 2], si = spans[i + 3];
+                    for (int x = 0; x < w; x += stepX) {
+                        int x0 = x + dx;
+                        int from = Math.max(0, -x0), to = Math.min(len, w - x0);
+                        for (int k = from; k < to; k++) {
+                            px[row + x0 + k] = over(src[si + k], px[row + x0 + k], opaque);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /** Graphics2D 대상 (오버레이 등) – 칸마다 스탬프 이미지 한 장 */
+    public static void draw(Graphics2D g, Stamp s, int stepX, int stepY, int w, int h) {
+        if (s.pixels.length == 0) return;
+        for (int x = 0; x < w; x += Math.max(1, stepX)) {
+            for (int y = 0; y < h; y += Math.max(1, stepY)) {
+                g.drawImage(s.image, x + s.ox, y + s.oy, null);
+            }
+        }
+    }
+
+    /** premultiplied src SRC_OVER dst (dst 는 non-premultiplied ARGB / RGB) */
+    static int over(int s, int d, boolean opaque) {
+        int sa = s >>> 24, inv = 255 - sa;
+        int da = opaque ? 255 : d >>> 24;
+        if (da == 255) {
+            int r = ((s >> 16) & 0xFF) + div255(((d >> 16) & 0xFF) * inv);
+            int g = ((s >> 8) & 0xFF) + div255(((d >> 8) & 0xFF) * inv);
+            int b = (s & 0xFF) + div255((d & 0xFF) * inv);
+            return 0xFF000000 | r << 16 | g << 8 | b;
+        }
+        int dw = div255(da * inv);                                   // 결과에서 dst 가 차지하는 몫
+        int oa = sa + dw;
+        if (oa == 0) return 0;
+        int r = unpremul(((s >> 16) & 0xFF) + div255(((d >> 16) & 0xFF) * dw), oa);
+        int g = unpremul(((s >> 8) & 0xFF) + div255(((d >> 8) & 0xFF) * dw), oa);
+        int b = unpremul((s & 0xFF) + div255((d & 0xFF) * dw), oa);
+        return oa << 24 | r << 16 | g << 8 | b;
+    }
+
+    /** round(x / 255), 0 ≤ x ≤ 255×255 */
+    private static int div255(int x) {
+        x += 128;
+        return (x + (x >> 8)) >> 8;
+    }
+
+    private static int unpremul(int c, int a) {
+        return Math.min(255, (c * 255 + a / 2) / a);
+    }
+
+    private static Stamp rasterize(String text, Font font, Color color, float opacity) {
+        // 회전된 글자 외곽의 경계 상자 (안티앨리어싱 여유 2px)
+        FontRenderContext frc = new FontRenderContext(null, true, true);
+        Shape outline = font.createGlyphVector(frc, text).getOutline();
+        Rectangle r = AffineTransform.getRotateInstance(Math.toRadians(ANGLE_DEG))
+                .createTransformedShape(outline).getBounds();
+        r.grow(2, 2);
+
+        BufferedImage img = new BufferedImage(Math.max(1, r.width), Math.max(1, r.height),
+                BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g = img.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, opacity));
+            g.setFont(font);
+            g.setColor(color);
+            g.translate(-r.x, -r.y);
+            g.rotate(Math.toRadians(ANGLE_DEG));
+            g.drawString(text, 0, 0);
+        } finally {
+            g.dispose();
+        }
+
+        // 알파 > 0 구간만 추출
+        int w = img.getWidth(), h = img.getHeight();
+        int[] all = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+        int[] spans = new int[64];
+        int[] pixels = new int[256];
+        int ns = 0, np = 0;
+        for (int y = 0; y < h; y++) {
+            int x = 0;
+            while (x < w) {
+                while (x < w && all[y * w + x] >>> 24 == 0) x++;
+                int start = x;
+                while (x < w && all[y * w + x] >>> 24 != 0) x++;
+                if (x == start) continue;
+                int len = x - start;
+                if (ns + 4 > spans.length) spans = Arrays.copyOf(spans, spans.length * 2);
+                if (np + len > pixels.length) pixels = Arrays.copyOf(pixels, Math.max(pixels.length * 2, np + len));
+                spans[ns++] = y;
+                spans[ns++] = start;
+                spans[ns++] = len;
+                spans[ns++] = np;
+                System.arraycopy(all, y * w + start, pixels, np, len);
+                np += len;
+            }
+        }
+        return new Stamp(r.x, r.y, img, Arrays.copyOf(spans, ns), Arrays.copyOf(pixels, np));
+    }
+
+    public static Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("stamps", STAMPS.estimatedSize());
+        m.put("hits", hits.get());
+        m.put("renders", renders.get());
+        m.put("parallel", parallel.get());
+        return m;
+    }
+}
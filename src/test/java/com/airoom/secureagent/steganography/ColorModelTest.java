@@ -0,0 +1,133 @@
+package com.airoom.secureagent.steganography;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.IndexColorModel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 재인코딩 시 원본 ColorModel 유지: 팔레트·회색조는 종류/비트 깊이 유지, 출력 ≤ INT 변환 경로, 페이로드 디코딩
+ * (ColorModelBench 의 자체 검증을 작은 화면으로)
+ */
+class ColorModelTest {
+
+    private static final int W = 640, H = 400;
+    private static final String PAYLOAD = "test|user=test|ts=0";
+
+    @TempDir Path dir;
+
+    @AfterEach
+    void resetProperties() {
+        System.clearProperty("secureagent.embed.mode");
+        System.clearProperty("secureagent.encode.keepColorModel");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"gray8.png", "gray16.png", "palette8.png", "palette4.png", "gray.jpg"})
+    void reencodeKeepsColorModelAndSize(String name) throws Exception {
+        Path src = write(name);
+        BufferedImage before = ImageIO.read(src.toFile());
+        assertTrue(ImageStegoWithWatermarkEncoder.keepsColorModel(before, name.endsWith(".png")));
+
+        Path legacy = encode(src, "legacy-" + name, false);
+        Path kept = encode(src, "kept-" + name, true);
+        BufferedImage out = ImageIO.read(kept.toFile());
+
+        ColorModel in = before.getColorModel(), cm = out.getColorModel();
+        assertEquals(in.getClass(), cm.getClass());
+        assertEquals(in.getPixelSize(), cm.getPixelSize(), "비트 깊이");
+        assertEquals(in.getNumComponents(), cm.getNumComponents());
+        assertTrue(Files.size(kept) <= Files.size(legacy),
+                "유지 " + Files.size(kept) + " B > 기존 " + Files.size(legacy) + " B");
+        assertTrue(changed(before, out), "워터마크가 그려짐");
+        assertEquals(PAYLOAD, ImageStegoDecoder.decode(kept.toString()));
+        assertEquals(PAYLOAD, ImageStegoDecoder.decode(legacy.toString()));
+    }
+
+    @Test
+    void rgbAndOptOutStillConvert() throws Exception {
+        BufferedImage rgb = ImageIO.read(write("rgb.png").toFile());
+        assertFalse(ImageStegoWithWatermarkEncoder.keepsColorModel(rgb, true));
+
+        BufferedImage gray = ImageIO.read(write("gray8.png").toFile());
+        System.setProperty("secureagent.encode.keepColorModel", "false");
+        assertFalse(ImageStegoWithWatermarkEncoder.keepsColorModel(gray, true));
+    }
+
+    /** 원본을 복사해 REENCODE 로 인코딩 */
+    private Path encode(Path src, String name, boolean keep) throws Exception {
+        System.setProperty("secureagent.embed.mode", "REENCODE");
+        System.setProperty("secureagent.encode.keepColorModel", String.valueOf(keep));
+        Path f = dir.resolve(name);
+        Files.copy(src, f, StandardCopyOption.REPLACE_EXISTING);
+        assertTrue(ImageStegoWithWatermarkEncoder.encode(f.toString(), f.toString(), PAYLOAD, "AIROOM", 0.3f));
+        return f;
+    }
+
+    private Path write(String name) throws Exception {
+        int type = switch (name) {
+            case "gray8.png", "gray.jpg" -> BufferedImage.TYPE_BYTE_GRAY;
+            case "gray16.png" -> BufferedImage.TYPE_USHORT_GRAY;
+            case "palette8.png" -> BufferedImage.TYPE_BYTE_INDEXED;
+            case "palette4.png" -> BufferedImage.TYPE_BYTE_BINARY;
+            default -> BufferedImage.TYPE_INT_RGB;
+        };
+        BufferedImage img = type == BufferedImage.TYPE_BYTE_BINARY
+                ? new BufferedImage(W, H, type, palette16())
+                : new BufferedImage(W, H, type);
+        Graphics2D g = img.createGraphics();
+        g.drawImage(screen(), 0, 0, null);
+        g.dispose();
+        Path f = dir.resolve("src-" + name);
+        ImageIO.write(img, name.endsWith(".jpg") ? "jpeg" : "png", f.toFile());
+        return f;
+    }
+
+    private static boolean changed(BufferedImage a, BufferedImage b) {
+        return !Arrays.equals(a.getRGB(0, 0, W, H, null, 0, W), b.getRGB(0, 0, W, H, null, 0, W));
+    }
+
+    /** 스크린샷 비슷한 화면: 배경 그라데이션, 단색 패널, 텍스트 줄 */
+    private static BufferedImage screen() {
+        BufferedImage img = new BufferedImage(W, H, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, new Color(235, 240, 250), W, H, new Color(200, 210, 230)));
+        g.fillRect(0, 0, W, H);
+        g.setFont(new Font("Dialog", Font.PLAIN, 14));
+        for (int p = 0; p < 2; p++) {
+            int px = 20 + p * (W / 2), pw = W / 2 - 40;
+            g.setColor(p == 0 ? Color.WHITE : new Color(40, 44, 52));
+            g.fillRoundRect(px, 30, pw, H - 60, 12, 12);
+            g.setColor(p == 0 ? new Color(30, 30, 30) : new Color(200, 220, 180));
+            for (int y = 60; y < H - 40; y += 20) g.drawString("수업 자료 " + p + "-" + y + " 0123456789", px + 12, y);
+        }
+        g.dispose();
+        return img;
+    }
+
+    /** 16색 팔레트 (배경·패널·글자 + 빨강 계열) */
+    private static IndexColorModel palette16() {
+        int[] rgb = {0x000000, 0x1E1E1E, 0x282C34, 0x505050, 0x808080, 0xB4B4B4, 0xC8D2E6, 0xDCE3F0,
+                0xEBF0FA, 0xFAFAF5, 0xFFFFFF, 0xC8DCB4, 0xFF0000, 0xFF8080, 0xC04040, 0xFFC0C0};
+        byte[] r = new byte[16], gr = new byte[16], b = new byte[16];
+        for (int i = 0; i < 16; i++) {
+            r[i] = (byte) (rgb[i] >> 16);
+            gr[i] = (byte) (rgb[i] >> 8);
+            b[i] = (byte) rgb[i];
+        }
+        return new IndexColorModel(4, 16, r, gr, b);
+    }
+}
@@ -0,0 +1,140 @@
+package com.airoom.secureagent.steganography;
+
+import com.airoom.secureagent.util.FileFormat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 픽셀 LSB: 두 구현 동일, 잘라낸 조각 · 메타데이터 없이 재저장한 사본에서 복구, 켜기 전용(opt-in)
+ */
+class LsbCodecTest {
+
+    private static final int W = 1000, H = 700;
+    private static final String PAYLOAD = "test|user=test|ts=0";
+
+    @TempDir Path dir;
+
+    @AfterEach
+    void resetProperties() {
+        System.clearProperty("secureagent.embed.mode");
+        System.clearProperty("secureagent.lsb.enabled");
+    }
+
+    @Test
+    void scalarAndVectorEmbedIdenticallyAndExtract() {
+        byte[] payload = payload(300);
+        int[] tile = LsbCodec.tile(payload);
+        int[] src = photo(W, H);
+        int[] scalar = src.clone(), vector = src.clone();
+
+        LsbCodec.embed(scalar, W, H, tile, false);
+        LsbCodec.embed(vector, W, H, tile, true);
+
+        assertArrayEquals(scalar, vector);
+        assertArrayEquals(payload, LsbCodec.extract(scalar, W, H, false));
+        assertArrayEquals(payload, LsbCodec.extract(vector, W, H, true));
+    }
+
+    @Test
+    void recoversFromCropAtOddOffset() {
+        byte[] payload = payload(120);
+        int[] px = photo(W, H);
+        LsbCodec.embed(px, W, H, LsbCodec.tile(payload), true);
+
+        BufferedImage crop = copy(image(px, W, H).getSubimage(333, 217, 300, 200));
+        assertArrayEquals(payload, LsbCodec.extract(crop));
+    }
+
+    @Test
+    void untaggedOrTooSmallReturnsNull() {
+        assertNull(LsbCodec.extract(copy(image(photo(W, H), W, H).getSubimage(0, 0, 400, 300))));
+
+        int[] px = photo(W, H);
+        LsbCodec.embed(px, W, H, LsbCodec.tile(payload(64)), true);
+        int small = LsbCodec.TILE - 8;                                     // 타일 한 장보다 작으면 복구 불가
+        assertNull(LsbCodec.extract(copy(image(px, W, H).getSubimage(11, 11, small, small))));
+    }
+
+    @Test
+    void lsbIsOptInAndNeverDisablesAutoSplice() {
+        assertFalse(LsbCodec.enabled());
+        assertTrue(MetadataSplicer.applies(FileFormat.PNG, 0.004f));
+
+        System.setProperty("secureagent.lsb.enabled", "true");
+        assertTrue(LsbCodec.enabled());
+        assertTrue(MetadataSplicer.applies(FileFormat.PNG, 0.004f));
+    }
+
+    @Test
+    void reencodeWithLsbSurvivesCropAndMetadataFreeResave() throws Exception {
+        System.setProperty("secureagent.embed.mode", "REENCODE");
+        System.setProperty("secureagent.lsb.enabled", "true");
+        assertEquals(PAYLOAD, encodeCropResaveDecode("on"));
+    }
+
+    @Test
+    void reencodeWithoutLsbLeavesNoPixelCopy() throws Exception {
+        System.setProperty("secureagent.embed.mode", "REENCODE");
+        assertNull(encodeCropResaveDecode("off"));
+    }
+
+    /** 인코딩 → 잘라서 ImageIO 로 다시 저장(tEXt 없음) → 디코딩 */
+    private String encodeCropResaveDecode(String name) throws Exception {
+        Path f = dir.resolve(name + ".png"), resaved = dir.resolve(name + "-resaved.png");
+        ImageIO.write(image(photo(W, H), W, H), "png", f.toFile());
+        assertTrue(ImageStegoWithWatermarkEncoder.encode(f.toString(), f.toString(), PAYLOAD, "AIROOM", 0.004f));
+
+        BufferedImage read = ImageIO.read(f.toFile());
+        ImageIO.write(copy(read.getSubimage(211, 97, 500, 400)), "png", resaved.toFile());
+        assertNull(MetadataSplicer.readText(resaved, FileFormat.PNG, "StegoPayload"), "tEXt 는 사라짐");
+        return ImageStegoDecoder.decode(resaved.toString());
+    }
+
+    private static byte[] payload(int size) {
+        byte[] b = new byte[size];
+        new SplittableRandom(7).nextBytes(b);
+        return b;
+    }
+
+    private static BufferedImage copy(BufferedImage sub) {
+        BufferedImage out = new BufferedImage(sub.getWidth(), sub.getHeight(), BufferedImage.TYPE_INT_RGB);
+        out.getGraphics().drawImage(sub, 0, 0, null);
+        return out;
+    }
+
+    private static BufferedImage image(int[] px, int w, int h) {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        System.arraycopy(px, 0, ((DataBufferInt) img.getRaster().getDataBuffer()).getData(), 0, px.length);
+        return img;
+    }
+
+    /** 사진 비슷한 픽셀: 부드러운 색 변화 + 채널별 노이즈 */
+    private static int[] photo(int w, int h) {
+        int[] px = new int[w * h];
+        SplittableRandom rnd = new SplittableRandom(42);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                double base = Math.sin(x * 7.1 / w + y * 2.3 / h) * 0.5;
+                int r = clamp(128 + 90 * base + rnd.nextInt(-6, 7));
+                int g = clamp(110 + 60 * base + rnd.nextInt(-6, 7));
+                int b = clamp(100 - 50 * base + rnd.nextInt(-6, 7));
+                px[y * w + x] = r << 16 | g << 8 | b;
+            }
+        }
+        return px;
+    }
+
+    private static int clamp(double v) {
+        return (int) Math.max(0, Math.min(255, v));
+    }
+}
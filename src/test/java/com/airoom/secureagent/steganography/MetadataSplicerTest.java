@@ -0,0 +1,137 @@
+package com.airoom.secureagent.steganography;
+
+import com.airoom.secureagent.util.FileFormat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MetadataSplicer: 픽셀은 그대로, 삽입한 태그는 빠른 조회 · 디코더 양쪽에서 읽힘
+ */
+class MetadataSplicerTest {
+
+    private static final String KEYWORD = "StegoPayload";
+    private static final String PAYLOAD = "test|user=test|ts=0";
+
+    @TempDir Path dir;
+
+    @AfterEach
+    void resetMode() {
+        System.clearProperty("secureagent.embed.mode");
+        System.clearProperty("secureagent.lsb.enabled");
+    }
+
+    @Test
+    void pngSpliceKeepsPixelsAndReadsBack() throws Exception {
+        Path original = write(dir.resolve("a.png"), "png");
+        Path spliced = dir.resolve("b.png");
+
+        assertTrue(MetadataSplicer.splicePng(original, spliced, KEYWORD, "dmFsdWU="));
+
+        assertEquals("dmFsdWU=", MetadataSplicer.readText(spliced, FileFormat.PNG, KEYWORD));
+        assertNull(MetadataSplicer.readText(original, FileFormat.PNG, KEYWORD));
+        assertArrayEquals(pixels(original), pixels(spliced));
+        assertEquals(Files.size(original) + 12 + KEYWORD.length() + 1 + "dmFsdWU=".length(), Files.size(spliced));
+    }
+
+    /** 기본 정책(AUTO, 불투명도 0.004)은 LSB 를 켜도 PNG 를 splice – 픽셀 · 압축 데이터 그대로 */
+    @Test
+    void pngEncoderDefaultPolicySplices() throws Exception {
+        for (String lsb : new String[]{"false", "true"}) {
+            System.setProperty("secureagent.lsb.enabled", lsb);
+            Path f = write(dir.resolve("c-" + lsb + ".png"), "png");
+            byte[] before = Files.readAllBytes(f);
+
+            assertTrue(ImageStegoWithWatermarkEncoder.encode(f.toString(), f.toString(), PAYLOAD, "AIROOM", 0.004f));
+
+            assertEquals(PAYLOAD, ImageStegoDecoder.decode(f.toString()), lsb);
+            // 원본 바이트 사이에 tEXt 청크 하나만 끼어 있음 (재인코딩이면 IDAT 부터 달라짐)
+            byte[] after = Files.readAllBytes(f);
+            int at = new String(after, StandardCharsets.ISO_8859_1).indexOf("tEXt") - 4, added = after.length - before.length;
+            assertTrue(at > 8, lsb);
+            assertArrayEquals(Arrays.copyOfRange(before, 0, at), Arrays.copyOfRange(after, 0, at), lsb);
+            assertArrayEquals(Arrays.copyOfRange(before, at, before.length),
+                    Arrays.copyOfRange(after, at + added, after.length), lsb);
+        }
+    }
+
+    @Test
+    void jpegCommentSplicedAfterAppSegmentsWithoutRecompression() throws Exception {
+        Path original = write(dir.resolve("a.jpg"), "jpeg");
+        Path spliced = dir.resolve("b.jpg");
+
+        assertTrue(MetadataSplicer.spliceJpeg(original, spliced, KEYWORD + ":dmFsdWU="));
+
+        assertEquals("dmFsdWU=", MetadataSplicer.readText(spliced, FileFormat.JPEG, KEYWORD));
+        assertNull(MetadataSplicer.readText(original, FileFormat.JPEG, KEYWORD));
+        // 원본 바이트 사이에 COM 세그먼트(마커 2B + 길이 2B + 본문)만 끼어 있음
+        byte[] a = Files.readAllBytes(original), b = Files.readAllBytes(spliced);
+        int com = 4 + KEYWORD.length() + 1 + "dmFsdWU=".length();
+        assertEquals(a.length + com, b.length);
+        int at = indexOfCom(b);
+        assertTrue(at > 2, "SOI / APPn 뒤");
+        assertArrayEquals(Arrays.copyOfRange(a, 0, at), Arrays.copyOfRange(b, 0, at));
+        assertArrayEquals(Arrays.copyOfRange(a, at, a.length), Arrays.copyOfRange(b, at + com, b.length));
+        assertArrayEquals(pixels(original), pixels(spliced));
+    }
+
+    @Test
+    void jpegEncoderCommentReadsBackInBothModes() throws Exception {
+        for (String mode : new String[]{"SPLICE", "REENCODE"}) {
+            Path f = write(dir.resolve(mode + ".jpg"), "jpeg");
+            System.setProperty("secureagent.embed.mode", mode);
+
+            assertTrue(ImageStegoWithWatermarkEncoder.encode(f.toString(), f.toString(), PAYLOAD, "AIROOM", 0.004f));
+
+            // 헤더 빠른 조회 (ImageIO 가 쓴 COM 도 SOS 앞) + 디코더
+            assertNotNull(MetadataSplicer.readText(f, FileFormat.JPEG, KEYWORD), mode);
+            assertEquals(PAYLOAD, ImageStegoDecoder.decode(f.toString()), mode);
+        }
+    }
+
+    @Test
+    void pngWithoutIdatIsRejectedUntouched() throws Exception {
+        Path bogus = dir.resolve("bogus.png");
+        Files.write(bogus, new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0, 0, 0});
+        Path out = dir.resolve("out.png");
+
+        assertFalse(MetadataSplicer.splicePng(bogus, out, KEYWORD, "x"));
+        assertFalse(Files.exists(out));
+    }
+
+    /** 첫 COM(0xFFFE) 마커 위치 */
+    private static int indexOfCom(byte[] b) {
+        for (int i = 2; i + 1 < b.length; i++) {
+            if ((b[i] & 0xFF) == 0xFF && (b[i + 1] & 0xFF) == 0xFE) return i;
+        }
+        return -1;
+    }
+
+    static Path write(Path f, String format) throws Exception {
+        BufferedImage img = new BufferedImage(320, 240, BufferedImage.TYPE_INT_RGB);
+        Random rnd = new Random(42);
+        for (int y = 0; y < img.getHeight(); y++) {
+            for (int x = 0; x < img.getWidth(); x++) {
+                int n = rnd.nextInt(32);
+                img.setRGB(x, y, ((x + n) & 0xFF) << 16 | ((y + n) & 0xFF) << 8 | n * 4);
+            }
+        }
+        ImageIO.write(img, format, f.toFile());
+        return f;
+    }
+
+    static int[] pixels(Path f) throws Exception {
+        BufferedImage img = ImageIO.read(f.toFile());
+        return img.getRGB(0, 0, img.getWidth(), img.getHeight(), null, 0, img.getWidth());
+    }
+}
@@ -0,0 +1,99 @@
+package com.airoom.secureagent.steganography;
+
+import com.airoom.secureagent.util.FileFormat;
+import com.airoom.secureagent.util.ImageCodecs;
+import com.airoom.secureagent.watermark.WatermarkStamp;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * strip 경로의 결과 이미지가 기존 전체 경로(전체 디코딩 → INT 사본 → 워터마크 → LSB)와 픽셀 단위로 같은지
+ * (surefire 설정 stripMb=1 → 여러 strip 으로 나뉨)
+ */
+class StripImageSourceTest {
+
+    private static final int W = 900, H = 700;
+    private static final int STEP_X = 300, STEP_Y = 200;
+
+    @TempDir Path dir;
+
+    @Test
+    void sequentialPngMatchesFullPath() throws Exception {
+        Path f = dir.resolve("seq.png");
+        ImageIO.write(noisy(), "png", f.toFile());
+        assertStripsMatchFull(f, FileFormat.PNG, true);
+    }
+
+    @Test
+    void interlacedPngRegionModeMatchesFullPath() throws Exception {
+        Path f = dir.resolve("adam7.png");
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+        ImageWriteParam p = writer.getDefaultWriteParam();
+        p.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);                 // Adam7 인터레이스
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(f.toFile())) {
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(noisy(), null, null), p);
+        } finally {
+            writer.dispose();
+        }
+        assertStripsMatchFull(f, FileFormat.PNG, false);
+    }
+
+    @Test
+    void baselineJpegMatchesFullPath() throws Exception {
+        Path f = dir.resolve("seq.jpg");
+        ImageIO.write(noisy(), "jpeg", f.toFile());
+        assertStripsMatchFull(f, FileFormat.JPEG, true);
+    }
+
+    private static void assertStripsMatchFull(Path f, FileFormat format, boolean sequential) throws Exception {
+        boolean png = format == FileFormat.PNG;
+        WatermarkStamp.Stamp stamp = WatermarkStamp.of("AIROOM", new Font("Arial", Font.BOLD, 36),
+                new Color(255, 0, 0, 77), 0.3f);
+        int[] tile = png ? LsbCodec.tile(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}) : null;
+
+        // 기존 전체 경로
+        BufferedImage src = ImageCodecs.read(f, format);
+        BufferedImage full = new BufferedImage(W, H, png ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = full.createGraphics();
+        g.drawImage(src, 0, 0, null);
+        g.dispose();
+        WatermarkStamp.apply(full, stamp, STEP_X, STEP_Y, null);
+        if (tile != null) LsbCodec.embed(full, tile);
+
+        try (StripImageSource strips = StripImageSource.open(f, format, png, (px, sw, y0, y1) -> {
+            WatermarkStamp.applyRows(px, sw, H, stamp, STEP_X, STEP_Y, y0, y1, png);
+            if (tile != null) LsbCodec.embedRows(px, sw, tile, y0, y1);
+        })) {
+            assertEquals(sequential, strips.sequential());
+            assertTrue(strips.stripRows() < H / 4, "여러 strip");
+            int[] got = strips.image().getRGB(0, 0, W, H, null, 0, W);
+            assertArrayEquals(full.getRGB(0, 0, W, H, null, 0, W), got);
+            assertTrue(strips.loads() >= H / strips.stripRows());
+        }
+    }
+
+    private static BufferedImage noisy() {
+        BufferedImage img = new BufferedImage(W, H, BufferedImage.TYPE_INT_RGB);
+        Random rnd = new Random(42);
+        for (int y = 0; y < H; y++) {
+            for (int x = 0; x < W; x++) {
+                int n = rnd.nextInt(32);
+                img.setRGB(x, y, ((x * 255 / W + n) & 0xFF) << 16 | ((y * 255 / H + n) & 0xFF) << 8 | n * 4);
+            }
+        }
+        return img;
+    }
+}
@@ -0,0 +1,42 @@
+package com.airoom.secureagent.util;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 기본 무시 규칙: 앱 프로필·빌드 출력 안의 캐시는 무시, 같은 이름의 사용자 폴더는 대상
+ */
+class PathClassifierTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "C:\\Users\\kim\\AppData\\Local\\Google\\Chrome\\User Data\\Default\\Cache\\Cache_Data\\f_0001.png",
+            "C:\\Users\\kim\\AppData\\Roaming\\Code\\Code Cache\\js\\a.png",
+            "C:\\Users\\kim\\AppData\\Local\\Mozilla\\Firefox\\Profiles\\x.default\\cache2\\entries\\a.jpg",
+            "/Users/kim/Library/Application Support/Slack/Service Worker/CacheStorage/a.png",
+            "/home/kim/.config/discord/GPUCache/a.png",
+            "/home/kim/.cache/thumbnails/large/a.png",
+            "D:/src/App/bin/Debug/net8.0/logo.png",
+            "D:/src/App/obj/Release/net48/logo.png",
+            "/home/kim/work/node_modules/pkg/docs/a.pdf",
+    })
+    void profileAndBuildCachesAreIgnored(String path) {
+        assertTrue(PathClassifier.isIgnored(path), path);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "/home/kim/Documents/Cache/report.pdf",
+            "C:\\Users\\kim\\Documents\\Cache\\report.pdf",
+            "C:\\Users\\kim\\Desktop\\Service Worker\\슬라이드.png",
+            "C:\\Users\\kim\\Documents\\bin\\Debug\\scan.png",
+            "/home/kim/Lectures/obj/Release/notes.pdf",
+            "/Users/kim/Library/Mobile Documents/Cache/a.png",
+    })
+    void userFoldersWithCacheLikeNamesAreTargets(String path) {
+        assertFalse(PathClassifier.isIgnored(path), path);
+        assertNotEquals(FileFormat.NONE, PathClassifier.formatOf(path));
+    }
+}
@@ -0,0 +1,50 @@
+package com.airoom.secureagent.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 자기 쓰기 장부: 워처는 교체의 첫 이벤트만 버리고, 그 뒤는 속성 비교로 우리 것 / 사용자 재저장을 구분
+ */
+class SelfWriteLedgerTest {
+
+    @TempDir Path dir;
+
+    @Test
+    void watcherSuppressesOnlyOneEventPerReplacement() throws Exception {
+        Path f = Files.writeString(dir.resolve("a.png"), "tagged");
+        SelfWriteLedger.record(f);
+
+        assertTrue(SelfWriteLedger.isOwnWrite(f));
+        assertFalse(SelfWriteLedger.isOwnWrite(f), "두 번째 이벤트는 안정화 단계로");
+        assertTrue(SelfWriteLedger.matches(f, attrs(f)), "우리 교체 그대로면 stat 단계에서 버림");
+
+        SelfWriteLedger.record(f);                                          // 다시 교체하면 새로 한 번
+        assertTrue(SelfWriteLedger.isOwnWrite(f));
+    }
+
+    @Test
+    void userResaveAfterReplacementIsNotOurs() throws Exception {
+        Path f = Files.writeString(dir.resolve("b.png"), "tagged");
+        SelfWriteLedger.record(f);
+        assertTrue(SelfWriteLedger.isOwnWrite(f));
+
+        // 교체 직후(ttl 안) 사용자가 덮어씀
+        Files.writeString(f, "user content, untagged");
+        Files.setLastModifiedTime(f, FileTime.fromMillis(attrs(f).lastModifiedTime().toMillis() + 5_000));
+
+        assertFalse(SelfWriteLedger.isOwnWrite(f));
+        assertFalse(SelfWriteLedger.matches(f, attrs(f)));
+    }
+
+    private static BasicFileAttributes attrs(Path f) throws Exception {
+        return Files.readAttributes(f, BasicFileAttributes.class);
+    }
+}
@@ -0,0 +1,110 @@
+package com.airoom.secureagent.watermark;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 띠 병렬 합성 · 행 구간(strip) 합성이 직렬 전체 합성과 비트 단위로 같은지, 캐시 없는 render 가 캐시 스탬프와 같은지
+ */
+class WatermarkStampTest {
+
+    private static final int W = 1500, H = 2200;
+    private static final int STEP_X = 660, STEP_Y = 440;
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void startPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void stopPool() {
+        pool.shutdown();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB})
+    void bandParallelMatchesSerial(int type) {
+        WatermarkStamp.Stamp stamp = stamp();
+        BufferedImage serial = background(type), banded = background(type);
+
+        WatermarkStamp.apply(serial, stamp, STEP_X, STEP_Y, null);
+        WatermarkStamp.apply(banded, stamp, STEP_X, STEP_Y, pool);
+
+        assertFalse(Arrays.equals(pixels(background(type)), pixels(serial)), "워터마크가 그려짐");
+        assertArrayEquals(pixels(serial), pixels(banded));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB})
+    void rowStripsMatchWholeImage(int type) {
+        WatermarkStamp.Stamp stamp = stamp();
+        BufferedImage whole = background(type);
+        WatermarkStamp.apply(whole, stamp, STEP_X, STEP_Y, null);
+
+        // 격자와 어긋난 strip 높이로 잘라 각 strip 만 메모리에 있는 것처럼 합성
+        int[] src = pixels(background(type)), out = new int[W * H];
+        int rows = 97;
+        for (int y0 = 0; y0 < H; y0 += rows) {
+            int y1 = Math.min(H, y0 + rows);
+            int[] strip = Arrays.copyOfRange(src, y0 * W, y1 * W);
+            WatermarkStamp.applyRows(strip, W, H, stamp, STEP_X, STEP_Y, y0, y1, type == BufferedImage.TYPE_INT_ARGB);
+            System.arraycopy(strip, 0, out, y0 * W, strip.length);
+        }
+        assertArrayEquals(pixels(whole), out);
+    }
+
+    @Test
+    void uncachedRenderMatchesCachedStampAndSkipsCache() {
+        BufferedImage cached = background(BufferedImage.TYPE_INT_RGB), rendered = background(BufferedImage.TYPE_INT_RGB);
+        WatermarkStamp.apply(cached, stamp(), STEP_X, STEP_Y, null);
+
+        long stamps = stat("stamps"), renders = stat("renders");
+        for (int i = 0; i < 3; i++) {                                       // 인코더처럼 파일마다 다른 문구
+            WatermarkStamp.render("AIROOM-TEST|" + i, new Font("Arial", Font.BOLD, 88), new Color(255, 0, 0, 77), 0.3f);
+        }
+        WatermarkStamp.apply(rendered, WatermarkStamp.render("AIROOM-TEST", new Font("Arial", Font.BOLD, 88),
+                new Color(255, 0, 0, 77), 0.3f), STEP_X, STEP_Y, null);
+
+        assertArrayEquals(pixels(cached), pixels(rendered));
+        assertEquals(stamps, stat("stamps"), "캐시에 일회용 스탬프가 쌓이지 않음");
+        assertEquals(renders, stat("renders"));
+    }
+
+    private static long stat(String name) {
+        return ((Number) WatermarkStamp.stats().get(name)).longValue();
+    }
+
+    private static WatermarkStamp.Stamp stamp() {
+        return WatermarkStamp.of("AIROOM-TEST", new Font("Arial", Font.BOLD, 88), new Color(255, 0, 0, 77), 0.3f);
+    }
+
+    /** 노이즈 배경, ARGB 는 일부 띠를 반투명으로 (알파 합성 경로까지) */
+    private static BufferedImage background(int type) {
+        BufferedImage img = new BufferedImage(W, H, type);
+        int[] px = pixels(img);
+        Random rnd = new Random(7);
+        for (int i = 0; i < px.length; i++) {
+            int a = type == BufferedImage.TYPE_INT_ARGB && (i / W) % 256 < 48 ? rnd.nextInt(256) : 255;
+            px[i] = a << 24 | rnd.nextInt(1 << 24);
+        }
+        return img;
+    }
+
+    private static int[] pixels(BufferedImage img) {
+        return ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+    }
+}